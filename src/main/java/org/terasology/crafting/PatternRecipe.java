@@ -3,10 +3,84 @@
 package org.terasology.crafting;
 
 import org.terasology.crafting.components.Recipe;
+import org.terasology.crafting.patternCrafting.components.PatternRecipeContainer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
 
 /**
- * Test second recipe type
+ * Represents a Pattern Recipe.
+ * A grid of ingredients that have to be laid out in the same shape to craft a single output. The pattern may be placed
+ * anywhere in a larger grid, and if it is mirrored it also matches when flipped left to right.
  */
 public class PatternRecipe implements Recipe {
+    public int width;
+    public int height;
+    /**
+     * The ingredient of every cell, row by row. Cells that must stay empty are null.
+     */
+    public String[] cells = new String[0];
+    public String output = "";
+    public int outputCount = 1;
+    public boolean mirrored = true;
+
+    public PatternRecipe(PatternRecipeContainer container, String result) {
+        List<String> rows = container.pattern == null ? Collections.<String>emptyList() : container.pattern;
+        height = rows.size();
+        for (String row : rows) {
+            width = Math.max(width, row.length());
+        }
+        cells = new String[width * height];
+        for (int y = 0; y < height; y++) {
+            String row = rows.get(y);
+            for (int x = 0; x < row.length(); x++) {
+                cells[y * width + x] = container.key == null ? null : container.key.get(String.valueOf(row.charAt(x)));
+            }
+        }
+        output = result;
+        outputCount = container.outputCount;
+        mirrored = container.mirrored;
+    }
+
+    public PatternRecipe(String[] cells, int width, String output, int outputCount, boolean mirrored) {
+        this.cells = cells;
+        this.width = width;
+        this.height = width == 0 ? 0 : cells.length / width;
+        this.output = output;
+        this.outputCount = outputCount;
+        this.mirrored = mirrored;
+    }
+
+    /**
+     * @param x The column of the cell
+     * @param y The row of the cell
+     * @return The ingredient of the cell or null if it must be empty
+     */
+    public String getCell(int x, int y) {
+        return cells[y * width + x];
+    }
+
+    @Override
+    public String[] getInputNames() {
+        return Arrays.stream(cells).filter(Objects::nonNull).distinct().toArray(String[]::new);
+    }
+
+    @Override
+    public String[] getOutputNames() {
+        return new String[]{output};
+    }
 
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (int y = 0; y < height; y++) {
+            result.append(y > 0 ? " / " : "");
+            for (int x = 0; x < width; x++) {
+                result.append(x > 0 ? ", " : "").append(getCell(x, y) == null ? "-" : getCell(x, y));
+            }
+        }
+        return result + " = " + outputCount + "x" + output;
+    }
 }
@@ -0,0 +1,40 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.components;
+
+import org.terasology.gestalt.entitysystem.component.Component;
+
+/**
+ * Tuning switches for BasicCrafting, read from the "BasicCrafting:craftingSettings" prefab.
+ * Other modules or servers can change them by overriding that prefab.
+ */
+public class CraftingSettingsComponent implements Component<CraftingSettingsComponent> {
+    public static final int DEFAULT_MESH_CACHE_SIZE = 256;
+
+    /**
+     * Keep the compiled recipes in a file, and reuse it on the next start if no recipe prefabs have changed.
+     */
+    public boolean recipeCache = true;
+    /**
+     * The number of block meshes the recipe icons keep at hand. The meshes belong to the engine, so this doesn't bound
+     * their memory, only how many are looked up again after they haven't been shown for a while.
+     */
+    public int meshCacheSize = DEFAULT_MESH_CACHE_SIZE;
+    /**
+     * Record crafting metrics from the start. They can also be turned on later with the craftingMetrics command.
+     */
+    public boolean metricsEnabled = false;
+    /**
+     * The longest time in microseconds that workstations may spend finishing crafting jobs in a single tick.
+     * Jobs that don't fit are finished on the following ticks.
+     */
+    public int craftingTickBudgetMicros = 2000;
+
+    @Override
+    public void copyFrom(CraftingSettingsComponent other) {
+        this.recipeCache = other.recipeCache;
+        this.meshCacheSize = other.meshCacheSize;
+        this.metricsEnabled = other.metricsEnabled;
+        this.craftingTickBudgetMicros = other.craftingTickBudgetMicros;
+    }
+}
@@ -6,4 +6,23 @@ package org.terasology.crafting.components;
  * The interface to represent a base recipe type.
  */
 public interface Recipe {
+    /**
+     * Get the names of all the ingredients this recipe consumes.
+     * Used to index which recipes use an item.
+     *
+     * @return The ingredient names, as written in the recipe
+     */
+    default String[] getInputNames() {
+        return new String[0];
+    }
+
+    /**
+     * Get the names of all the items this recipe produces.
+     * Used to index which recipes make an item.
+     *
+     * @return The output names, as written in the recipe
+     */
+    default String[] getOutputNames() {
+        return new String[0];
+    }
 }
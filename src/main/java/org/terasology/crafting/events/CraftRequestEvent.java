@@ -0,0 +1,61 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.crafting.events;
+
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.network.ServerEvent;
+import org.terasology.gestalt.entitysystem.event.Event;
+
+/**
+ * Sent by a client on the entity doing the crafting to ask the server to craft a recipe.
+ * The recipe is named by the prefab it was loaded from and its position within that prefab, so the event stays small.
+ */
+@ServerEvent
+public class CraftRequestEvent implements Event {
+    private String source;
+    private int recipeIndex;
+    private int times;
+    private EntityRef workstation = EntityRef.NULL;
+
+    protected CraftRequestEvent() {
+    }
+
+    /**
+     * @param source The name of the prefab the recipe was loaded from
+     * @param recipeIndex The index of the recipe among the recipes of that prefab
+     * @param times The number of times to craft it, or CRAFT_MAX for as many as possible
+     */
+    public CraftRequestEvent(String source, int recipeIndex, int times) {
+        this.source = source;
+        this.recipeIndex = recipeIndex;
+        this.times = times;
+    }
+
+    /**
+     * @param source The name of the prefab the recipe was loaded from
+     * @param recipeIndex The index of the recipe among the recipes of that prefab
+     * @param times The number of times to craft it, or CRAFT_MAX for as many as possible
+     * @param workstation The workstation to craft it at, or {@link EntityRef#NULL} to craft it by hand
+     */
+    public CraftRequestEvent(String source, int recipeIndex, int times, EntityRef workstation) {
+        this(source, recipeIndex, times);
+        this.workstation = workstation;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public int getRecipeIndex() {
+        return recipeIndex;
+    }
+
+    public int getTimes() {
+        return times;
+    }
+
+    public EntityRef getWorkstation() {
+        return workstation;
+    }
+}
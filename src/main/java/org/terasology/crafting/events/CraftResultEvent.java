@@ -0,0 +1,44 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.crafting.events;
+
+import org.terasology.engine.network.OwnerEvent;
+import org.terasology.gestalt.entitysystem.event.Event;
+
+/**
+ * Sent by the server to the owner of the crafting entity once a {@link CraftRequestEvent} has been handled.
+ * Requests for the same recipe made in the same tick are answered together.
+ */
+@OwnerEvent
+public class CraftResultEvent implements Event {
+    private String source;
+    private int recipeIndex;
+    private boolean success;
+
+    protected CraftResultEvent() {
+    }
+
+    /**
+     * @param source The name of the prefab the recipe was loaded from
+     * @param recipeIndex The index of the recipe among the recipes of that prefab
+     * @param success True if the recipe was crafted, false otherwise
+     */
+    public CraftResultEvent(String source, int recipeIndex, boolean success) {
+        this.source = source;
+        this.recipeIndex = recipeIndex;
+        this.success = success;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public int getRecipeIndex() {
+        return recipeIndex;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+}
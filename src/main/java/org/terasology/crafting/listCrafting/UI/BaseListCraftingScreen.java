@@ -2,9 +2,12 @@
 // SPDX-License-Identifier: Apache-2.0
 package org.terasology.crafting.listCrafting.UI;
 
+import org.terasology.crafting.listCrafting.systems.CraftabilityIndex;
 import org.terasology.crafting.listCrafting.systems.ListCraftingManager;
 import org.terasology.crafting.systems.IconManager;
 import org.terasology.crafting.systems.RecipeStore;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.input.InputSystem;
 import org.terasology.engine.logic.players.LocalPlayer;
 import org.terasology.engine.registry.In;
 import org.terasology.engine.rendering.nui.CoreScreenLayer;
@@ -17,16 +20,20 @@ public class BaseListCraftingScreen extends CoreScreenLayer {
     @In
     private ListCraftingManager craftingManager;
     @In
+    private CraftabilityIndex craftabilityIndex;
+    @In
     private RecipeStore recipeStore;
     @In
     private LocalPlayer localPlayer;
+    @In
+    private InputSystem inputSystem;
     private UIWorkstationView workstationView;
 
     @Override
     public void initialise() {
         workstationView = find("workstationView", UIWorkstationView.class);
         if (workstationView != null) {
-            workstationView.initialise(craftingManager, recipeStore, iconManager);
+            workstationView.initialise(craftingManager, recipeStore, iconManager, craftabilityIndex, inputSystem);
         }
     }
 
@@ -46,6 +53,27 @@ public class BaseListCraftingScreen extends CoreScreenLayer {
         }
     }
 
+    /**
+     * Sets the recipes of the workstation to display, reusing a model prepared earlier
+     *
+     * @param recipeListModel The recipes to display
+     */
+    public void setRecipeListModel(RecipeListModel recipeListModel) {
+        setRecipeListModel(recipeListModel, EntityRef.NULL);
+    }
+
+    /**
+     * Sets the recipes of a workstation block to display, so that recipes with a duration are crafted there
+     *
+     * @param recipeListModel The recipes to display
+     * @param workstation The workstation block, or {@link EntityRef#NULL} when crafting by hand
+     */
+    public void setRecipeListModel(RecipeListModel recipeListModel, EntityRef workstation) {
+        if (workstationView != null) {
+            workstationView.setupView(localPlayer.getCharacterEntity(), recipeListModel, workstation);
+        }
+    }
+
     @Override
     public boolean isModal() {
         return false;
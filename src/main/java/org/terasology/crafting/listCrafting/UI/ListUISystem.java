@@ -4,7 +4,9 @@ package org.terasology.crafting.listCrafting.UI;
 
 import org.terasology.crafting.listCrafting.components.CraftingWorkstationComponent;
 import org.terasology.crafting.listCrafting.inHand.InHandCraftingButton;
+import org.terasology.crafting.listCrafting.systems.ListCraftingManager;
 import org.terasology.crafting.systems.IconManager;
+import org.terasology.crafting.systems.RecipeStore;
 import org.terasology.engine.entitySystem.entity.EntityRef;
 import org.terasology.engine.entitySystem.event.EventPriority;
 import org.terasology.engine.entitySystem.event.Priority;
@@ -18,12 +20,20 @@ import org.terasology.engine.rendering.nui.NUIManager;
 import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
 import org.terasology.input.ButtonState;
 
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
 @RegisterSystem(RegisterMode.ALWAYS)
 public class ListUISystem extends BaseComponentSystem {
     @In
     private NUIManager nuiManager;
     @In
     private IconManager iconManager;
+    @In
+    private RecipeStore recipeStore;
+
+    private Map<String, RecipeListModel> recipeListModels = new HashMap<>();
 
     /**
      * This event will be triggered whenever one presses the InHandCraftingButton.
@@ -40,7 +50,7 @@ public class ListUISystem extends BaseComponentSystem {
             nuiManager.toggleScreen("BasicCrafting:BaseListCraftingScreen");
             if (nuiManager.isOpen("BasicCrafting:BaseListCraftingScreen")) {
                 BaseListCraftingScreen screen = (BaseListCraftingScreen) nuiManager.getScreen("BasicCrafting:BaseListCraftingScreen");
-                screen.setWorkstationID("InHand");
+                screen.setRecipeListModel(getRecipeListModel(ListCraftingManager.IN_HAND_CATEGORY));
             }
         }
     }
@@ -60,9 +70,25 @@ public class ListUISystem extends BaseComponentSystem {
             nuiManager.toggleScreen("BasicCrafting:BaseListCraftingScreen");
             if (nuiManager.isOpen("BasicCrafting:BaseListCraftingScreen")) {
                 BaseListCraftingScreen screen = (BaseListCraftingScreen) nuiManager.getScreen("BasicCrafting:BaseListCraftingScreen");
-                screen.setWorkstationID(component.recipeCategory);
+                screen.setRecipeListModel(getRecipeListModel(component.recipeCategory), entity);
             }
             event.consume();
         }
     }
+
+    /**
+     * Get the prepared recipes of a workstation, only rebuilding them if the recipe store has changed
+     *
+     * @param category The recipe category of the workstation
+     * @return The recipes to display
+     */
+    private RecipeListModel getRecipeListModel(String category) {
+        String key = category.toLowerCase(Locale.ROOT);
+        RecipeListModel model = recipeListModels.get(key);
+        if (model == null || !model.isCurrent(recipeStore)) {
+            model = new RecipeListModel(recipeStore, category);
+            recipeListModels.put(key, model);
+        }
+        return model;
+    }
 }
@@ -0,0 +1,88 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.listCrafting.UI;
+
+import org.terasology.crafting.listCrafting.components.ListRecipe;
+import org.terasology.crafting.systems.IconHandle;
+import org.terasology.crafting.systems.IconManager;
+import org.terasology.crafting.systems.RecipeStore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The recipes of one category, prepared for display in a {@link UIRecipeList}.
+ * <p>
+ * A model is a snapshot of the store at a single version. The icons of each recipe are resolved the first time they
+ * are shown and then kept, so a model can be handed to the list again without any further work for as long as the
+ * store doesn't change. The text index used to search the recipes is built along with the model.
+ */
+public final class RecipeListModel {
+    private final String category;
+    private final int version;
+    private final List<ListRecipe> recipes;
+    private final IconHandle[] handles;
+    private final RecipeSearchIndex searchIndex;
+
+    /**
+     * Takes a snapshot of the list recipes in a category.
+     *
+     * @param recipeStore The store to take the recipes from
+     * @param category The category to display
+     */
+    public RecipeListModel(RecipeStore recipeStore, String category) {
+        this.category = category;
+        this.version = recipeStore.getVersion();
+        this.recipes = Collections.unmodifiableList(new ArrayList<>(recipeStore.getRecipes(category, ListRecipe.class)));
+        this.handles = new IconHandle[recipes.size()];
+        this.searchIndex = new RecipeSearchIndex(recipes, recipeStore);
+    }
+
+    /**
+     * @return The category the recipes were taken from
+     */
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * @return The recipes, in the order of the store
+     */
+    public List<ListRecipe> getRecipes() {
+        return recipes;
+    }
+
+    /**
+     * @return The index to search the recipes with, using the same indices as {@link #getRecipes()}
+     */
+    public RecipeSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    /**
+     * Check if the model still matches the store.
+     *
+     * @param recipeStore The store the model was taken from
+     * @return True if the store hasn't changed since
+     */
+    public boolean isCurrent(RecipeStore recipeStore) {
+        return recipeStore.getVersion() == version;
+    }
+
+    /**
+     * Get the icons for the output of a recipe, resolving them on first use.
+     *
+     * @param index The index of the recipe
+     * @param iconManager The icon manager to resolve the output with
+     * @return The icons of the output
+     */
+    public IconHandle getHandle(int index, IconManager iconManager) {
+        IconHandle handle = handles[index];
+        if (handle == null) {
+            handle = iconManager.resolve(recipes.get(index).output);
+            handles[index] = handle;
+        }
+        return handle;
+    }
+}
@@ -0,0 +1,265 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.listCrafting.UI;
+
+import org.terasology.crafting.listCrafting.components.ListRecipe;
+import org.terasology.crafting.systems.RecipeStore;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A text index over a list of recipes, matching the name of the output, the names of the inputs and all their other
+ * names.
+ * <p>
+ * Every query word must appear in the recipe. Words of three or more characters match anywhere inside a name and are
+ * looked up through the trigrams they contain. Shorter words only match the start of a word in a name and are looked
+ * up directly. Either way the candidates come from intersecting sorted lists, so a query never scans every recipe.
+ */
+public final class RecipeSearchIndex {
+    private static final int[] EMPTY = new int[0];
+
+    /* The lower case names of each recipe, one per line */
+    private final String[] texts;
+    private final Map<Long, int[]> trigrams = new HashMap<>();
+    private final Map<Long, int[]> prefixes = new HashMap<>();
+
+    /**
+     * Indexes a list of recipes
+     *
+     * @param recipes The recipes to index
+     * @param recipeStore The store used to look up the other names of the items
+     */
+    public RecipeSearchIndex(List<ListRecipe> recipes, RecipeStore recipeStore) {
+        texts = new String[recipes.size()];
+        Map<Long, int[]> trigramLists = new HashMap<>();
+        Map<Long, int[]> prefixLists = new HashMap<>();
+        for (int i = 0; i < texts.length; i++) {
+            ListRecipe recipe = recipes.get(i);
+            StringBuilder text = new StringBuilder();
+            appendNames(text, recipe.output, recipeStore);
+            if (recipe.inputItems != null) {
+                for (String input : recipe.inputItems) {
+                    appendNames(text, input, recipeStore);
+                }
+            }
+            texts[i] = text.toString();
+            indexText(texts[i], i, trigramLists, prefixLists);
+        }
+        trim(trigramLists, trigrams);
+        trim(prefixLists, prefixes);
+    }
+
+    /**
+     * @return The number of recipes indexed
+     */
+    public int size() {
+        return texts.length;
+    }
+
+    /**
+     * Finds the recipes matching a query
+     *
+     * @param query The text typed by the user
+     * @return The indices of the matching recipes in ascending order, or null if the query is blank and matches all
+     */
+    public int[] search(String query) {
+        String[] words = toWords(query);
+        if (words.length == 0) {
+            return null;
+        }
+        int[] candidates = null;
+        for (String word : words) {
+            candidates = intersect(candidates, lookup(word));
+            if (candidates.length == 0) {
+                return EMPTY;
+            }
+        }
+        return filter(candidates, words);
+    }
+
+    /**
+     * Narrows down the results of an earlier query to a longer query that starts with it.
+     * Only the earlier results are checked, so each character typed makes the search cheaper.
+     *
+     * @param previous The results of the earlier query, as returned by {@link #search(String)}
+     * @param query The text typed by the user
+     * @return The indices of the matching recipes in ascending order, or null if the query is blank and matches all
+     */
+    public int[] refine(int[] previous, String query) {
+        String[] words = toWords(query);
+        if (previous == null || words.length == 0) {
+            return search(query);
+        }
+        return filter(previous, words);
+    }
+
+    /**
+     * Splits a query into lower case words
+     *
+     * @param query The query
+     * @return The words, empty if there are none
+     */
+    public static String[] toWords(String query) {
+        String trimmed = query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("\\s+");
+    }
+
+    /**
+     * Gets the recipes that may contain a word
+     *
+     * @param word A lower case query word
+     * @return The sorted candidate recipes, which must still be checked for long words
+     */
+    private int[] lookup(String word) {
+        if (word.length() < 3) {
+            return prefixes.getOrDefault(pack(word, 0, word.length()), EMPTY);
+        }
+        int[] candidates = null;
+        for (int i = 0; i + 3 <= word.length(); i++) {
+            candidates = intersect(candidates, trigrams.getOrDefault(pack(word, i, 3), EMPTY));
+            if (candidates.length == 0) {
+                break;
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Keeps the candidates whose names contain every word
+     */
+    private int[] filter(int[] candidates, String[] words) {
+        int[] result = new int[candidates.length];
+        int size = 0;
+        for (int recipe : candidates) {
+            if (matches(texts[recipe], words)) {
+                result[size++] = recipe;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    private static boolean matches(String text, String[] words) {
+        for (String word : words) {
+            if (word.length() < 3 ? !containsWordStart(text, word) : !text.contains(word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a word of the text starts with the given prefix
+     */
+    private static boolean containsWordStart(String text, String prefix) {
+        for (int index = text.indexOf(prefix); index >= 0; index = text.indexOf(prefix, index + 1)) {
+            if (isWordStart(text, index)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isWordStart(String text, int index) {
+        return index == 0 || !Character.isLetterOrDigit(text.charAt(index - 1));
+    }
+
+    /**
+     * Adds the full name and other names of an item to the text of a recipe
+     */
+    private static void appendNames(StringBuilder text, String name, RecipeStore recipeStore) {
+        if (name == null || name.isEmpty()) {
+            return;
+        }
+        text.append(name.toLowerCase(Locale.ROOT)).append('\n');
+        String[] otherNames = recipeStore.getIngredientNames(name);
+        if (otherNames != null) {
+            for (String otherName : otherNames) {
+                text.append(otherName.toLowerCase(Locale.ROOT)).append('\n');
+            }
+        }
+    }
+
+    /**
+     * Adds every trigram of the text and the one and two character start of every word to the lists
+     */
+    private static void indexText(String text, int recipe, Map<Long, int[]> trigramLists,
+                                  Map<Long, int[]> prefixLists) {
+        for (int i = 0; i < text.length(); i++) {
+            if (i + 3 <= text.length()) {
+                add(trigramLists, pack(text, i, 3), recipe);
+            }
+            if (Character.isLetterOrDigit(text.charAt(i)) && isWordStart(text, i)) {
+                add(prefixLists, pack(text, i, 1), recipe);
+                if (i + 2 <= text.length()) {
+                    add(prefixLists, pack(text, i, 2), recipe);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a recipe to a list, unless it was the last one added. The first element of each list holds its length.
+     */
+    private static void add(Map<Long, int[]> lists, long key, int recipe) {
+        int[] list = lists.get(key);
+        if (list == null) {
+            list = new int[4];
+            lists.put(key, list);
+        } else if (list[list[0]] == recipe) {
+            return;
+        } else if (list[0] + 1 == list.length) {
+            list = Arrays.copyOf(list, list.length * 2);
+            lists.put(key, list);
+        }
+        list[++list[0]] = recipe;
+    }
+
+    private static void trim(Map<Long, int[]> lists, Map<Long, int[]> target) {
+        for (Map.Entry<Long, int[]> entry : lists.entrySet()) {
+            int[] list = entry.getValue();
+            target.put(entry.getKey(), Arrays.copyOfRange(list, 1, list[0] + 1));
+        }
+    }
+
+    /**
+     * Packs up to three characters into a key
+     */
+    private static long pack(String text, int start, int length) {
+        long key = length;
+        for (int i = start; i < start + length; i++) {
+            key = key << 16 | text.charAt(i);
+        }
+        return key;
+    }
+
+    /**
+     * Intersects two sorted lists
+     *
+     * @param a The first list, or null to return the second
+     * @param b The second list
+     * @return The elements in both
+     */
+    private static int[] intersect(int[] a, int[] b) {
+        if (a == null) {
+            return b;
+        }
+        int[] result = new int[Math.min(a.length, b.length)];
+        int size = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+}
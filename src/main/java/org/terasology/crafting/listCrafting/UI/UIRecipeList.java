@@ -5,9 +5,12 @@ package org.terasology.crafting.listCrafting.UI;
 
 import org.joml.Vector2i;
 import org.terasology.crafting.listCrafting.components.ListRecipe;
+import org.terasology.crafting.listCrafting.systems.Craftability;
+import org.terasology.crafting.listCrafting.systems.CraftabilityIndex;
+import org.terasology.crafting.systems.IconHandle;
 import org.terasology.crafting.systems.IconManager;
 import org.terasology.crafting.systems.RecipeStore;
-import org.terasology.engine.rendering.assets.mesh.Mesh;
+import org.terasology.engine.entitySystem.entity.EntityRef;
 import org.terasology.engine.rendering.assets.texture.TextureRegion;
 import org.terasology.engine.utilities.Assets;
 import org.terasology.joml.geom.Rectanglei;
@@ -16,50 +19,108 @@ import org.terasology.nui.BaseInteractionListener;
 import org.terasology.nui.Canvas;
 import org.terasology.nui.CoreWidget;
 import org.terasology.nui.events.NUIMouseClickEvent;
+import org.terasology.nui.events.NUIMouseWheelEvent;
 import org.terasology.nui.widgets.ActivateEventListener;
 import org.terasology.nui.widgets.TooltipLine;
+import org.terasology.nui.widgets.UIScrollbar;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 /**
  * Displays a list of all the recipes the workstation can craft.
+ * <p>
+ * Only the rows that are scrolled into view are drawn. Their icons come from a small pool that is reused as the list
+ * scrolls, so the cost of the list does not depend on how many recipes it holds.
+ * <p>
+ * The list can be filtered by a search query. Recipes keep their index in the model, the filter only chooses which of
+ * them are shown and in which position.
  */
 public class UIRecipeList extends CoreWidget {
     private static final int ICON_SIZE = 64;
+    private static final int COLUMNS = 5;
+    private static final int VISIBLE_ROWS = 3;
+    private static final int SCROLLBAR_WIDTH = 28;
+    private static final float UNCRAFTABLE_ALPHA = 0.4f;
 
     private IconManager iconManager;
     private RecipeStore recipeStore;
+    private CraftabilityIndex craftabilityIndex;
 
-    private String workstationID = "InHand";
+    private EntityRef craftingEntity = EntityRef.NULL;
+    private Craftability craftability;
 
-    private ListRecipe[] recipes = new ListRecipe[0];
-    private ItemIcon[] icons = new ItemIcon[0];
+    private RecipeListModel model;
+    private List<ListRecipe> recipes = Collections.emptyList();
+    /* The recipes matching the filter, or null to show them all */
+    private int[] filtered;
+    private String filterText = "";
+    /* The icons of the visible recipes. A recipe always uses the icon at its position modulo the pool size */
+    private ItemIcon[] iconPool = new ItemIcon[0];
+    /* The recipe each pooled icon currently shows, or -1 if none */
+    private int[] boundRecipes = new int[0];
+    private int firstRow;
     private int selectedRecipe = -1;
     private TextureRegion selectedTexture = Assets.getTexture("BasicCrafting:selectedIcon").get();
+    private UIScrollbar scrollbar = new UIScrollbar(true);
+
+    /* The layout for the current height, only worked out again when the height changes */
+    private int layoutHeight = -1;
+    private int visibleRows;
+    private Rectanglei[] cellRegions = new Rectanglei[0];
+    private final Rectanglei scrollbarRegion = new Rectanglei();
+    private final Rectanglei gridRegion = new Rectanglei();
+    private final Vector2i preferredSize = new Vector2i(ICON_SIZE * COLUMNS + SCROLLBAR_WIDTH, ICON_SIZE * VISIBLE_ROWS);
 
     private ActivateEventListener listener;
+    private final BaseInteractionListener interactionListener = new BaseInteractionListener() {
+        @Override
+        public boolean onMouseClick(NUIMouseClickEvent event) {
+            return processOnClick(event);
+        }
+
+        @Override
+        public boolean onMouseWheel(NUIMouseWheelEvent event) {
+            scrollbar.setValue(Math.max(0, Math.min(scrollbar.getRange(),
+                    scrollbar.getValue() - event.getWheelTurns() * ICON_SIZE)));
+            return true;
+        }
+    };
 
     @Override
     public void onDraw(Canvas canvas) {
-        if (recipes != null && icons != null) {
-            int i = 0;
-            for (int y = 0; i < recipes.length; y++) {
-                for (int x = 0; x < 5 && i < recipes.length; x++) {
-                    if (i == selectedRecipe) {
-                        canvas.drawTexture(selectedTexture, new Rectanglei(ICON_SIZE * x, ICON_SIZE * y, ICON_SIZE, ICON_SIZE));
-                    }
-                    canvas.drawWidget(icons[i], new Rectanglei(ICON_SIZE * x, ICON_SIZE * y, ICON_SIZE, ICON_SIZE));
-                    i++;
-                }
-            }
+        int height = canvas.size().y;
+        if (height != layoutHeight) {
+            updateLayout(height);
         }
-        canvas.addInteractionRegion(new BaseInteractionListener() {
-            @Override
-            public boolean onMouseClick(NUIMouseClickEvent event) {
-                return processOnClick(event);
-            }
-        });
+        int totalRows = (getShownCount() + COLUMNS - 1) / COLUMNS;
+        scrollbar.setRange(Math.max(0, totalRows - visibleRows) * ICON_SIZE);
+        firstRow = Math.min(scrollbar.getValue() / ICON_SIZE, Math.max(0, totalRows - visibleRows));
 
+        int first = firstRow * COLUMNS;
+        int last = Math.min(getShownCount(), first + iconPool.length);
+        for (int position = first; position < last; position++) {
+            Rectanglei cell = cellRegions[position - first];
+            int i = getShownRecipe(position);
+            ItemIcon icon = bindIcon(i, position);
+            if (i == selectedRecipe) {
+                canvas.drawTexture(selectedTexture, cell);
+            }
+            if (craftability != null && !craftability.isCraftable(i)) {
+                /* Grey out recipes that can't currently be crafted */
+                float alpha = canvas.getAlpha();
+                canvas.setAlpha(alpha * UNCRAFTABLE_ALPHA);
+                canvas.drawWidget(icon, cell);
+                canvas.setAlpha(alpha);
+            } else {
+                canvas.drawWidget(icon, cell);
+            }
+        }
+        if (totalRows > visibleRows) {
+            canvas.drawWidget(scrollbar, scrollbarRegion);
+        }
+        canvas.addInteractionRegion(interactionListener, gridRegion);
     }
 
     /**
@@ -72,10 +133,12 @@ public class UIRecipeList extends CoreWidget {
     private boolean processOnClick(NUIMouseClickEvent event) {
         Vector2i pos = event.getRelativeMousePosition();
         pos.x = pos.x / ICON_SIZE;
-        pos.y = pos.y / ICON_SIZE;
-        selectedRecipe = pos.y * 5 + pos.x;
-        if (selectedRecipe >= recipes.length || selectedRecipe < 0) {
+        pos.y = pos.y / ICON_SIZE + firstRow;
+        int position = pos.y * COLUMNS + pos.x;
+        if (position >= getShownCount() || position < 0) {
             selectedRecipe = -1;
+        } else {
+            selectedRecipe = getShownRecipe(position);
         }
         if (listener != null) {
             listener.onActivated(this);
@@ -83,9 +146,12 @@ public class UIRecipeList extends CoreWidget {
         return false;
     }
 
+    /**
+     * The returned size is the same on every call and must not be modified.
+     */
     @Override
     public Vector2i getPreferredContentSize(Canvas canvas, Vector2i sizeHint) {
-        return new Vector2i(ICON_SIZE * 5, (int) (Math.ceil(recipes.length / 5.0) * ICON_SIZE));
+        return preferredSize;
     }
 
     /**
@@ -94,20 +160,34 @@ public class UIRecipeList extends CoreWidget {
      * @return The selected recipe or null if none are selected.
      */
     public ListRecipe getSelectedRecipe() {
-        if (selectedRecipe > -1 && selectedRecipe < recipes.length) {
-            return recipes[selectedRecipe];
+        if (selectedRecipe > -1 && selectedRecipe < recipes.size()) {
+            return recipes.get(selectedRecipe);
         }
         return null;
     }
 
     /**
-     * Sets the icon manager.
+     * Sets the managers used to look up recipes, icons and craftability.
      *
+     * @param newRecipeStore The new recipe store
      * @param newIconManager The new icon manager
+     * @param newCraftabilityIndex The new craftability index
      */
-    public void setManagers(RecipeStore newRecipeStore, IconManager newIconManager) {
+    public void setManagers(RecipeStore newRecipeStore, IconManager newIconManager,
+                            CraftabilityIndex newCraftabilityIndex) {
         recipeStore = newRecipeStore;
         iconManager = newIconManager;
+        craftabilityIndex = newCraftabilityIndex;
+    }
+
+    /**
+     * Set the entity doing the crafting.
+     * Used to grey out the recipes it can't craft.
+     *
+     * @param newCraftingEntity The new crafting entity
+     */
+    public void setCraftingEntity(EntityRef newCraftingEntity) {
+        craftingEntity = newCraftingEntity;
     }
 
     /**
@@ -117,82 +197,150 @@ public class UIRecipeList extends CoreWidget {
      * @param newID The new id of the workstation
      */
     public void setWorkstationID(String newID) {
-        workstationID = newID;
-        collectRecipes();
+        setModel(new RecipeListModel(recipeStore, newID));
+    }
+
+    /**
+     * Set the recipes to display.
+     * The model may be shared with other lists and reused, as it is not changed by the list.
+     *
+     * @param newModel The prepared recipes of a workstation
+     */
+    public void setModel(RecipeListModel newModel) {
+        model = newModel;
+        recipes = model.getRecipes();
+        craftability = craftabilityIndex != null && craftingEntity.exists()
+                ? craftabilityIndex.getCraftability(craftingEntity, model.getCategory())
+                : null;
+        filtered = model.getSearchIndex().search(filterText);
+        unbindIcons();
+        scrollbar.setValue(0);
         selectedRecipe = -1;
         if (listener != null) {
             listener.onActivated(this);
         }
     }
 
+    /**
+     * Only show the recipes matching a search query.
+     * If the query extends the previous one, only the recipes that matched before are checked again.
+     *
+     * @param text The text typed by the user, empty to show all the recipes
+     */
+    public void setFilter(String text) {
+        String newText = text == null ? "" : text;
+        if (newText.equals(filterText)) {
+            return;
+        }
+        if (model != null) {
+            RecipeSearchIndex index = model.getSearchIndex();
+            filtered = isNarrowed(newText) ? index.refine(filtered, newText) : index.search(newText);
+            scrollbar.setValue(0);
+            if (selectedRecipe != -1 && filtered != null && Arrays.binarySearch(filtered, selectedRecipe) < 0) {
+                selectedRecipe = -1;
+                if (listener != null) {
+                    listener.onActivated(this);
+                }
+            }
+        }
+        filterText = newText;
+    }
+
     public void subscribeRecipeView(ActivateEventListener newListener) {
         listener = newListener;
     }
 
     /**
-     * Collect all the recipes for that workstation and set the icons to display
+     * Check if every recipe matching a new query also matched the current one, so only those need checking.
+     * Short words only match the start of a word, so extending one to three letters can match new recipes.
+     *
+     * @param newText The new query
+     * @return True if the results of the current query can be narrowed down
      */
-    private void collectRecipes() {
-        if (recipeStore.hasCategory(workstationID)) {
-            recipes = recipeStore.getRecipes(workstationID, ListRecipe.class).toArray(new ListRecipe[0]);
-            setIcons();
+    private boolean isNarrowed(String newText) {
+        if (filtered == null || !newText.startsWith(filterText)) {
+            return false;
+        }
+        String[] oldWords = RecipeSearchIndex.toWords(filterText);
+        String[] newWords = RecipeSearchIndex.toWords(newText);
+        if (newWords.length < oldWords.length) {
+            return false;
         }
+        String lastWord = oldWords[oldWords.length - 1];
+        return lastWord.length() >= 3 || lastWord.equals(newWords[oldWords.length - 1]);
+    }
 
+    /**
+     * @return The number of recipes matching the filter
+     */
+    private int getShownCount() {
+        return filtered == null ? recipes.size() : filtered.length;
     }
 
     /**
-     * Set the icons to display for each recipe
+     * @param position The position of a recipe in the filtered list
+     * @return The index of the recipe in the model
      */
+    private int getShownRecipe(int position) {
+        return filtered == null ? position : filtered[position];
+    }
 
-    private void setIcons() {
-        icons = new ItemIcon[recipes.length];
-        for (int i = 0; i < recipes.length; i++) {
-            icons[i] = new ItemIcon();
-            if (iconManager.hasIcon(recipes[i].output)) {
-                chooseIcon(recipes[i].output, icons[i]);
-            } else if (iconManager.hasMesh(recipes[i].output)) {
-                chooseMesh(recipes[i].output, icons[i]);
+    /**
+     * Work out the regions of the cells and scrollbar, and make sure the pool has an icon for every visible cell
+     *
+     * @param height The height the list is drawn at
+     */
+    private void updateLayout(int height) {
+        layoutHeight = height;
+        visibleRows = Math.max(1, height / ICON_SIZE);
+        int size = visibleRows * COLUMNS;
+        if (iconPool.length != size) {
+            iconPool = new ItemIcon[size];
+            boundRecipes = new int[size];
+            cellRegions = new Rectanglei[size];
+            for (int i = 0; i < size; i++) {
+                iconPool[i] = new ItemIcon();
+                cellRegions[i] = new Rectanglei(ICON_SIZE * (i % COLUMNS), ICON_SIZE * (i / COLUMNS))
+                        .setSize(ICON_SIZE, ICON_SIZE);
             }
-
-            icons[i].setTooltipLines(Collections.singletonList(new TooltipLine(recipes[i].output)));
+            Arrays.fill(boundRecipes, -1);
         }
+        scrollbarRegion.setMin(COLUMNS * ICON_SIZE, 0).setSize(SCROLLBAR_WIDTH, height);
+        gridRegion.setMin(0, 0).setSize(COLUMNS * ICON_SIZE, visibleRows * ICON_SIZE);
     }
 
     /**
-     * Choose the first available mesh for the recipe
-     *
-     * @param iconID The id of the mesh to look for
-     * @param icon   The ItemIcon to set the mesh on
+     * Forget which recipes the pooled icons show, so they are set up again when next drawn
      */
-    private void chooseMesh(String iconID, ItemIcon icon) {
-        Object[] meshes = iconManager.getMesh(iconID);
-        switch (meshes.length) {
-            case 0:
-                return;
-            default:
-                icon.setMesh((Mesh) meshes[0]);
-                break;
-        }
-        icon.setMeshTexture(iconManager.getTexture());
-        icon.setIcon(null);
+    private void unbindIcons() {
+        Arrays.fill(boundRecipes, -1);
     }
 
     /**
-     * Choose the first available TextureRegion for the recipe
+     * Get the pooled icon for a visible recipe, setting it up if it was showing a different recipe
      *
-     * @param iconID The ID of the icon to use
-     * @param icon   The ItemIcon to set it on
+     * @param recipe The index of the recipe
+     * @param position The position of the recipe in the filtered list
+     * @return The icon showing that recipe
      */
-    private void chooseIcon(String iconID, ItemIcon icon) {
-        Object[] foundIcons = iconManager.getIcon(iconID);
-        switch (icons.length) {
-            case 0:
-                return;
-            default:
-                icon.setIcon((TextureRegion) foundIcons[0]);
-                break;
+    private ItemIcon bindIcon(int recipe, int position) {
+        int slot = position % iconPool.length;
+        ItemIcon icon = iconPool[slot];
+        if (boundRecipes[slot] != recipe) {
+            boundRecipes[slot] = recipe;
+            String output = recipes.get(recipe).output;
+            IconHandle handle = model.getHandle(recipe, iconManager);
+            icon.setIcon(null);
+            icon.setMesh(null);
+            icon.setMeshTexture(null);
+            if (handle.getIconCount() > 0) {
+                icon.setIcon(handle.getIcon(0));
+            } else if (handle.getMeshCount() > 0) {
+                icon.setMesh(handle.getMesh(0));
+                icon.setMeshTexture(iconManager.getTexture());
+            }
+            icon.setTooltipLines(Collections.singletonList(new TooltipLine(output)));
         }
-        icon.setMesh(null);
-        icon.setMeshTexture(null);
+        return icon;
     }
 }
@@ -5,8 +5,8 @@ package org.terasology.crafting.listCrafting.UI;
 
 import org.joml.Vector2i;
 import org.terasology.crafting.listCrafting.components.ListRecipe;
+import org.terasology.crafting.systems.IconHandle;
 import org.terasology.crafting.systems.IconManager;
-import org.terasology.engine.rendering.assets.mesh.Mesh;
 import org.terasology.engine.rendering.assets.texture.TextureRegion;
 import org.terasology.engine.utilities.Assets;
 import org.terasology.engine.utilities.random.FastRandom;
@@ -15,6 +15,8 @@ import org.terasology.module.inventory.ui.ItemIcon;
 import org.terasology.nui.Canvas;
 import org.terasology.nui.CoreWidget;
 
+import java.util.Arrays;
+
 /**
  * Display a recipe
  */
@@ -30,6 +32,16 @@ public class UIRecipeView extends CoreWidget {
     private ListRecipe recipe;
     private ItemIcon[] inputIcons = null;
     private ItemIcon result = new ItemIcon();
+    private IconHandle[] inputHandles;
+    private int[] inputCandidates;
+    private IconHandle resultHandle = IconHandle.EMPTY;
+    private int resultCandidate;
+
+    /* The regions of the icons and operators from left to right, worked out when the recipe changes */
+    private Rectanglei[] slotRegions = new Rectanglei[0];
+    /* Replaced rather than changed, as it is handed out by getPreferredContentSize */
+    private Vector2i preferredSize = new Vector2i(0, ICON_SIZE);
+    private int preferredWidth;
 
     @Override
     public void onDraw(Canvas canvas) {
@@ -38,18 +50,22 @@ public class UIRecipeView extends CoreWidget {
             int i;
             for (i = 0; i < inputIcons.length; i++) {
                 if (i > 0) {
-                    canvas.drawTexture(addTexture, new Rectanglei((i * 2 - 1) * ICON_SIZE, 0).setSize(ICON_SIZE, ICON_SIZE));
+                    canvas.drawTexture(addTexture, slotRegions[i * 2 - 1]);
                 }
-                canvas.drawWidget(inputIcons[i], new Rectanglei(i * 2 * ICON_SIZE, 0).setSize(ICON_SIZE, ICON_SIZE));
+                canvas.drawWidget(inputIcons[i], slotRegions[i * 2]);
             }
-            canvas.drawTexture(equalsTexture, new Rectanglei((i * 2 - 1) * ICON_SIZE, 0).setSize(ICON_SIZE, ICON_SIZE));
-            canvas.drawWidget(result, new Rectanglei(i * 2 * ICON_SIZE, 0).setSize(ICON_SIZE, ICON_SIZE));
+            canvas.drawTexture(equalsTexture, slotRegions[i * 2 - 1]);
+            canvas.drawWidget(result, slotRegions[i * 2]);
         }
     }
 
+    /**
+     * The returned size is shared between calls and must not be modified. A new one is made whenever the size changes,
+     * so sizes returned earlier keep their values.
+     */
     @Override
     public Vector2i getPreferredContentSize(Canvas canvas, Vector2i sizeHint) {
-        return new Vector2i(64 * (inputIcons == null ? 0 : inputIcons.length * 2 + 1), 64);
+        return preferredSize;
     }
 
     /**
@@ -67,17 +83,44 @@ public class UIRecipeView extends CoreWidget {
     public void updateRecipe(ListRecipe newRecipe) {
         if (newRecipe != null) {
             inputIcons = new ItemIcon[newRecipe.inputItems.length];
+            inputHandles = new IconHandle[inputIcons.length];
+            inputCandidates = new int[inputIcons.length];
             for (int i = 0; i < inputIcons.length; i++) {
                 inputIcons[i] = new ItemIcon();
             }
             updateIcons(newRecipe);
+            updateLayout(inputIcons.length * 2 + 1);
         } else {
             /* Causes the widget to not draw anything */
             inputIcons = null;
+            setPreferredWidth(0);
         }
         recipe = newRecipe;
     }
 
+    /**
+     * Work out the regions for a number of slots, reusing the ones that already exist.
+     *
+     * @param slots The number of icons and operators to show
+     */
+    private void updateLayout(int slots) {
+        if (slotRegions.length < slots) {
+            Rectanglei[] regions = Arrays.copyOf(slotRegions, slots);
+            for (int i = slotRegions.length; i < slots; i++) {
+                regions[i] = new Rectanglei(i * ICON_SIZE, 0).setSize(ICON_SIZE, ICON_SIZE);
+            }
+            slotRegions = regions;
+        }
+        setPreferredWidth(slots * ICON_SIZE);
+    }
+
+    private void setPreferredWidth(int width) {
+        if (preferredWidth != width) {
+            preferredWidth = width;
+            preferredSize = new Vector2i(width, ICON_SIZE);
+        }
+    }
+
     /**
      * Update all the icons for the new recipe;
      *
@@ -85,82 +128,80 @@ public class UIRecipeView extends CoreWidget {
      */
     private void updateIcons(ListRecipe newRecipe) {
         for (int i = 0; i < inputIcons.length; i++) {
-            increment(newRecipe.inputItems[i], inputIcons[i]);
+            inputHandles[i] = iconManager.resolve(newRecipe.inputItems[i]);
+            inputCandidates[i] = pickStart(inputHandles[i]);
+            showCandidate(inputHandles[i], inputCandidates[i], inputIcons[i]);
+            inputIcons[i].setTooltip(newRecipe.inputItems[i]);
             inputIcons[i].setQuantity(newRecipe.inputCounts[i]);
         }
-        increment(newRecipe.output, result);
+        resultHandle = iconManager.resolve(newRecipe.output);
+        resultCandidate = pickStart(resultHandle);
+        showCandidate(resultHandle, resultCandidate, result);
+        result.setTooltip(newRecipe.output);
         result.setQuantity(newRecipe.outputCount);
     }
 
     public void stepItemIcons() {
         if (recipe != null) {
             for (int i = 0; i < inputIcons.length; i++) {
-                increment(recipe.inputItems[i], inputIcons[i]);
+                inputCandidates[i] = step(inputHandles[i], inputCandidates[i], inputIcons[i]);
             }
-            increment(recipe.output, result);
+            resultCandidate = step(resultHandle, resultCandidate, result);
         }
     }
 
     /**
-     * Pick a random icon for the item.
+     * Pick a random candidate to start cycling from, so that items with many candidates don't all look the same.
      *
-     * @param iconID The item to look for items for
-     * @param icon The icon to set the choice on
+     * @param handle The candidates of the item
+     * @return The index of the first candidate to show
      */
-    private void increment(String iconID, ItemIcon icon) {
-        if (iconManager.hasIcon(iconID) && iconManager.hasMesh(iconID)) {
-            if (random.nextFloat() < 0.5f) {
-                chooseMesh(iconID, icon);
-            } else {
-                chooseIcon(iconID, icon);
-            }
-        } else if (iconManager.hasIcon(iconID)) {
-            chooseIcon(iconID, icon);
-        } else if (iconManager.hasMesh(iconID)) {
-            chooseMesh(iconID, icon);
-        }
-        icon.setTooltip(iconID);
+    private int pickStart(IconHandle handle) {
+        int count = handle.getCandidateCount();
+        return count > 1 ? random.nextInt(count) : 0;
     }
 
     /**
-     * Choose the first available mesh for the recipe
+     * Move an icon on to the next of its candidates.
      *
-     * @param iconID The id of the mesh to look for
-     * @param icon The ItemIcon to set the mesh on
+     * @param handle The candidates of the item
+     * @param candidate The candidate currently shown
+     * @param icon The icon to set the choice on
+     * @return The candidate now shown
      */
-    private void chooseMesh(String iconID, ItemIcon icon) {
-        Object[] meshes = iconManager.getMesh(iconID);
-        switch (meshes.length) {
-            case 0:
-                return;
-            case 1:
-                icon.setMesh((Mesh) meshes[0]);
-                break;
-            default:
-                icon.setMesh((Mesh) meshes[random.nextInt(meshes.length)]);
+    private int step(IconHandle handle, int candidate, ItemIcon icon) {
+        int count = handle.getCandidateCount();
+        if (count <= 1) {
+            /* Meshes may have been disposed by the engine since they were set, so fetch them again */
+            if (count == 1 && handle.isMesh(0)) {
+                showCandidate(handle, 0, icon);
+            }
+            return candidate;
         }
-        icon.setMeshTexture(iconManager.getTexture());
-        icon.setIcon(null);
+        int next = candidate + 1 < count ? candidate + 1 : 0;
+        showCandidate(handle, next, icon);
+        return next;
     }
 
     /**
-     * Choose the first available TextureRegion for the recipe
+     * Show one of the icons or meshes of an item.
      *
-     * @param iconID The ID of the icon to use
+     * @param handle The candidates of the item
+     * @param candidate The index of the candidate to show
      * @param icon The ItemIcon to set it on
      */
-    private void chooseIcon(String iconID, ItemIcon icon) {
-        TextureRegion[] icons = iconManager.getIcon(iconID);
-        switch (icons.length) {
-            case 0:
-                return;
-            case 1:
-                icon.setIcon(icons[0]);
-                break;
-            default:
-                icon.setIcon(icons[random.nextInt(icons.length)]);
+    private void showCandidate(IconHandle handle, int candidate, ItemIcon icon) {
+        if (handle.isEmpty()) {
+            return;
+        }
+        if (handle.isMesh(candidate)) {
+            icon.setMesh(handle.getMesh(candidate - handle.getIconCount()));
+            icon.setMeshTexture(iconManager.getTexture());
+            icon.setIcon(null);
+        } else {
+            icon.setIcon(handle.getIcon(candidate));
+            icon.setMesh(null);
+            icon.setMeshTexture(null);
         }
-        icon.setMesh(null);
-        icon.setMeshTexture(null);
     }
 }
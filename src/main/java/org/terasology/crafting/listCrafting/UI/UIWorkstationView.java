@@ -5,64 +5,108 @@ package org.terasology.crafting.listCrafting.UI;
 
 import org.joml.Vector2i;
 import org.terasology.crafting.listCrafting.components.ListRecipe;
+import org.terasology.crafting.listCrafting.systems.CraftabilityIndex;
 import org.terasology.crafting.listCrafting.systems.ListCraftingManager;
 import org.terasology.crafting.systems.IconManager;
 import org.terasology.crafting.systems.RecipeStore;
 import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.input.InputSystem;
+import org.terasology.input.Keyboard;
+import org.terasology.input.device.KeyboardDevice;
 import org.terasology.joml.geom.Rectanglei;
 import org.terasology.nui.Canvas;
 import org.terasology.nui.CoreWidget;
-import org.terasology.nui.layouts.ScrollableArea;
 import org.terasology.nui.widgets.UIButton;
+import org.terasology.nui.widgets.UIText;
 
 public class UIWorkstationView extends CoreWidget {
 
     private static final int ICON_SIZE = 64;
     private static final float UPDATE_ICON_STEP = 1.2f;
+    private static final int SEARCH_HEIGHT = ICON_SIZE / 2;
+    private static final int PREFERRED_HEIGHT = (int) (5.5 * ICON_SIZE) + SEARCH_HEIGHT;
     private float counter;
 
-    private ScrollableArea scrollableArea = new ScrollableArea();
     private UIRecipeView recipeView = new UIRecipeView();
     private UIRecipeList recipeList = new UIRecipeList();
     private UIButton craftButton = new UIButton();
+    private UIText searchBox = new UIText();
+
+    private int layoutWidth = -1;
+    private final Rectanglei searchBoxRegion = new Rectanglei();
+    private final Rectanglei recipeListRegion = new Rectanglei();
+    private final Rectanglei recipeViewRegion = new Rectanglei();
+    private final Rectanglei craftButtonRegion = new Rectanglei();
+    /* Replaced rather than changed, as it is handed out by getPreferredContentSize */
+    private Vector2i preferredSize = new Vector2i(5 * ICON_SIZE, PREFERRED_HEIGHT);
+    private int preferredWidth = 5 * ICON_SIZE;
 
     private EntityRef craftingEntity;
+    private EntityRef workstation = EntityRef.NULL;
+    private InputSystem inputSystem;
 
     @Override
     public void onDraw(Canvas canvas) {
-        int xOffset = (canvas.size().x - 5 * ICON_SIZE) / 2;
-        canvas.drawWidget(scrollableArea, new Rectanglei(xOffset, 0).setSize(5 * ICON_SIZE + 28, 3 * ICON_SIZE));
-        canvas.drawWidget(recipeView, new Rectanglei(0, 3 * ICON_SIZE + ICON_SIZE / 4).setSize(canvas.size().x,
-                ICON_SIZE));
-        canvas.drawWidget(craftButton,
-                new Rectanglei(xOffset + ICON_SIZE, 4 * ICON_SIZE + ICON_SIZE / 2).setSize(3 * ICON_SIZE,
-                        ICON_SIZE / 2));
+        int width = canvas.size().x;
+        if (width != layoutWidth) {
+            updateLayout(width);
+        }
+        canvas.drawWidget(searchBox, searchBoxRegion);
+        canvas.drawWidget(recipeList, recipeListRegion);
+        canvas.drawWidget(recipeView, recipeViewRegion);
+        canvas.drawWidget(craftButton, craftButtonRegion);
     }
 
+    /**
+     * The returned size is shared between calls and must not be modified. A new one is made whenever the recipe view
+     * gets wider or narrower, so sizes returned earlier keep their values.
+     */
     @Override
     public Vector2i getPreferredContentSize(Canvas canvas, Vector2i sizeHint) {
-        Vector2i viewSize = recipeView.getPreferredContentSize(canvas, sizeHint);
-        return new Vector2i(Math.max(5 * ICON_SIZE, viewSize.x), (int) (5.5 * ICON_SIZE));
+        int width = Math.max(5 * ICON_SIZE, recipeView.getPreferredContentSize(canvas, sizeHint).x);
+        if (width != preferredWidth) {
+            preferredWidth = width;
+            preferredSize = new Vector2i(width, PREFERRED_HEIGHT);
+        }
+        return preferredSize;
+    }
+
+    /**
+     * Work out where each part of the view goes for a given width
+     *
+     * @param width The width the view is drawn at
+     */
+    private void updateLayout(int width) {
+        layoutWidth = width;
+        int xOffset = (width - 5 * ICON_SIZE) / 2;
+        searchBoxRegion.setMin(xOffset, 0).setSize(5 * ICON_SIZE, SEARCH_HEIGHT);
+        recipeListRegion.setMin(xOffset, SEARCH_HEIGHT).setSize(5 * ICON_SIZE + 28, 3 * ICON_SIZE);
+        recipeViewRegion.setMin(0, SEARCH_HEIGHT + 3 * ICON_SIZE + ICON_SIZE / 4).setSize(width, ICON_SIZE);
+        craftButtonRegion.setMin(xOffset + ICON_SIZE, SEARCH_HEIGHT + 4 * ICON_SIZE + ICON_SIZE / 2)
+                .setSize(3 * ICON_SIZE, ICON_SIZE / 2);
     }
 
     public void initialise(ListCraftingManager newCraftingManager, RecipeStore newRecipeStore,
-                           IconManager newIconManager) {
+                           IconManager newIconManager, CraftabilityIndex newCraftabilityIndex,
+                           InputSystem newInputSystem) {
+        inputSystem = newInputSystem;
 
-        recipeList.setManagers(newRecipeStore, newIconManager);
+        recipeList.setManagers(newRecipeStore, newIconManager, newCraftabilityIndex);
         recipeList.subscribeRecipeView(widget -> recipeView.updateRecipe(((UIRecipeList) widget).getSelectedRecipe()));
 
         recipeView.setIconManager(newIconManager);
 
+        searchBox.subscribe((oldText, newText) -> recipeList.setFilter(newText));
+
         craftButton.subscribe(widget -> {
             ListRecipe selectedRecipe = recipeList.getSelectedRecipe();
             if (selectedRecipe != null) {
-                newCraftingManager.craftRecipe(craftingEntity, selectedRecipe, true);
+                int times = isShiftDown() ? ListCraftingManager.CRAFT_MAX : 1;
+                newCraftingManager.requestCraft(craftingEntity, workstation, selectedRecipe, times);
             }
         });
         craftButton.setText("Craft");
-
-        scrollableArea.setContent(recipeList);
-        scrollableArea.setPreferredSize(5 * ICON_SIZE, 3 * ICON_SIZE);
+        craftButton.setTooltip("Shift-click to craft as many as possible");
 
     }
 
@@ -77,8 +121,32 @@ public class UIWorkstationView extends CoreWidget {
         }
     }
 
+    /**
+     * @return True if either shift key is held down
+     */
+    private boolean isShiftDown() {
+        if (inputSystem == null || inputSystem.getKeyboard() == null) {
+            return false;
+        }
+        KeyboardDevice keyboard = inputSystem.getKeyboard();
+        return keyboard.isKeyDown(Keyboard.KeyId.LEFT_SHIFT) || keyboard.isKeyDown(Keyboard.KeyId.RIGHT_SHIFT);
+    }
+
     public void setupView(EntityRef newCraftingEntity, String newWorkstationID) {
         craftingEntity = newCraftingEntity;
+        workstation = EntityRef.NULL;
+        recipeList.setCraftingEntity(newCraftingEntity);
         recipeList.setWorkstationID(newWorkstationID);
     }
+
+    public void setupView(EntityRef newCraftingEntity, RecipeListModel recipeListModel) {
+        setupView(newCraftingEntity, recipeListModel, EntityRef.NULL);
+    }
+
+    public void setupView(EntityRef newCraftingEntity, RecipeListModel recipeListModel, EntityRef newWorkstation) {
+        craftingEntity = newCraftingEntity;
+        workstation = newWorkstation;
+        recipeList.setCraftingEntity(newCraftingEntity);
+        recipeList.setModel(recipeListModel);
+    }
 }
@@ -7,9 +7,15 @@ import org.terasology.gestalt.entitysystem.component.Component;
 
 public class CraftingWorkstationComponent implements Component<CraftingWorkstationComponent> {
     public String recipeCategory;
+    /**
+     * The distance in blocks within which the workstation also takes ingredients from other inventory blocks.
+     * 0 means only the inventory of the crafter is used.
+     */
+    public int ingredientRadius;
 
     @Override
     public void copyFrom(CraftingWorkstationComponent other) {
         this.recipeCategory = other.recipeCategory;
+        this.ingredientRadius = other.ingredientRadius;
     }
 }
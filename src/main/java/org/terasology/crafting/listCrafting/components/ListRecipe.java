@@ -16,6 +16,7 @@ public class ListRecipe implements Recipe {
     public int[] inputCounts;
     public int outputCount;
     public String output = "";
+    public float duration;
 
     public ListRecipe(ListRecipeContainer copy, String result) {
         if (copy.inputs != null) {
@@ -30,8 +31,25 @@ public class ListRecipe implements Recipe {
         }
         output = result;
         outputCount = copy.outputCount;
+        duration = copy.duration;
     }
 
+    public ListRecipe(String[] inputItems, int[] inputCounts, String output, int outputCount) {
+        this.inputItems = inputItems;
+        this.inputCounts = inputCounts;
+        this.output = output;
+        this.outputCount = outputCount;
+    }
+
+    @Override
+    public String[] getInputNames() {
+        return inputItems == null ? new String[0] : inputItems;
+    }
+
+    @Override
+    public String[] getOutputNames() {
+        return new String[]{output};
+    }
 
     @Override
     public String toString() {
@@ -14,4 +14,8 @@ public class ListRecipeContainer {
     public Map<String, Integer> inputs;
     public int outputCount;
     public String output;
+    /**
+     * The number of seconds a workstation takes to craft the recipe once. Recipes without one are crafted instantly.
+     */
+    public float duration;
 }
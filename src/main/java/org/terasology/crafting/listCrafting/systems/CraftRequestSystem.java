@@ -0,0 +1,218 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.listCrafting.systems;
+
+import org.joml.Vector3f;
+import org.joml.Vector3ic;
+import org.terasology.crafting.components.Recipe;
+import org.terasology.crafting.events.CraftRequestEvent;
+import org.terasology.crafting.events.CraftResultEvent;
+import org.terasology.crafting.listCrafting.components.CraftingWorkstationComponent;
+import org.terasology.crafting.listCrafting.components.ListRecipe;
+import org.terasology.crafting.systems.CraftingMetrics;
+import org.terasology.crafting.systems.RecipeStore;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
+import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.world.block.BlockComponent;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.module.inventory.components.InventoryComponent;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Handles craft requests from clients on the authority.
+ * <p>
+ * Requests are queued as they arrive and handled once per tick. Requests for the same recipe on the same entity are
+ * merged into a single craft, so repeated clicks cost one inventory search rather than one per click. Each entity only
+ * has a few different recipes handled per tick, the rest wait for the next tick. Only recipes in the category of the
+ * workstation, or the in hand category when there is none, are accepted. Recipes with a duration are handed to
+ * the {@link CraftingJobManager} instead, and are rejected unless asked for at a workstation within reach.
+ */
+@RegisterSystem(RegisterMode.AUTHORITY)
+public class CraftRequestSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
+    /**
+     * The number of different recipes handled for one entity in a single tick.
+     */
+    private static final int RECIPES_PER_ENTITY_PER_TICK = 8;
+    /**
+     * The number of different recipes that may wait for one entity. Further requests are rejected.
+     */
+    private static final int MAX_PENDING_RECIPES = 64;
+    /**
+     * The furthest a crafter may be from the workstation named in a request, in blocks.
+     */
+    private static final float MAX_WORKSTATION_DISTANCE = 8f;
+
+    @In
+    private ListCraftingManager craftingManager;
+    @In
+    private RecipeStore recipeStore;
+    @In
+    private CraftingJobManager jobManager;
+    @In
+    private CraftingMetrics metrics;
+
+    private Map<EntityRef, Map<ListRecipe, PendingCraft>> pending = new LinkedHashMap<>();
+
+    /**
+     * Queues a craft request from a client.
+     *
+     * @param event The request
+     * @param entity The entity doing the crafting
+     */
+    @ReceiveEvent(components = InventoryComponent.class)
+    public void onCraftRequest(CraftRequestEvent event, EntityRef entity) {
+        metrics.increment("network.craftRequests");
+        ListRecipe recipe = findRecipe(event.getSource(), event.getRecipeIndex());
+        if (recipe == null || (event.getTimes() <= 0 && event.getTimes() != ListCraftingManager.CRAFT_MAX)) {
+            entity.send(new CraftResultEvent(event.getSource(), event.getRecipeIndex(), false));
+            return;
+        }
+        EntityRef workstation = isInReach(entity, event.getWorkstation()) ? event.getWorkstation() : EntityRef.NULL;
+        if (!recipeStore.isInCategory(recipe, getCategory(workstation))) {
+            metrics.increment("network.rejectedRequests");
+            entity.send(new CraftResultEvent(event.getSource(), event.getRecipeIndex(), false));
+            return;
+        }
+        if (recipe.duration > 0) {
+            /* Timed recipes are only crafted as jobs, so they can't skip their duration by naming no workstation */
+            if (workstation == EntityRef.NULL || !jobManager.queueJob(workstation, entity, recipe, event.getTimes())) {
+                metrics.increment("network.rejectedRequests");
+                entity.send(new CraftResultEvent(event.getSource(), event.getRecipeIndex(), false));
+            }
+            return;
+        }
+
+        Map<ListRecipe, PendingCraft> crafts = pending.computeIfAbsent(entity, key -> new LinkedHashMap<>());
+        PendingCraft craft = crafts.get(recipe);
+        if (craft != null) {
+            craft.merge(event.getTimes(), workstation);
+        } else if (crafts.size() < MAX_PENDING_RECIPES) {
+            crafts.put(recipe, new PendingCraft(event.getSource(), event.getRecipeIndex(), event.getTimes(),
+                    workstation));
+        } else {
+            metrics.increment("network.rejectedRequests");
+            entity.send(new CraftResultEvent(event.getSource(), event.getRecipeIndex(), false));
+        }
+    }
+
+    @Override
+    public void update(float delta) {
+        Iterator<Map.Entry<EntityRef, Map<ListRecipe, PendingCraft>>> entities = pending.entrySet().iterator();
+        while (entities.hasNext()) {
+            Map.Entry<EntityRef, Map<ListRecipe, PendingCraft>> entry = entities.next();
+            EntityRef entity = entry.getKey();
+            if (!entity.exists()) {
+                entities.remove();
+                continue;
+            }
+
+            Iterator<Map.Entry<ListRecipe, PendingCraft>> crafts = entry.getValue().entrySet().iterator();
+            for (int handled = 0; handled < RECIPES_PER_ENTITY_PER_TICK && crafts.hasNext(); handled++) {
+                Map.Entry<ListRecipe, PendingCraft> craft = crafts.next();
+                crafts.remove();
+                PendingCraft request = craft.getValue();
+                boolean success = craftingManager.craftRecipe(entity, request.workstation, craft.getKey(), request.times,
+                        true) != null;
+                entity.send(new CraftResultEvent(request.source, request.recipeIndex, success));
+            }
+            if (entry.getValue().isEmpty()) {
+                entities.remove();
+            }
+        }
+    }
+
+    /**
+     * Check if a crafter is close enough to use a workstation named in a request
+     *
+     * @param entity The entity doing the crafting
+     * @param workstation The workstation named in the request
+     * @return True if the workstation is a workstation block within reach
+     */
+    private boolean isInReach(EntityRef entity, EntityRef workstation) {
+        if (workstation == null || !workstation.hasComponent(CraftingWorkstationComponent.class)) {
+            return false;
+        }
+        BlockComponent block = workstation.getComponent(BlockComponent.class);
+        LocationComponent location = entity.getComponent(LocationComponent.class);
+        if (block == null || location == null) {
+            return false;
+        }
+        Vector3ic position = block.getPosition();
+        Vector3f crafterPosition = location.getWorldPosition(new Vector3f());
+        return crafterPosition.distanceSquared(position.x(), position.y(), position.z())
+                <= MAX_WORKSTATION_DISTANCE * MAX_WORKSTATION_DISTANCE;
+    }
+
+    /**
+     * Get the category of recipes that may be crafted at a workstation
+     *
+     * @param workstation The workstation within reach, or {@link EntityRef#NULL} when crafting by hand
+     * @return The recipe category of the workstation, or the in hand category
+     */
+    private String getCategory(EntityRef workstation) {
+        CraftingWorkstationComponent component = workstation.getComponent(CraftingWorkstationComponent.class);
+        if (component == null || component.recipeCategory == null) {
+            return ListCraftingManager.IN_HAND_CATEGORY;
+        }
+        return component.recipeCategory;
+    }
+
+    /**
+     * Finds the list recipe a request refers to
+     *
+     * @param source The name of the prefab the recipe was loaded from
+     * @param index The index of the recipe among the recipes of that prefab
+     * @return The recipe or null if the request doesn't refer to a list recipe
+     */
+    private ListRecipe findRecipe(String source, int index) {
+        if (source == null) {
+            return null;
+        }
+        List<Recipe> recipes = recipeStore.getRecipesFrom(source);
+        if (index < 0 || index >= recipes.size() || !(recipes.get(index) instanceof ListRecipe)) {
+            return null;
+        }
+        return (ListRecipe) recipes.get(index);
+    }
+
+    /**
+     * The merged requests for one recipe on one entity.
+     */
+    private static final class PendingCraft {
+        private final String source;
+        private final int recipeIndex;
+        private int times;
+        private EntityRef workstation;
+
+        private PendingCraft(String source, int recipeIndex, int times, EntityRef workstation) {
+            this.source = source;
+            this.recipeIndex = recipeIndex;
+            this.times = times;
+            this.workstation = workstation;
+        }
+
+        /**
+         * Adds another request for the same recipe
+         *
+         * @param moreTimes The number of times asked for by the new request
+         * @param newWorkstation The workstation named by the new request, which replaces the earlier one
+         */
+        private void merge(int moreTimes, EntityRef newWorkstation) {
+            workstation = newWorkstation;
+            if (times == ListCraftingManager.CRAFT_MAX || moreTimes == ListCraftingManager.CRAFT_MAX) {
+                times = ListCraftingManager.CRAFT_MAX;
+            } else {
+                times = (int) Math.min(Integer.MAX_VALUE, (long) times + moreTimes);
+            }
+        }
+    }
+}
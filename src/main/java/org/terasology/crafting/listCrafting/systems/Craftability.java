@@ -0,0 +1,60 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.listCrafting.systems;
+
+import org.terasology.crafting.listCrafting.components.ListRecipe;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Which recipes of a category an entity can craft, and how many times.
+ * <p>
+ * The counts ignore items that would satisfy more than one input of the same recipe, so they are an upper bound.
+ * Crafting through the {@link ListCraftingManager} still checks the actual slots.
+ */
+public class Craftability {
+    private final List<ListRecipe> recipes;
+    private final BitSet craftable;
+    private final int[] maxCrafts;
+
+    Craftability(List<ListRecipe> recipes) {
+        this.recipes = recipes;
+        craftable = new BitSet(recipes.size());
+        maxCrafts = new int[recipes.size()];
+    }
+
+    /**
+     * @return The recipes of the category, in the order used by the indices of this object
+     */
+    public List<ListRecipe> getRecipes() {
+        return recipes;
+    }
+
+    /**
+     * @param index The index of the recipe
+     * @return True if the recipe can be crafted at least once
+     */
+    public boolean isCraftable(int index) {
+        return craftable.get(index);
+    }
+
+    /**
+     * @param index The index of the recipe
+     * @return The number of times the recipe can be crafted
+     */
+    public int getMaxCrafts(int index) {
+        return maxCrafts[index];
+    }
+
+    /**
+     * Updates the state of one recipe
+     *
+     * @param index The index of the recipe
+     * @param crafts The number of times it can be crafted
+     */
+    void set(int index, int crafts) {
+        maxCrafts[index] = crafts;
+        craftable.set(index, crafts > 0);
+    }
+}
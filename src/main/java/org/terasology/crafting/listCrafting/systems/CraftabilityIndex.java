@@ -0,0 +1,28 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.listCrafting.systems;
+
+import org.terasology.engine.entitySystem.entity.EntityRef;
+
+/**
+ * Keeps track of which list recipes an entity can currently craft.
+ * The state is updated from inventory change events, so querying it is cheap enough to do every frame.
+ */
+public interface CraftabilityIndex {
+    /**
+     * Gets the craftability of all the list recipes in a category for an entity.
+     * The entity is tracked from the first call onwards and the returned object is kept up to date.
+     *
+     * @param entity The entity doing the crafting. Must have an inventory
+     * @param category The recipe category to check
+     * @return The craftability of the recipes or null if the entity has no inventory
+     */
+    Craftability getCraftability(EntityRef entity, String category);
+
+    /**
+     * Stops keeping track of an entity
+     *
+     * @param entity The entity to forget
+     */
+    void stopTracking(EntityRef entity);
+}
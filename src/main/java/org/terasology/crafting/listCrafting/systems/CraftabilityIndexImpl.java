@@ -0,0 +1,298 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.listCrafting.systems;
+
+import org.terasology.crafting.listCrafting.components.ListRecipe;
+import org.terasology.crafting.systems.RecipeStore;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.module.inventory.components.InventoryComponent;
+import org.terasology.module.inventory.events.InventorySlotChangedEvent;
+import org.terasology.module.inventory.events.InventorySlotStackSizeChangedEvent;
+import org.terasology.module.inventory.systems.InventoryUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Tracks the ingredient counts of every inventory that has been queried, and updates the craftability of only the
+ * recipes that use the ingredients of a slot when that slot changes.
+ */
+@Share(CraftabilityIndex.class)
+@RegisterSystem(RegisterMode.ALWAYS)
+public class CraftabilityIndexImpl extends BaseComponentSystem implements CraftabilityIndex {
+    private static final int[] EMPTY = new int[0];
+
+    @In
+    private RecipeStore recipeStore;
+
+    private Map<String, CategoryRecipes> categories = new HashMap<>();
+    private Map<EntityRef, TrackedInventory> trackedInventories = new HashMap<>();
+    private int storeVersion;
+
+    public Craftability getCraftability(EntityRef entity, String category) {
+        if (!entity.hasComponent(InventoryComponent.class)) {
+            return null;
+        }
+        checkStoreVersion();
+        TrackedInventory inventory = trackedInventories.get(entity);
+        if (inventory == null) {
+            inventory = new TrackedInventory(entity);
+            trackedInventories.put(entity, inventory);
+        }
+
+        String lowerCategory = category.toLowerCase(Locale.ROOT);
+        Craftability craftability = inventory.craftabilities.get(lowerCategory);
+        if (craftability == null) {
+            CategoryRecipes recipes = getCategoryRecipes(lowerCategory);
+            craftability = new Craftability(recipes.recipeView);
+            for (int i = 0; i < recipes.recipes.length; i++) {
+                craftability.set(i, inventory.countCrafts(recipes, i));
+            }
+            inventory.craftabilities.put(lowerCategory, craftability);
+        }
+        return craftability;
+    }
+
+    public void stopTracking(EntityRef entity) {
+        trackedInventories.remove(entity);
+    }
+
+    /**
+     * Called when the item in a slot of an inventory is replaced.
+     *
+     * @param event The slot change event
+     * @param entity The entity owning the inventory
+     */
+    @ReceiveEvent(components = InventoryComponent.class)
+    public void onSlotChanged(InventorySlotChangedEvent event, EntityRef entity) {
+        updateSlot(entity, event.getSlot());
+    }
+
+    /**
+     * Called when the size of a stack in an inventory changes.
+     *
+     * @param event The stack size change event
+     * @param entity The entity owning the inventory
+     */
+    @ReceiveEvent(components = InventoryComponent.class)
+    public void onStackSizeChanged(InventorySlotStackSizeChangedEvent event, EntityRef entity) {
+        updateSlot(entity, event.getSlot());
+    }
+
+    /**
+     * Forgets an inventory once it is no longer active.
+     *
+     * @param event The deactivation event
+     * @param entity The entity owning the inventory
+     */
+    @ReceiveEvent(components = InventoryComponent.class)
+    public void onInventoryDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        trackedInventories.remove(entity);
+    }
+
+    /**
+     * Re-reads a single slot of a tracked inventory and re-evaluates the recipes affected by it
+     *
+     * @param entity The entity owning the inventory
+     * @param slot The slot that changed
+     */
+    private void updateSlot(EntityRef entity, int slot) {
+        checkStoreVersion();
+        TrackedInventory inventory = trackedInventories.get(entity);
+        if (inventory == null) {
+            return;
+        }
+        if (slot >= inventory.slotCounts.length) {
+            /* The inventory has grown, so start again from scratch */
+            TrackedInventory rescanned = new TrackedInventory(entity);
+            trackedInventories.put(entity, rescanned);
+            for (Map.Entry<String, Craftability> entry : inventory.craftabilities.entrySet()) {
+                CategoryRecipes recipes = getCategoryRecipes(entry.getKey());
+                for (int i = 0; i < recipes.recipes.length; i++) {
+                    entry.getValue().set(i, rescanned.countCrafts(recipes, i));
+                }
+                rescanned.craftabilities.put(entry.getKey(), entry.getValue());
+            }
+            return;
+        }
+
+        int[] oldIngredients = inventory.slotIngredients[slot];
+        int[] newIngredients = inventory.readSlot(slot);
+        for (Map.Entry<String, Craftability> entry : inventory.craftabilities.entrySet()) {
+            CategoryRecipes recipes = getCategoryRecipes(entry.getKey());
+            reevaluate(inventory, recipes, entry.getValue(), oldIngredients);
+            if (newIngredients != oldIngredients) {
+                reevaluate(inventory, recipes, entry.getValue(), newIngredients);
+            }
+        }
+    }
+
+    /**
+     * Forgets everything that was worked out if recipes have been added to or removed from the store since, as the
+     * recipe lists and ingredients may be out of date
+     */
+    private void checkStoreVersion() {
+        if (storeVersion != recipeStore.getVersion()) {
+            storeVersion = recipeStore.getVersion();
+            categories.clear();
+            trackedInventories.clear();
+        }
+    }
+
+    /**
+     * Re-evaluates all the recipes in a category that use one of the given ingredients
+     *
+     * @param inventory The inventory to evaluate against
+     * @param recipes The recipes of the category
+     * @param craftability The craftability to update
+     * @param ingredients The ingredients that changed
+     */
+    private void reevaluate(TrackedInventory inventory, CategoryRecipes recipes, Craftability craftability,
+                            int[] ingredients) {
+        for (int ingredient : ingredients) {
+            for (int recipe : recipes.getRecipesUsing(ingredient)) {
+                craftability.set(recipe, inventory.countCrafts(recipes, recipe));
+            }
+        }
+    }
+
+    /**
+     * Gets the list recipes in a category along with their ingredient lookup, building it if needed
+     *
+     * @param lowerCategory The lower case category name
+     * @return The recipes in that category
+     */
+    private CategoryRecipes getCategoryRecipes(String lowerCategory) {
+        CategoryRecipes recipes = categories.get(lowerCategory);
+        if (recipes == null) {
+            recipes = new CategoryRecipes(lowerCategory);
+            categories.put(lowerCategory, recipes);
+        }
+        return recipes;
+    }
+
+    /**
+     * The list recipes of a category, with a lookup from ingredient id to the recipes using it.
+     */
+    private final class CategoryRecipes {
+        private final ListRecipe[] recipes;
+        private final List<ListRecipe> recipeView;
+        private final int[][] inputIds;
+        private int[][] recipesByIngredient = new int[0][];
+
+        private CategoryRecipes(String category) {
+            recipes = recipeStore.getRecipes(category, ListRecipe.class).toArray(new ListRecipe[0]);
+            recipeView = Collections.unmodifiableList(Arrays.asList(recipes));
+            inputIds = new int[recipes.length][];
+            for (int i = 0; i < recipes.length; i++) {
+                inputIds[i] = new int[recipes[i].inputItems.length];
+                for (int j = 0; j < inputIds[i].length; j++) {
+                    int ingredient = recipeStore.getIngredientId(recipes[i].inputItems[j]);
+                    inputIds[i][j] = ingredient;
+                    addRecipe(ingredient, i);
+                }
+            }
+        }
+
+        private int[] getRecipesUsing(int ingredient) {
+            if (ingredient < recipesByIngredient.length && recipesByIngredient[ingredient] != null) {
+                return recipesByIngredient[ingredient];
+            }
+            return EMPTY;
+        }
+
+        private void addRecipe(int ingredient, int recipe) {
+            if (ingredient >= recipesByIngredient.length) {
+                recipesByIngredient = Arrays.copyOf(recipesByIngredient, ingredient + 1);
+            }
+            int[] current = recipesByIngredient[ingredient];
+            if (current == null) {
+                recipesByIngredient[ingredient] = new int[]{recipe};
+            } else if (current[current.length - 1] != recipe) {
+                int[] extended = Arrays.copyOf(current, current.length + 1);
+                extended[current.length] = recipe;
+                recipesByIngredient[ingredient] = extended;
+            }
+        }
+    }
+
+    /**
+     * A snapshot of an inventory, reduced to the ingredients in each slot and the total count of each ingredient.
+     */
+    private final class TrackedInventory {
+        private final EntityRef entity;
+        private final int[][] slotIngredients;
+        private final int[] slotCounts;
+        private long[] ingredientCounts = new long[0];
+        private final Map<String, Craftability> craftabilities = new HashMap<>();
+
+        private TrackedInventory(EntityRef entity) {
+            this.entity = entity;
+            int slotCount = InventoryUtils.getSlotCount(entity);
+            slotIngredients = new int[slotCount][];
+            slotCounts = new int[slotCount];
+            for (int slot = 0; slot < slotCount; slot++) {
+                slotIngredients[slot] = EMPTY;
+                readSlot(slot);
+            }
+        }
+
+        /**
+         * Replaces the stored state of a slot with its current contents
+         *
+         * @param slot The slot to read
+         * @return The ingredients now in the slot
+         */
+        private int[] readSlot(int slot) {
+            addCounts(slotIngredients[slot], -slotCounts[slot]);
+            EntityRef item = InventoryUtils.getItemAt(entity, slot);
+            int count = InventoryUtils.getStackCount(item);
+            int[] ingredients = count > 0 ? recipeStore.getIngredientIds(item) : EMPTY;
+            slotIngredients[slot] = ingredients;
+            slotCounts[slot] = count;
+            addCounts(ingredients, count);
+            return ingredients;
+        }
+
+        private void addCounts(int[] ingredients, int count) {
+            for (int ingredient : ingredients) {
+                if (ingredient >= ingredientCounts.length) {
+                    ingredientCounts = Arrays.copyOf(ingredientCounts, Math.max(ingredient + 1,
+                            ingredientCounts.length * 2));
+                }
+                ingredientCounts[ingredient] += count;
+            }
+        }
+
+        /**
+         * Counts how many times a recipe can be crafted from the totals of this inventory
+         *
+         * @param recipes The recipes of the category
+         * @param recipe The index of the recipe
+         * @return The number of crafts
+         */
+        private int countCrafts(CategoryRecipes recipes, int recipe) {
+            int[] ids = recipes.inputIds[recipe];
+            int[] counts = recipes.recipes[recipe].inputCounts;
+            long crafts = Integer.MAX_VALUE;
+            for (int i = 0; i < ids.length; i++) {
+                long available = ids[i] < ingredientCounts.length ? ingredientCounts[ids[i]] : 0;
+                if (counts[i] > 0) {
+                    crafts = Math.min(crafts, available / counts[i]);
+                }
+            }
+            return (int) crafts;
+        }
+    }
+}
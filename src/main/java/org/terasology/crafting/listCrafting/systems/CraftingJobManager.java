@@ -0,0 +1,39 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.listCrafting.systems;
+
+import org.terasology.crafting.listCrafting.components.ListRecipe;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+
+/**
+ * Crafts recipes that take time at a workstation.
+ * <p>
+ * Each workstation works through its jobs in the order they were queued, finishing one craft every
+ * {@link ListRecipe#duration} seconds. Only the authority runs jobs.
+ */
+public interface CraftingJobManager {
+    /**
+     * Queue a recipe to be crafted at a workstation.
+     *
+     * @param workstation The workstation doing the work
+     * @param craftingEntity The entity the ingredients are taken from and the results are given to
+     * @param recipe The recipe to craft
+     * @param times The number of times to craft it, or {@link ListCraftingManager#CRAFT_MAX} for as many as possible.
+     *              Either way it is limited to what the inventory allows and to a full stack of the result.
+     * @return True if the job was queued, false if it can't be crafted even once or the workstation is full
+     */
+    boolean queueJob(EntityRef workstation, EntityRef craftingEntity, ListRecipe recipe, int times);
+
+    /**
+     * @param workstation The workstation to check
+     * @return The number of crafts still to be finished at the workstation
+     */
+    int getQueuedCrafts(EntityRef workstation);
+
+    /**
+     * Drop all jobs waiting at a workstation. Crafts that were already finished are kept.
+     *
+     * @param workstation The workstation to clear
+     */
+    void cancelJobs(EntityRef workstation);
+}
@@ -0,0 +1,216 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.listCrafting.systems;
+
+import org.terasology.crafting.events.CraftResultEvent;
+import org.terasology.crafting.listCrafting.components.ListRecipe;
+import org.terasology.crafting.systems.CraftingMetrics;
+import org.terasology.crafting.systems.CraftingSettings;
+import org.terasology.crafting.systems.RecipeStore;
+import org.terasology.engine.core.Time;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.gestalt.assets.management.AssetManager;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Runs the crafting jobs of all workstations on the authority.
+ * <p>
+ * Only the job at the front of each workstation's queue is scheduled, ordered by the game time its next craft is due.
+ * Each tick pops the due jobs off the schedule, so idle or waiting workstations cost nothing. Finishing crafts stops
+ * once the tick's time budget is used up and the remaining due jobs are picked up on the next tick.
+ * <p>
+ * Jobs are only kept in memory and are lost when the game is closed.
+ */
+@RegisterSystem(RegisterMode.AUTHORITY)
+@Share(CraftingJobManager.class)
+public class CraftingJobManagerImpl extends BaseComponentSystem implements UpdateSubscriberSystem, CraftingJobManager {
+    /**
+     * The number of jobs that may wait at one workstation. Further jobs are rejected.
+     */
+    private static final int MAX_QUEUED_JOBS = 16;
+
+    @In
+    private ListCraftingManager craftingManager;
+    @In
+    private Time time;
+    @In
+    private AssetManager assetManager;
+    @In
+    private CraftingMetrics metrics;
+    @In
+    private RecipeStore recipeStore;
+
+    private final Map<EntityRef, ArrayDeque<Job>> queues = new HashMap<>();
+    private final PriorityQueue<Job> schedule = new PriorityQueue<>(
+            Comparator.comparingLong((Job job) -> job.due).thenComparingLong(job -> job.sequence));
+    private long nextSequence;
+    private long tickBudgetNanos;
+
+    @Override
+    public void initialise() {
+        tickBudgetNanos = CraftingSettings.get(assetManager).craftingTickBudgetMicros * 1000L;
+        metrics.registerGauge("jobs.scheduled", schedule::size);
+        metrics.registerGauge("jobs.workstations", queues::size);
+    }
+
+    @Override
+    public boolean queueJob(EntityRef workstation, EntityRef craftingEntity, ListRecipe recipe, int times) {
+        int maxCrafts = Math.min(craftingManager.getMaxCrafts(craftingEntity, workstation, recipe),
+                craftingManager.getCraftLimit(recipe));
+        if (times == ListCraftingManager.CRAFT_MAX || times > maxCrafts) {
+            times = maxCrafts;
+        }
+        if (times <= 0) {
+            return false;
+        }
+        ArrayDeque<Job> queue = queues.computeIfAbsent(workstation, key -> new ArrayDeque<>());
+        if (queue.size() >= MAX_QUEUED_JOBS) {
+            metrics.increment("jobs.rejected");
+            return false;
+        }
+        String source = recipeStore.getSource(recipe);
+        int index = source == null ? -1 : ListCraftingManagerImpl.indexOf(recipeStore.getRecipesFrom(source), recipe);
+        Job job = new Job(workstation, craftingEntity, recipe, times, index == -1 ? null : source, index);
+        queue.addLast(job);
+        if (queue.size() == 1) {
+            schedule(job, time.getGameTimeInMs());
+        }
+        metrics.increment("jobs.queued");
+        return true;
+    }
+
+    @Override
+    public int getQueuedCrafts(EntityRef workstation) {
+        ArrayDeque<Job> queue = queues.get(workstation);
+        if (queue == null) {
+            return 0;
+        }
+        int crafts = 0;
+        for (Job job : queue) {
+            crafts += job.remaining;
+        }
+        return crafts;
+    }
+
+    @Override
+    public void cancelJobs(EntityRef workstation) {
+        ArrayDeque<Job> queue = queues.remove(workstation);
+        if (queue != null && !queue.isEmpty()) {
+            schedule.remove(queue.peekFirst());
+        }
+    }
+
+    @Override
+    public void update(float delta) {
+        if (schedule.isEmpty()) {
+            return;
+        }
+        long now = time.getGameTimeInMs();
+        long deadline = System.nanoTime() + tickBudgetNanos;
+        int finished = 0;
+        while (!schedule.isEmpty() && schedule.peek().due <= now) {
+            if (finished > 0 && System.nanoTime() >= deadline) {
+                metrics.increment("jobs.deferredTicks");
+                break;
+            }
+            Job job = schedule.poll();
+            finish(job, now);
+            finished++;
+        }
+    }
+
+    /**
+     * Finish one craft of a due job, then schedule the next craft at its workstation.
+     * The next craft starts when this one was finished rather than when it was due, so jobs held back by a stall
+     * don't all catch up in a single tick.
+     *
+     * @param job The job at the front of its workstation's queue
+     * @param now The current game time in ms
+     */
+    private void finish(Job job, long now) {
+        ArrayDeque<Job> queue = queues.get(job.workstation);
+        if (!job.workstation.exists()) {
+            queues.remove(job.workstation);
+            for (Job waiting : queue) {
+                sendResult(waiting, false);
+            }
+            return;
+        }
+
+        boolean success = false;
+        if (job.craftingEntity.exists()) {
+            success = craftingManager.craftRecipe(job.craftingEntity, job.workstation, job.recipe, 1, true) != null;
+            metrics.increment(success ? "jobs.crafts" : "jobs.failedCrafts");
+            sendResult(job, success);
+        }
+
+        job.remaining--;
+        if (success && job.remaining > 0) {
+            schedule(job, now);
+            return;
+        }
+        /* Only this job is dropped, the others waiting at the workstation move up */
+        queue.pollFirst();
+        if (queue.isEmpty()) {
+            queues.remove(job.workstation);
+        } else {
+            schedule(queue.peekFirst(), now);
+        }
+    }
+
+    /**
+     * Tell the crafter of a job how a craft went, if it still exists and the recipe can be named in an event.
+     */
+    private void sendResult(Job job, boolean success) {
+        if (job.source != null && job.craftingEntity.exists()) {
+            job.craftingEntity.send(new CraftResultEvent(job.source, job.recipeIndex, success));
+        }
+    }
+
+    /**
+     * Schedule the next craft of a job, one recipe duration after the workstation became free.
+     *
+     * @param job The job at the front of its workstation's queue
+     * @param startTime The game time in ms the workstation started working on this craft
+     */
+    private void schedule(Job job, long startTime) {
+        job.due = startTime + Math.max(0L, (long) (job.recipe.duration * 1000));
+        job.sequence = nextSequence++;
+        schedule.add(job);
+    }
+
+    /**
+     * A number of crafts of one recipe waiting at a workstation.
+     */
+    private static final class Job {
+        private final EntityRef workstation;
+        private final EntityRef craftingEntity;
+        private final ListRecipe recipe;
+        private final String source;
+        private final int recipeIndex;
+        private int remaining;
+        private long due;
+        private long sequence;
+
+        private Job(EntityRef workstation, EntityRef craftingEntity, ListRecipe recipe, int remaining,
+                    String source, int recipeIndex) {
+            this.workstation = workstation;
+            this.craftingEntity = craftingEntity;
+            this.recipe = recipe;
+            this.remaining = remaining;
+            this.source = source;
+            this.recipeIndex = recipeIndex;
+        }
+    }
+}
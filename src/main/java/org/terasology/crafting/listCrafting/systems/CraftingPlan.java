@@ -0,0 +1,54 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.listCrafting.systems;
+
+import org.terasology.crafting.listCrafting.components.ListRecipe;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An ordered list of crafts that makes an item along with all the intermediate items it needs, as worked out by the
+ * {@link CraftingPlanner}. Each step only uses items that are in the inventory or made by an earlier step.
+ */
+public final class CraftingPlan {
+    private final List<ListRecipe> recipes;
+    private final int[] times;
+
+    CraftingPlan(List<ListRecipe> recipes, int[] times) {
+        this.recipes = Collections.unmodifiableList(recipes);
+        this.times = times;
+    }
+
+    /**
+     * @return The number of steps
+     */
+    public int size() {
+        return recipes.size();
+    }
+
+    /**
+     * @param step The index of the step
+     * @return The recipe to craft in that step
+     */
+    public ListRecipe getRecipe(int step) {
+        return recipes.get(step);
+    }
+
+    /**
+     * @param step The index of the step
+     * @return The number of times to craft the recipe in that step
+     */
+    public int getTimes(int step) {
+        return times[step];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < recipes.size(); i++) {
+            result.append(i + 1).append(". ").append(times[i]).append("x ").append(recipes.get(i)).append('\n');
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,31 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.listCrafting.systems;
+
+import org.terasology.engine.entitySystem.entity.EntityRef;
+
+/**
+ * Works out how to craft an item whose ingredients may need crafting themselves.
+ */
+public interface CraftingPlanner {
+    /**
+     * Plan the crafts needed to make a number of an item from the inventory of an entity.
+     * Items already in the inventory are used before any are crafted.
+     *
+     * @param craftingEntity The entity doing the crafting
+     * @param output The ingredient name of the item to make
+     * @param quantity The number of items wanted
+     * @return The plan, which is empty if the inventory already holds enough, or null if the items can't be made
+     */
+    CraftingPlan plan(EntityRef craftingEntity, String output, int quantity);
+
+    /**
+     * Craft every step of a plan through the {@link ListCraftingManager}, stopping at the first step that fails.
+     * Must be called on the authority.
+     *
+     * @param craftingEntity The entity doing the crafting
+     * @param plan The plan to carry out
+     * @return True if every step was crafted
+     */
+    boolean execute(EntityRef craftingEntity, CraftingPlan plan);
+}
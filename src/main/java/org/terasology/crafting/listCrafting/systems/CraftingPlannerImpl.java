@@ -0,0 +1,431 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.listCrafting.systems;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.crafting.listCrafting.components.ListRecipe;
+import org.terasology.crafting.systems.CraftingMetrics;
+import org.terasology.crafting.systems.IngredientIndex;
+import org.terasology.crafting.systems.RecipeStore;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.logic.console.commandSystem.annotations.Command;
+import org.terasology.engine.logic.console.commandSystem.annotations.CommandParam;
+import org.terasology.engine.logic.console.commandSystem.annotations.Sender;
+import org.terasology.engine.logic.permission.PermissionManager;
+import org.terasology.engine.network.ClientComponent;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.module.inventory.components.InventoryComponent;
+import org.terasology.module.inventory.systems.InventoryUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plans crafts over a {@link RecipeGraph} compiled from the recipe store, recompiling it whenever the store changes.
+ * <p>
+ * For every (ingredient, quantity) pair asked for, the crafts needed to make it from raw materials alone are worked out
+ * once and kept until the store changes. Planning first tries that sub-plan against the inventory, which settles most
+ * requests with a single check of the raw materials. Only if the inventory lacks some raw material does the planner
+ * search through the other recipes, using intermediate items from the inventory where it can. The search only uses
+ * recipes of a lower level for the inputs of a recipe, so cycles in the recipes can never make it loop, and it gives
+ * up after a fixed number of recipes so planning stays fast on very large graphs.
+ */
+@Share(CraftingPlanner.class)
+@RegisterSystem(RegisterMode.ALWAYS)
+public class CraftingPlannerImpl extends BaseComponentSystem implements CraftingPlanner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CraftingPlannerImpl.class);
+    /**
+     * The longest chain of intermediate crafts a plan may contain.
+     */
+    private static final int MAX_DEPTH = 64;
+    /**
+     * The number of recipes a single plan may try before giving up.
+     */
+    private static final int MAX_ATTEMPTS = 10000;
+    /**
+     * The number of sub-plans kept between plans.
+     */
+    private static final int MAX_SUB_PLANS = 4096;
+
+    @In
+    private RecipeStore recipeStore;
+    @In
+    private ListCraftingManager craftingManager;
+    @In
+    private CraftingMetrics metrics;
+
+    private RecipeGraph graph;
+    private Map<Long, SubPlan> subPlans = new LinkedHashMap<Long, SubPlan>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, SubPlan> eldest) {
+            return size() > MAX_SUB_PLANS;
+        }
+    };
+
+    @Override
+    public void initialise() {
+        metrics.registerGauge("planner.subPlans", subPlans::size);
+    }
+
+    @Override
+    public CraftingPlan plan(EntityRef craftingEntity, String output, int quantity) {
+        if (quantity <= 0 || !craftingEntity.hasComponent(InventoryComponent.class)) {
+            return null;
+        }
+        long start = metrics.startTimer();
+        getGraph();
+        Search search = new Search(craftingEntity);
+        CraftingPlan plan = null;
+        if (search.resolve(recipeStore.getIngredientId(output), quantity, Integer.MAX_VALUE, 0)) {
+            plan = search.toPlan();
+        }
+        metrics.stopTimer("planner.plan", start);
+        metrics.increment(plan != null ? "planner.plans" : "planner.failures");
+        return plan;
+    }
+
+    @Override
+    public boolean execute(EntityRef craftingEntity, CraftingPlan plan) {
+        for (int i = 0; i < plan.size(); i++) {
+            if (craftingManager.craftRecipe(craftingEntity, plan.getRecipe(i), plan.getTimes(i), true) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Crafts an item along with any intermediate items it needs.
+     * The plan may use any list recipe whatever its workstation or duration, so this is a cheat.
+     *
+     * @param item The ingredient name of the item to make
+     * @param count The number of items to make
+     * @param client The client entity of the player
+     * @return The crafts that were made
+     */
+    @Command(shortDescription = "Crafts an item along with its ingredients",
+            helpText = "Crafts any intermediate items that aren't in your inventory before crafting the item itself.",
+            runOnServer = true, requiredPermission = PermissionManager.CHEAT_PERMISSION)
+    public String craftWithIngredients(@CommandParam("item") String item,
+                                       @CommandParam(value = "count", required = false) Integer count,
+                                       @Sender EntityRef client) {
+        EntityRef character = client.getComponent(ClientComponent.class).character;
+        CraftingPlan plan = plan(character, item, count == null ? 1 : count);
+        if (plan == null) {
+            return "Can't make " + item + " from the items in your inventory";
+        }
+        if (!execute(character, plan)) {
+            return "Crafting stopped part way through:\n" + plan;
+        }
+        return plan.size() == 0 ? "You already have enough " + item : "Crafted:\n" + plan;
+    }
+
+    /**
+     * Gets the compiled recipes, compiling them again if the store has changed
+     *
+     * @return The recipe graph
+     */
+    private RecipeGraph getGraph() {
+        if (graph == null || !graph.isCurrent(recipeStore)) {
+            long start = metrics.startTimer();
+            graph = new RecipeGraph(recipeStore);
+            subPlans.clear();
+            metrics.stopTimer("planner.compile", start);
+            if (graph.getCyclicRecipeCount() > 0) {
+                LOGGER.debug("{} of {} list recipes need items that are only made through a cycle of recipes",
+                        graph.getCyclicRecipeCount(), graph.size());
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Gets the crafts needed to make a number of an ingredient from raw materials alone, working it out if needed.
+     *
+     * @param ingredient The id of the ingredient
+     * @param quantity The number of items needed
+     * @param depth The number of crafts the sub-plan is nested in
+     * @return The sub-plan or null if it is nested too deeply
+     */
+    private SubPlan getSubPlan(int ingredient, long quantity, int depth) {
+        if (quantity > Integer.MAX_VALUE) {
+            return null;
+        }
+        long key = (long) ingredient << 32 | quantity;
+        SubPlan subPlan = subPlans.get(key);
+        if (subPlan == null && depth < MAX_DEPTH) {
+            subPlan = new SubPlan();
+            if (!subPlan.expand(ingredient, quantity, depth)) {
+                return null;
+            }
+            subPlans.put(key, subPlan);
+        }
+        return subPlan;
+    }
+
+    /**
+     * The crafts making an ingredient from raw materials alone, always using the lowest level recipe.
+     */
+    private final class SubPlan {
+        private int[] rawIds = new int[0];
+        private long[] rawCounts = new long[0];
+        private int[] recipes = new int[0];
+        private int[] times = new int[0];
+        private long[] surplus = new long[0];
+
+        /**
+         * Works out the crafts for a number of an ingredient
+         *
+         * @return False if the crafts are nested too deeply
+         */
+        private boolean expand(int ingredient, long quantity, int depth) {
+            int[] producers = graph.getProducers(ingredient);
+            if (producers.length == 0) {
+                addRaw(ingredient, quantity);
+                return true;
+            }
+            int recipe = producers[0];
+            ListRecipe listRecipe = graph.getRecipe(recipe);
+            long recipeTimes = (quantity + listRecipe.outputCount - 1) / listRecipe.outputCount;
+            if (recipeTimes > Integer.MAX_VALUE) {
+                return false;
+            }
+            int[] inputIds = graph.getInputIds(recipe);
+            for (int i = 0; i < inputIds.length; i++) {
+                int[] inputProducers = graph.getProducers(inputIds[i]);
+                if (inputProducers.length == 0 || graph.getLevel(inputProducers[0]) >= graph.getLevel(recipe)) {
+                    /* Only made through a cycle of recipes, so taken as it is */
+                    addRaw(inputIds[i], listRecipe.inputCounts[i] * recipeTimes);
+                    continue;
+                }
+                SubPlan input = getSubPlan(inputIds[i], listRecipe.inputCounts[i] * recipeTimes, depth + 1);
+                if (input == null) {
+                    return false;
+                }
+                append(input);
+            }
+            addStep(recipe, (int) recipeTimes, recipeTimes * listRecipe.outputCount - quantity);
+            return true;
+        }
+
+        private void append(SubPlan other) {
+            for (int i = 0; i < other.rawIds.length; i++) {
+                addRaw(other.rawIds[i], other.rawCounts[i]);
+            }
+            for (int i = 0; i < other.recipes.length; i++) {
+                addStep(other.recipes[i], other.times[i], other.surplus[i]);
+            }
+        }
+
+        private void addRaw(int ingredient, long count) {
+            for (int i = 0; i < rawIds.length; i++) {
+                if (rawIds[i] == ingredient) {
+                    rawCounts[i] += count;
+                    return;
+                }
+            }
+            rawIds = Arrays.copyOf(rawIds, rawIds.length + 1);
+            rawCounts = Arrays.copyOf(rawCounts, rawCounts.length + 1);
+            rawIds[rawIds.length - 1] = ingredient;
+            rawCounts[rawCounts.length - 1] = count;
+        }
+
+        private void addStep(int recipe, int recipeTimes, long recipeSurplus) {
+            int size = recipes.length;
+            recipes = Arrays.copyOf(recipes, size + 1);
+            times = Arrays.copyOf(times, size + 1);
+            surplus = Arrays.copyOf(surplus, size + 1);
+            recipes[size] = recipe;
+            times[size] = recipeTimes;
+            surplus[size] = recipeSurplus;
+        }
+    }
+
+    /**
+     * The state of a single plan: the items still available and the crafts chosen so far. Every change is logged so a
+     * failed branch can be undone.
+     */
+    private final class Search {
+        /* The slots of the inventory, followed by the leftovers of the crafts planned so far */
+        private int[][] supplyIds;
+        private long[] supplyCounts;
+        private int supplySize;
+        private int[] takenFrom = new int[16];
+        private long[] takenCounts = new long[16];
+        private int takenSize;
+        private final List<ListRecipe> steps = new ArrayList<>();
+        private int[] stepTimes = new int[16];
+        private int attempts;
+
+        private Search(EntityRef entity) {
+            int slotCount = InventoryUtils.getSlotCount(entity);
+            supplyIds = new int[slotCount + 16][];
+            supplyCounts = new long[slotCount + 16];
+            for (int slot = 0; slot < slotCount; slot++) {
+                EntityRef item = InventoryUtils.getItemAt(entity, slot);
+                int count = InventoryUtils.getStackCount(item);
+                if (count > 0) {
+                    addSupply(recipeStore.getIngredientIds(item), count);
+                }
+            }
+        }
+
+        /**
+         * Plans for a number of an ingredient, taking what the supply holds and crafting the rest
+         *
+         * @param ingredient The id of the ingredient
+         * @param quantity The number of items needed
+         * @param bound Only recipes below this level may be used
+         * @param depth The number of crafts this is nested in
+         * @return True if the items could be planned for, otherwise nothing is changed
+         */
+        private boolean resolve(int ingredient, long quantity, int bound, int depth) {
+            int takenMark = takenSize;
+            int supplyMark = supplySize;
+            int stepMark = steps.size();
+            long missing = quantity - take(ingredient, quantity);
+            if (missing == 0) {
+                return true;
+            }
+            if (depth < MAX_DEPTH && applySubPlan(ingredient, missing, bound, depth)) {
+                return true;
+            }
+            for (int recipe : graph.getProducers(ingredient)) {
+                if (graph.getLevel(recipe) >= bound || depth >= MAX_DEPTH || ++attempts > MAX_ATTEMPTS) {
+                    break;
+                }
+                if (craft(recipe, missing, depth)) {
+                    return true;
+                }
+            }
+            rollback(takenMark, supplyMark, stepMark);
+            return false;
+        }
+
+        /**
+         * Plans enough crafts of a recipe for a number of its output, resolving all of its inputs first
+         *
+         * @return True if it could be planned, otherwise nothing is changed
+         */
+        private boolean craft(int recipe, long quantity, int depth) {
+            ListRecipe listRecipe = graph.getRecipe(recipe);
+            long times = (quantity + listRecipe.outputCount - 1) / listRecipe.outputCount;
+            if (times > Integer.MAX_VALUE) {
+                return false;
+            }
+            int takenMark = takenSize;
+            int supplyMark = supplySize;
+            int stepMark = steps.size();
+            int[] inputIds = graph.getInputIds(recipe);
+            for (int i = 0; i < inputIds.length; i++) {
+                if (!resolve(inputIds[i], listRecipe.inputCounts[i] * times, graph.getLevel(recipe), depth + 1)) {
+                    rollback(takenMark, supplyMark, stepMark);
+                    return false;
+                }
+            }
+            addStep(recipe, (int) times, times * listRecipe.outputCount - quantity);
+            return true;
+        }
+
+        /**
+         * Uses the kept sub-plan for an ingredient if the supply holds all of its raw materials
+         *
+         * @return True if it was used, otherwise nothing is changed
+         */
+        private boolean applySubPlan(int ingredient, long quantity, int bound, int depth) {
+            int[] producers = graph.getProducers(ingredient);
+            if (producers.length == 0 || graph.getLevel(producers[0]) >= bound) {
+                return false;
+            }
+            SubPlan subPlan = getSubPlan(ingredient, quantity, depth);
+            if (subPlan == null) {
+                return false;
+            }
+            int takenMark = takenSize;
+            for (int i = 0; i < subPlan.rawIds.length; i++) {
+                if (take(subPlan.rawIds[i], subPlan.rawCounts[i]) < subPlan.rawCounts[i]) {
+                    rollback(takenMark, supplySize, steps.size());
+                    return false;
+                }
+            }
+            for (int i = 0; i < subPlan.recipes.length; i++) {
+                addStep(subPlan.recipes[i], subPlan.times[i], subPlan.surplus[i]);
+            }
+            return true;
+        }
+
+        /**
+         * Takes up to a number of items satisfying an ingredient from the supply
+         *
+         * @return The number of items taken
+         */
+        private long take(int ingredient, long quantity) {
+            long taken = 0;
+            for (int i = 0; i < supplySize && taken < quantity; i++) {
+                if (supplyCounts[i] > 0 && IngredientIndex.satisfies(supplyIds[i], ingredient)) {
+                    long amount = Math.min(supplyCounts[i], quantity - taken);
+                    supplyCounts[i] -= amount;
+                    taken += amount;
+                    if (takenSize == takenFrom.length) {
+                        takenFrom = Arrays.copyOf(takenFrom, takenSize * 2);
+                        takenCounts = Arrays.copyOf(takenCounts, takenSize * 2);
+                    }
+                    takenFrom[takenSize] = i;
+                    takenCounts[takenSize] = amount;
+                    takenSize++;
+                }
+            }
+            return taken;
+        }
+
+        /**
+         * Adds a craft to the plan, making its leftover output available to later crafts
+         */
+        private void addStep(int recipe, int times, long surplus) {
+            if (steps.size() == stepTimes.length) {
+                stepTimes = Arrays.copyOf(stepTimes, stepTimes.length * 2);
+            }
+            stepTimes[steps.size()] = times;
+            steps.add(graph.getRecipe(recipe));
+            if (surplus > 0) {
+                addSupply(graph.getOutputIds(recipe), surplus);
+            }
+        }
+
+        private void addSupply(int[] ingredients, long count) {
+            if (supplySize == supplyIds.length) {
+                supplyIds = Arrays.copyOf(supplyIds, supplySize * 2);
+                supplyCounts = Arrays.copyOf(supplyCounts, supplySize * 2);
+            }
+            supplyIds[supplySize] = ingredients;
+            supplyCounts[supplySize] = count;
+            supplySize++;
+        }
+
+        /**
+         * Undoes every change made since the given marks
+         */
+        private void rollback(int takenMark, int supplyMark, int stepMark) {
+            while (takenSize > takenMark) {
+                takenSize--;
+                supplyCounts[takenFrom[takenSize]] += takenCounts[takenSize];
+            }
+            supplySize = supplyMark;
+            while (steps.size() > stepMark) {
+                steps.remove(steps.size() - 1);
+            }
+        }
+
+        private CraftingPlan toPlan() {
+            return new CraftingPlan(new ArrayList<>(steps), Arrays.copyOf(stepTimes, steps.size()));
+        }
+    }
+}
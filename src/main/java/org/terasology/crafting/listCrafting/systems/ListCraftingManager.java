@@ -7,5 +7,89 @@ import org.terasology.engine.entitySystem.entity.EntityRef;
 
 
 public interface ListCraftingManager {
+    /**
+     * Pass as the number of times to craft a recipe as many times as the inventory allows, up to a full stack of the
+     * result. Recipes without inputs are crafted a full stack of the result at a time.
+     */
+    int CRAFT_MAX = -1;
+    /**
+     * The category of the recipes that can be crafted without a workstation.
+     */
+    String IN_HAND_CATEGORY = "InHand";
+
     EntityRef[] craftRecipe(EntityRef craftingEntity, ListRecipe recipe, boolean giveToCrafter);
+
+    /**
+     * Crafts a recipe several times in one go.
+     * The inventory is only searched once and the results are handed out as full stacks.
+     *
+     * @param craftingEntity The entity doing the crafting.
+     * @param recipe The recipe to be crafted
+     * @param times The number of times to craft it, or {@link #CRAFT_MAX} for as many as possible
+     * @param giveToCrafter True to put the results in the crafter's inventory, false to return them
+     * @return The newly crafted stacks, an empty array if they were given to the crafter or null if unsuccessful
+     */
+    EntityRef[] craftRecipe(EntityRef craftingEntity, ListRecipe recipe, int times, boolean giveToCrafter);
+
+    /**
+     * Counts how many times a recipe could be crafted right now.
+     *
+     * @param craftingEntity The entity doing the crafting.
+     * @param recipe The recipe to be crafted
+     * @return The number of times it could be crafted
+     */
+    int getMaxCrafts(EntityRef craftingEntity, ListRecipe recipe);
+
+    /**
+     * Attempts to craft a recipe at a workstation, also taking ingredients from the inventories linked to it.
+     *
+     * @param craftingEntity The entity doing the crafting
+     * @param workstation The workstation being used, or {@link EntityRef#NULL} to only use the crafter's inventory
+     * @param recipe The recipe to be crafted
+     * @param times The number of times to craft it, or {@link #CRAFT_MAX} for as many as possible
+     * @param giveToCrafter True to put the results in the crafter's inventory, false to return them
+     * @return The newly crafted stacks or null if it was unsuccessful
+     */
+    EntityRef[] craftRecipe(EntityRef craftingEntity, EntityRef workstation, ListRecipe recipe, int times,
+                            boolean giveToCrafter);
+
+    /**
+     * Get the number of times a recipe can be crafted at a workstation, including the inventories linked to it.
+     *
+     * @param craftingEntity The entity doing the crafting
+     * @param workstation The workstation being used, or {@link EntityRef#NULL} to only use the crafter's inventory
+     * @param recipe The recipe to count
+     * @return The number of times it can be crafted
+     */
+    int getMaxCrafts(EntityRef craftingEntity, EntityRef workstation, ListRecipe recipe);
+
+    /**
+     * Gets the most times a recipe may be crafted in one go, which is what {@link #CRAFT_MAX} stands for at most.
+     *
+     * @param recipe The recipe to be crafted
+     * @return Enough crafts to make a single full stack of the result, at least 1
+     */
+    int getCraftLimit(ListRecipe recipe);
+
+    /**
+     * Asks the authority to craft a recipe. This is what clients should use, as only the authority may change
+     * inventories. The request is handled on the next tick, along with any other requests made for the same entity.
+     * Recipes that weren't loaded from a prefab can't be named in a request, so they are never crafted this way.
+     *
+     * @param craftingEntity The entity doing the crafting, which must be owned by this client
+     * @param recipe The recipe to be crafted
+     * @param times The number of times to craft it, or {@link #CRAFT_MAX} for as many as possible
+     */
+    void requestCraft(EntityRef craftingEntity, ListRecipe recipe, int times);
+
+    /**
+     * Asks the authority to craft a recipe at a workstation. Recipes with a duration are queued as a job at the
+     * workstation and finished one at a time, others are crafted as with {@link #requestCraft(EntityRef, ListRecipe, int)}.
+     *
+     * @param craftingEntity The entity doing the crafting, which must be owned by this client
+     * @param workstation The workstation to craft at, or {@link EntityRef#NULL} to craft by hand
+     * @param recipe The recipe to be crafted
+     * @param times The number of times to craft it, or {@link #CRAFT_MAX} for as many as possible
+     */
+    void requestCraft(EntityRef craftingEntity, EntityRef workstation, ListRecipe recipe, int times);
 }
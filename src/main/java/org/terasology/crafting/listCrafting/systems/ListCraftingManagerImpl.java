@@ -2,34 +2,36 @@
 // SPDX-License-Identifier: Apache-2.0
 package org.terasology.crafting.listCrafting.systems;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.crafting.components.Recipe;
+import org.terasology.crafting.events.CraftRequestEvent;
 import org.terasology.crafting.events.OnRecipeCrafted;
 import org.terasology.crafting.listCrafting.components.ListRecipe;
 import org.terasology.crafting.systems.BaseCraftingManager;
+import org.terasology.crafting.systems.CraftingMetrics;
 import org.terasology.crafting.systems.RecipeStore;
-import org.terasology.engine.entitySystem.entity.EntityManager;
+import org.terasology.crafting.systems.SlotAllocation;
 import org.terasology.engine.entitySystem.entity.EntityRef;
 import org.terasology.engine.entitySystem.systems.RegisterSystem;
 import org.terasology.engine.registry.In;
 import org.terasology.engine.registry.Share;
-import org.terasology.engine.world.block.BlockManager;
-import org.terasology.engine.world.block.family.BlockFamily;
-import org.terasology.engine.world.block.items.BlockItemFactory;
 import org.terasology.module.inventory.systems.InventoryManager;
 
+import java.util.List;
+
 
 @Share(ListCraftingManager.class)
 @RegisterSystem
 public class ListCraftingManagerImpl extends BaseCraftingManager implements ListCraftingManager {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ListCraftingManagerImpl.class);
 
     @In
     private InventoryManager inventoryManager;
     @In
     private RecipeStore recipeStore;
     @In
-    private EntityManager entityManager;
-    @In
-    private BlockManager blockManager;
-    private BlockItemFactory blockItemFactory;
+    private CraftingMetrics metrics;
 
 
     /**
@@ -41,56 +43,130 @@ public class ListCraftingManagerImpl extends BaseCraftingManager implements List
      * @return The newly crafted item or null if it was unsuccessful
      */
     public EntityRef[] craftRecipe(EntityRef craftingEntity, ListRecipe recipe, boolean giveToCrafter) {
+        return craftRecipe(craftingEntity, recipe, 1, giveToCrafter);
+    }
 
-        int[] slots = getSlots(craftingEntity, recipe);
+    /**
+     * Attempts to craft the given recipe a number of times. The slots for all the crafts are found in one pass and
+     * each slot is emptied with a single removal. The results are created as stacks that are as large as possible.
+     *
+     * @param craftingEntity The entity doing the crafting.
+     * @param recipe The recipe to be crafted
+     * @param times The number of times to craft it, or {@link #CRAFT_MAX} for as many as possible
+     * @param giveToCrafter True to put the results in the crafter's inventory, false to return them
+     * @return The newly crafted stacks or null if it was unsuccessful
+     */
+    public EntityRef[] craftRecipe(EntityRef craftingEntity, ListRecipe recipe, int times, boolean giveToCrafter) {
+        return craftRecipe(craftingEntity, EntityRef.NULL, recipe, times, giveToCrafter);
+    }
+
+    @Override
+    public EntityRef[] craftRecipe(EntityRef craftingEntity, EntityRef workstation, ListRecipe recipe, int times,
+                                   boolean giveToCrafter) {
+        if (times <= 0 && times != CRAFT_MAX) {
+            return null;
+        }
+        metrics.increment("craft.attempts");
+        metrics.increment("craft.attempts", recipe.output);
+
+        /* Recipes without inputs aren't bounded by the inventory, so they are only ever crafted a stack at a time */
+        int limit = getCraftLimit(recipe);
+        if (!hasInputs(recipe) && (times == CRAFT_MAX || times > limit)) {
+            times = limit;
+        }
+        SlotAllocation slots = getSlots(craftingEntity, workstation, recipe, times, limit);
+        if (slots == null || (long) recipe.outputCount * slots.getTimes() > Integer.MAX_VALUE) {
+            metrics.increment("craft.failures");
+            metrics.increment("craft.failures", recipe.output);
+            return null;
+        }
 
         EntityRef[] removedItems = new EntityRef[recipe.inputCounts.length];
-        if (slots != null) {
-            for (int i = 0; i < slots.length; i++) {
-                removedItems[i] = inventoryManager.getItemInSlot(craftingEntity, slots[i]).copy();
-                EntityRef removedItem = inventoryManager.removeItem(craftingEntity, craftingEntity, slots[i], true,
-                        recipe.inputCounts[i]);
-                if (removedItem == null) {
-                    return new EntityRef[0];
-                }
+        EntityRef[] inventories = new EntityRef[slots.size()];
+        int[] slotNumbers = new int[slots.size()];
+        int[] counts = new int[slots.size()];
+        for (int i = 0; i < slots.size(); i++) {
+            inventories[i] = slots.getInventory(i);
+            slotNumbers[i] = slots.getSlot(i);
+            counts[i] = slots.getCount(i);
+            if (removedItems[slots.getInput(i)] == null) {
+                removedItems[slots.getInput(i)] = inventoryManager.getItemInSlot(inventories[i], slotNumbers[i]).copy();
             }
-            if (giveToCrafter) {
-                for (int i = 0; i < recipe.outputCount; i++) {
-                    EntityRef resultItem = createResultFromName(recipe.output);
-                    inventoryManager.giveItem(craftingEntity, craftingEntity, resultItem);
-                    resultItem.send(new OnRecipeCrafted(removedItems));
-                }
-                return new EntityRef[0];
-            } else {
-                EntityRef[] crafted = new EntityRef[recipe.outputCount];
-                for (int i = 0; i < recipe.outputCount; i++) {
-                    crafted[i] = createResultFromName(recipe.output);
-                    crafted[i].send(new OnRecipeCrafted(removedItems));
-                }
-                return crafted;
+        }
+        if (!removeInputs(craftingEntity, inventories, slotNumbers, counts)) {
+            metrics.increment("craft.failures");
+            metrics.increment("craft.failures", recipe.output);
+            return null;
+        }
+
+        List<EntityRef> crafted = createResults(recipe.output, recipe.outputCount * slots.getTimes());
+        for (EntityRef resultItem : crafted) {
+            resultItem.send(new OnRecipeCrafted(removedItems));
+        }
+        if (giveToCrafter) {
+            for (EntityRef resultItem : crafted) {
+                inventoryManager.giveItem(craftingEntity, craftingEntity, resultItem);
             }
+            return new EntityRef[0];
         }
-        return null;
+        return crafted.toArray(new EntityRef[0]);
     }
 
     /**
-     * Detects if the result of a recipe is a Block or an Item and creates the correct entity.
+     * Check if a recipe takes any items at all
      *
-     * @param name The name of the result
-     * @return The new entity or an air block if creation was not successful.
+     * @param recipe The recipe to check
+     * @return False if the recipe can be crafted from nothing, so the inventory doesn't bound how often it is crafted
      */
-    private EntityRef createResultFromName(String name) {
-        if (entityManager.getPrefabManager().exists(name)) {
-            return entityManager.create(name);
-        } else {
-            BlockFamily block = blockManager.getBlockFamily(name);
-            if (block != null) {
-                if (blockItemFactory == null) {
-                    blockItemFactory = new BlockItemFactory(entityManager);
+    static boolean hasInputs(ListRecipe recipe) {
+        if (recipe.inputCounts != null) {
+            for (int count : recipe.inputCounts) {
+                if (count > 0) {
+                    return true;
                 }
-                return blockItemFactory.newInstance(block);
             }
         }
-        return EntityRef.NULL;
+        return false;
+    }
+
+    public int getMaxCrafts(EntityRef craftingEntity, ListRecipe recipe) {
+        return countCrafts(craftingEntity, recipe);
+    }
+
+    @Override
+    public int getMaxCrafts(EntityRef craftingEntity, EntityRef workstation, ListRecipe recipe) {
+        return countCrafts(craftingEntity, workstation, recipe);
+    }
+
+    public void requestCraft(EntityRef craftingEntity, ListRecipe recipe, int times) {
+        requestCraft(craftingEntity, EntityRef.NULL, recipe, times);
+    }
+
+    @Override
+    public void requestCraft(EntityRef craftingEntity, EntityRef workstation, ListRecipe recipe, int times) {
+        String source = recipeStore.getSource(recipe);
+        int index = source == null ? -1 : indexOf(recipeStore.getRecipesFrom(source), recipe);
+        if (index == -1) {
+            LOGGER.warn("Not requesting a craft of {}, it wasn't loaded from a prefab so the authority can't find it",
+                    recipe.output);
+            return;
+        }
+        craftingEntity.send(new CraftRequestEvent(source, index, times, workstation));
+    }
+
+    /**
+     * Finds a recipe in a list by identity
+     *
+     * @param recipes The list to search
+     * @param recipe The recipe to look for
+     * @return The index of the recipe or -1 if it isn't in the list
+     */
+    static int indexOf(List<Recipe> recipes, ListRecipe recipe) {
+        for (int i = 0; i < recipes.size(); i++) {
+            if (recipes.get(i) == recipe) {
+                return i;
+            }
+        }
+        return -1;
     }
 }
@@ -0,0 +1,389 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.listCrafting.systems;
+
+import org.terasology.crafting.listCrafting.components.ListRecipe;
+import org.terasology.crafting.systems.RecipeStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * All the list recipes of a store, compiled into a graph from each ingredient to the recipes producing it.
+ * <p>
+ * Every recipe is given a level: recipes whose inputs are all raw materials have level 1, and every other recipe is
+ * one level above the highest level needed to make any of its inputs. A planner that only uses recipes of a lower
+ * level for the inputs of a recipe can never loop. Items that can only be made through a cycle of recipes count as raw
+ * materials for the recipes using them, since the inventory may hold them. Recipes without any output are left out.
+ */
+final class RecipeGraph {
+    private static final int[] EMPTY = new int[0];
+
+    private final int version;
+    private final ListRecipe[] recipes;
+    private final int[][] inputIds;
+    private final int[][] outputIds;
+    private final int[] levels;
+    private int[][] producers;
+    private int cyclicRecipes;
+
+    /**
+     * Compiles the list recipes of a store
+     *
+     * @param recipeStore The store to compile
+     */
+    RecipeGraph(RecipeStore recipeStore) {
+        version = recipeStore.getVersion();
+        recipes = recipeStore.getRecipes(ListRecipe.class).toArray(new ListRecipe[0]);
+        inputIds = new int[recipes.length][];
+        outputIds = new int[recipes.length][];
+        levels = new int[recipes.length];
+
+        IdLists producerLists = new IdLists();
+        IdLists users = new IdLists();
+        for (int i = 0; i < recipes.length; i++) {
+            outputIds[i] = getOutputIds(recipeStore, recipes[i].output);
+            if (recipes[i].outputCount > 0) {
+                for (int id : outputIds[i]) {
+                    producerLists.add(id, i);
+                }
+            }
+            String[] inputs = recipes[i].inputItems == null ? new String[0] : recipes[i].inputItems;
+            inputIds[i] = new int[inputs.length];
+            for (int j = 0; j < inputs.length; j++) {
+                inputIds[i][j] = recipeStore.getIngredientId(inputs[j]);
+                users.add(inputIds[i][j], i);
+            }
+        }
+        producers = producerLists.toArrays();
+        assignLevels(users.toArrays());
+        sortProducers();
+    }
+
+    /**
+     * @param recipeStore The store to check
+     * @return True if the graph was compiled from the current state of the store
+     */
+    boolean isCurrent(RecipeStore recipeStore) {
+        return recipeStore.getVersion() == version;
+    }
+
+    /**
+     * @return The number of recipes that need items which can only be made through a cycle of recipes
+     */
+    int getCyclicRecipeCount() {
+        return cyclicRecipes;
+    }
+
+    /**
+     * @return The number of recipes compiled
+     */
+    int size() {
+        return recipes.length;
+    }
+
+    ListRecipe getRecipe(int recipe) {
+        return recipes[recipe];
+    }
+
+    int[] getInputIds(int recipe) {
+        return inputIds[recipe];
+    }
+
+    int[] getOutputIds(int recipe) {
+        return outputIds[recipe];
+    }
+
+    int getLevel(int recipe) {
+        return levels[recipe];
+    }
+
+    /**
+     * @param ingredient The id of an ingredient
+     * @return The recipes that produce the ingredient and can be crafted from raw materials, lowest level first
+     */
+    int[] getProducers(int ingredient) {
+        return ingredient >= 0 && ingredient < producers.length && producers[ingredient] != null
+                ? producers[ingredient] : EMPTY;
+    }
+
+    /**
+     * Works out the level of every recipe, starting from the ingredients no recipe produces.
+     * <p>
+     * Ingredients that can only be made through a cycle of recipes (an ingot crafted from a block that is itself
+     * crafted from ingots) are never reached from the raw materials. Once everything reachable has a level, each such
+     * cycle is treated as raw material too, as the inventory may well hold those items. Cycles are taken in the order
+     * they depend on each other, so a cycle that can be crafted from an earlier one keeps the levels that gives it.
+     *
+     * @param users The recipes using each ingredient, once per time it is listed as an input
+     */
+    private void assignLevels(int[][] users) {
+        LevelPass pass = new LevelPass(users);
+        for (int i = 0; i < recipes.length; i++) {
+            if (inputIds[i].length == 0) {
+                pass.recipeReady(i);
+            }
+        }
+        for (int id = 0; id < users.length; id++) {
+            if (users[id] != null && getProducers(id).length == 0) {
+                pass.seed(id);
+            }
+        }
+        pass.run();
+        for (int i = 0; i < recipes.length; i++) {
+            if (pass.missingInputs[i] > 0) {
+                cyclicRecipes++;
+            }
+        }
+
+        List<int[]> cycles = findCycles(pass);
+        for (int i = cycles.size() - 1; i >= 0; i--) {
+            for (int id : cycles.get(i)) {
+                pass.seed(id);
+            }
+            pass.run();
+        }
+    }
+
+    /**
+     * Finds the cycles among the ingredients that haven't been given a level, following the recipes that haven't been
+     * given one either. These are the strongly connected components of those ingredients, found with Tarjan's
+     * algorithm without recursion.
+     *
+     * @param pass The levels given so far
+     * @return The ingredients of every cycle, each cycle coming before the cycles it can be crafted from
+     */
+    private List<int[]> findCycles(LevelPass pass) {
+        int count = pass.ingredientLevels.length;
+        int[] order = new int[count];
+        int[] low = new int[count];
+        Arrays.fill(order, -1);
+        boolean[] onStack = new boolean[count];
+        boolean[] selfLoop = new boolean[count];
+        int[] stack = new int[count];
+        int stackSize = 0;
+        Step[] path = new Step[count];
+        int visited = 0;
+        List<int[]> cycles = new ArrayList<>();
+
+        for (int root = 0; root < count; root++) {
+            if (order[root] != -1 || pass.ingredientLevels[root] != -1) {
+                continue;
+            }
+            int depth = 0;
+            path[0] = new Step(root);
+            order[root] = low[root] = visited++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            while (depth >= 0) {
+                int id = path[depth].id;
+                int next = path[depth].nextOutput(pass);
+                if (next == id) {
+                    selfLoop[id] = true;
+                } else if (next >= 0 && order[next] == -1) {
+                    path[++depth] = new Step(next);
+                    order[next] = low[next] = visited++;
+                    stack[stackSize++] = next;
+                    onStack[next] = true;
+                } else if (next >= 0) {
+                    if (onStack[next]) {
+                        low[id] = Math.min(low[id], order[next]);
+                    }
+                } else {
+                    if (low[id] == order[id]) {
+                        int start = stackSize - 1;
+                        while (stack[start] != id) {
+                            start--;
+                        }
+                        int[] component = Arrays.copyOfRange(stack, start, stackSize);
+                        stackSize = start;
+                        for (int member : component) {
+                            onStack[member] = false;
+                        }
+                        if (component.length > 1 || selfLoop[id]) {
+                            cycles.add(component);
+                        }
+                    }
+                    depth--;
+                    if (depth >= 0) {
+                        low[path[depth].id] = Math.min(low[path[depth].id], low[id]);
+                    }
+                }
+            }
+        }
+        return cycles;
+    }
+
+    /**
+     * Drops the producers that were never given a level and orders the rest by level
+     */
+    private void sortProducers() {
+        for (int id = 0; id < producers.length; id++) {
+            if (producers[id] == null) {
+                continue;
+            }
+            int[] viable = Arrays.stream(producers[id]).filter(recipe -> levels[recipe] > 0)
+                    .boxed().sorted(Comparator.comparingInt(recipe -> levels[recipe]))
+                    .mapToInt(Integer::intValue).toArray();
+            producers[id] = viable.length == 0 ? null : viable;
+        }
+    }
+
+    /**
+     * Gets every ingredient the output of a recipe satisfies: its full name, its short name and its other names
+     */
+    private static int[] getOutputIds(RecipeStore recipeStore, String output) {
+        if (output == null || output.isEmpty()) {
+            return EMPTY;
+        }
+        List<String> names = new ArrayList<>();
+        names.add(output);
+        int separator = output.indexOf(':');
+        if (separator >= 0) {
+            names.add(output.substring(separator + 1));
+        }
+        String[] otherNames = recipeStore.getIngredientNames(output);
+        if (otherNames != null) {
+            names.addAll(Arrays.asList(otherNames));
+        }
+        return names.stream().mapToInt(recipeStore::getIngredientId).distinct().sorted().toArray();
+    }
+
+    /**
+     * Gives levels to ingredients and recipes in order, a recipe getting its level once all its inputs have one.
+     */
+    private final class LevelPass {
+        private final int[][] users;
+        private final int[] missingInputs = new int[recipes.length];
+        private final int[] ingredientLevels;
+        private final int[] queue;
+        private int head;
+        private int tail;
+
+        private LevelPass(int[][] users) {
+            this.users = users;
+            ingredientLevels = new int[Math.max(users.length, producers.length)];
+            Arrays.fill(ingredientLevels, -1);
+            queue = new int[ingredientLevels.length];
+            for (int i = 0; i < recipes.length; i++) {
+                missingInputs[i] = inputIds[i].length;
+            }
+        }
+
+        private int[] getUsers(int id) {
+            return id < users.length && users[id] != null ? users[id] : EMPTY;
+        }
+
+        /**
+         * Treats an ingredient as a raw material, unless it already has a level
+         */
+        private void seed(int id) {
+            if (ingredientLevels[id] == -1) {
+                ingredientLevels[id] = 0;
+                queue[tail++] = id;
+            }
+        }
+
+        /**
+         * Gives a recipe whose inputs all have a level its own level, and queues the outputs that had none yet
+         */
+        private void recipeReady(int recipe) {
+            int level = 0;
+            for (int input : inputIds[recipe]) {
+                level = Math.max(level, ingredientLevels[input]);
+            }
+            levels[recipe] = level + 1;
+            for (int id : outputIds[recipe]) {
+                if (ingredientLevels[id] == -1) {
+                    ingredientLevels[id] = levels[recipe];
+                    queue[tail++] = id;
+                }
+            }
+        }
+
+        /**
+         * Goes through the queued ingredients until no more recipes become ready
+         */
+        private void run() {
+            while (head < tail) {
+                for (int recipe : getUsers(queue[head++])) {
+                    if (--missingInputs[recipe] == 0) {
+                        recipeReady(recipe);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * An ingredient being visited while finding cycles, along with how far through its outgoing links it is.
+     */
+    private final class Step {
+        private final int id;
+        private int user;
+        private int output;
+
+        private Step(int id) {
+            this.id = id;
+        }
+
+        /**
+         * Steps to the next ingredient without a level made from this one by a recipe without a level
+         *
+         * @return The ingredient, or -1 if there are no more
+         */
+        private int nextOutput(LevelPass pass) {
+            int[] users = pass.getUsers(id);
+            while (user < users.length) {
+                int recipe = users[user];
+                int[] outputs = pass.missingInputs[recipe] > 0 && recipes[recipe].outputCount > 0
+                        ? outputIds[recipe] : EMPTY;
+                while (output < outputs.length) {
+                    int next = outputs[output++];
+                    if (pass.ingredientLevels[next] == -1) {
+                        return next;
+                    }
+                }
+                user++;
+                output = 0;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * A list of recipe indices for each ingredient id, built up one entry at a time.
+     */
+    private static final class IdLists {
+        private int[][] lists = new int[0][];
+        private int[] counts = new int[0];
+
+        private void add(int id, int recipe) {
+            if (id >= lists.length) {
+                lists = Arrays.copyOf(lists, Math.max(id + 1, lists.length * 2));
+                counts = Arrays.copyOf(counts, lists.length);
+            }
+            if (lists[id] == null) {
+                lists[id] = new int[2];
+            } else if (counts[id] == lists[id].length) {
+                lists[id] = Arrays.copyOf(lists[id], counts[id] * 2);
+            }
+            lists[id][counts[id]++] = recipe;
+        }
+
+        /**
+         * @return The lists trimmed to their length, null for ids without any entries
+         */
+        private int[][] toArrays() {
+            int[][] result = new int[lists.length][];
+            for (int id = 0; id < lists.length; id++) {
+                if (lists[id] != null) {
+                    result[id] = Arrays.copyOf(lists[id], counts[id]);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.patternCrafting.components;
+
+import org.terasology.reflection.MappedContainer;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This is the data structure that the user will input into in the prefab.
+ * <p>
+ * Each string of the pattern is a row of the grid. Every character stands for the ingredient it is mapped to in the
+ * key, characters that aren't in the key are empty cells.
+ */
+@MappedContainer
+public class PatternRecipeContainer {
+    public List<String> pattern;
+    public Map<String, String> key;
+    public int outputCount = 1;
+    public String output;
+    /**
+     * Whether the pattern also matches when flipped left to right.
+     */
+    public boolean mirrored = true;
+}
@@ -0,0 +1,45 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.patternCrafting.components;
+
+import com.google.common.collect.Lists;
+import org.terasology.crafting.PatternRecipe;
+import org.terasology.crafting.components.Recipe;
+import org.terasology.crafting.components.RecipeComponent;
+import org.terasology.gestalt.entitysystem.component.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Component that is used to enter the PatternRecipe's
+ */
+public class PatternRecipesComponent implements Component<PatternRecipesComponent>, RecipeComponent {
+
+    public List<String> categories = Collections.singletonList("Pattern");
+    public SortedMap<String, PatternRecipeContainer> recipes = new TreeMap<>();
+
+    public Recipe[] getRecipes() {
+        Recipe[] builtRecipes = new Recipe[recipes.size()];
+        int i = 0;
+        for (Map.Entry<String, PatternRecipeContainer> entry : recipes.entrySet()) {
+            builtRecipes[i] = new PatternRecipe(entry.getValue(), entry.getKey());
+            i++;
+        }
+        return builtRecipes;
+    }
+
+    public String[] getCategories() {
+        return categories.toArray(new String[0]);
+    }
+
+    @Override
+    public void copyFrom(PatternRecipesComponent other) {
+        this.categories = Lists.newArrayList(other.categories);
+        recipes.clear();
+        recipes.putAll(other.recipes);
+    }
+}
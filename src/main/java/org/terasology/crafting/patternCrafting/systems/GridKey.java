@@ -0,0 +1,83 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.patternCrafting.systems;
+
+import java.util.Arrays;
+
+/**
+ * The canonical form of a grid: the ingredient id of every cell of its trimmed rectangle, row by row.
+ */
+final class GridKey {
+    /**
+     * The ingredient id of a cell without an item.
+     */
+    static final int EMPTY_CELL = -1;
+
+    private final int width;
+    private final int[] cells;
+    private final int hash;
+
+    GridKey(int width, int[] cells) {
+        this.width = width;
+        this.cells = cells;
+        this.hash = 31 * width + Arrays.hashCode(cells);
+    }
+
+    /**
+     * Cuts the empty rows and columns off the edges of a grid
+     *
+     * @return The key of the remaining cells or null if all of them are empty
+     */
+    static GridKey trimmed(int width, int height, int[] cells) {
+        int minX = width;
+        int minY = height;
+        int maxX = -1;
+        int maxY = -1;
+        for (int i = 0; i < width * height; i++) {
+            if (cells[i] != EMPTY_CELL) {
+                minX = Math.min(minX, i % width);
+                minY = Math.min(minY, i / width);
+                maxX = Math.max(maxX, i % width);
+                maxY = Math.max(maxY, i / width);
+            }
+        }
+        if (maxX == -1) {
+            return null;
+        }
+        int trimmedWidth = maxX - minX + 1;
+        int[] trimmedCells = new int[trimmedWidth * (maxY - minY + 1)];
+        for (int y = minY; y <= maxY; y++) {
+            System.arraycopy(cells, y * width + minX, trimmedCells, (y - minY) * trimmedWidth, trimmedWidth);
+        }
+        return new GridKey(trimmedWidth, trimmedCells);
+    }
+
+    /**
+     * @return The key of the grid flipped left to right
+     */
+    GridKey mirrored() {
+        int[] flipped = new int[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            int x = i % width;
+            flipped[i - x + width - 1 - x] = cells[i];
+        }
+        return new GridKey(width, flipped);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof GridKey)) {
+            return false;
+        }
+        GridKey other = (GridKey) o;
+        return width == other.width && Arrays.equals(cells, other.cells);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
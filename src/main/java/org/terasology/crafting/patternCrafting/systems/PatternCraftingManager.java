@@ -0,0 +1,32 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.patternCrafting.systems;
+
+import org.terasology.crafting.PatternRecipe;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+
+/**
+ * Crafts pattern recipes from a grid of items.
+ * The grid is an inventory whose slots are the cells of the grid, row by row.
+ */
+public interface PatternCraftingManager {
+    /**
+     * Finds the recipe matching the items laid out in a grid.
+     *
+     * @param gridEntity The entity owning the grid inventory
+     * @param gridWidth The number of columns of the grid
+     * @return The matching recipe or null if there is none
+     */
+    PatternRecipe findRecipe(EntityRef gridEntity, int gridWidth);
+
+    /**
+     * Crafts the recipe matching the items in a grid, taking one item from every cell the pattern uses.
+     *
+     * @param craftingEntity The entity doing the crafting
+     * @param gridEntity The entity owning the grid inventory
+     * @param gridWidth The number of columns of the grid
+     * @param giveToCrafter True to put the results in the crafter's inventory, false to return them
+     * @return The newly crafted stacks, an empty array if they were given to the crafter or null if unsuccessful
+     */
+    EntityRef[] craftRecipe(EntityRef craftingEntity, EntityRef gridEntity, int gridWidth, boolean giveToCrafter);
+}
@@ -0,0 +1,265 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.patternCrafting.systems;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.crafting.PatternRecipe;
+import org.terasology.crafting.events.OnRecipeCrafted;
+import org.terasology.crafting.systems.BaseCraftingManager;
+import org.terasology.crafting.systems.CraftingMetrics;
+import org.terasology.crafting.systems.RecipeStore;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.module.inventory.systems.InventoryManager;
+import org.terasology.module.inventory.systems.InventoryUtils;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Matches grids against pattern recipes through a hash index.
+ * <p>
+ * Both the patterns and the grids are reduced to a canonical key: the smallest rectangle holding all the filled cells,
+ * with the ingredient id of every cell. Mirrored patterns are indexed under their flipped key as well, so matching a
+ * grid is a single lookup whatever the number of pattern recipes. Items are read as the pattern ingredients they
+ * satisfy, and only in the rare case that an item satisfies several of them does the grid need more than one lookup.
+ */
+@Share(PatternCraftingManager.class)
+@RegisterSystem
+public class PatternCraftingManagerImpl extends BaseCraftingManager implements PatternCraftingManager {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PatternCraftingManagerImpl.class);
+    /**
+     * The most ways a grid is read before giving up, when its items satisfy several pattern ingredients each.
+     */
+    private static final int MAX_READINGS = 64;
+
+    @In
+    private InventoryManager inventoryManager;
+    @In
+    private RecipeStore recipeStore;
+    @In
+    private CraftingMetrics metrics;
+
+    private Map<GridKey, PatternRecipe> patterns = new HashMap<>();
+    private BitSet patternIngredients = new BitSet();
+    private int storeVersion = -1;
+
+    @Override
+    public void initialise() {
+        metrics.registerGauge("pattern.keys", patterns::size);
+    }
+
+    @Override
+    public PatternRecipe findRecipe(EntityRef gridEntity, int gridWidth) {
+        Match match = match(gridEntity, gridWidth);
+        return match == null ? null : match.recipe;
+    }
+
+    @Override
+    public EntityRef[] craftRecipe(EntityRef craftingEntity, EntityRef gridEntity, int gridWidth,
+                                   boolean giveToCrafter) {
+        metrics.increment("pattern.attempts");
+        Match match = match(gridEntity, gridWidth);
+        if (match == null) {
+            metrics.increment("pattern.failures");
+            return null;
+        }
+
+        EntityRef[] removedItems = new EntityRef[match.slots.length];
+        EntityRef[] inventories = new EntityRef[match.slots.length];
+        int[] counts = new int[match.slots.length];
+        for (int i = 0; i < match.slots.length; i++) {
+            removedItems[i] = inventoryManager.getItemInSlot(gridEntity, match.slots[i]).copy();
+            inventories[i] = gridEntity;
+            counts[i] = 1;
+        }
+        if (!removeInputs(craftingEntity, inventories, match.slots, counts)) {
+            metrics.increment("pattern.failures");
+            return null;
+        }
+
+        List<EntityRef> crafted = createResults(match.recipe.output, match.recipe.outputCount);
+        for (EntityRef resultItem : crafted) {
+            resultItem.send(new OnRecipeCrafted(removedItems));
+        }
+        if (giveToCrafter) {
+            for (EntityRef resultItem : crafted) {
+                inventoryManager.giveItem(craftingEntity, craftingEntity, resultItem);
+            }
+            return new EntityRef[0];
+        }
+        return crafted.toArray(new EntityRef[0]);
+    }
+
+    /**
+     * Reads a grid and looks up the recipe it matches
+     *
+     * @param gridEntity The entity owning the grid inventory
+     * @param gridWidth The number of columns of the grid
+     * @return The recipe along with the filled slots, or null if nothing matches
+     */
+    private Match match(EntityRef gridEntity, int gridWidth) {
+        if (gridWidth <= 0) {
+            return null;
+        }
+        checkStoreVersion();
+        int gridHeight = InventoryUtils.getSlotCount(gridEntity) / gridWidth;
+        int[][] candidates = new int[gridWidth * gridHeight][];
+        int minX = gridWidth;
+        int minY = gridHeight;
+        int maxX = -1;
+        int maxY = -1;
+        int filled = 0;
+        for (int slot = 0; slot < candidates.length; slot++) {
+            EntityRef item = InventoryUtils.getItemAt(gridEntity, slot);
+            if (InventoryUtils.getStackCount(item) <= 0) {
+                continue;
+            }
+            candidates[slot] = getPatternIngredients(recipeStore.getIngredientIds(item));
+            if (candidates[slot].length == 0) {
+                return null;
+            }
+            int x = slot % gridWidth;
+            int y = slot / gridWidth;
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            filled++;
+        }
+        if (filled == 0) {
+            return null;
+        }
+
+        int width = maxX - minX + 1;
+        int height = maxY - minY + 1;
+        int[][] cellCandidates = new int[width * height][];
+        int[] slots = new int[filled];
+        filled = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int slot = (minY + y) * gridWidth + minX + x;
+                cellCandidates[y * width + x] = candidates[slot];
+                if (candidates[slot] != null) {
+                    slots[filled++] = slot;
+                }
+            }
+        }
+
+        /* Try every way of reading the items as pattern ingredients, the first ingredient of each cell first */
+        int[] choices = new int[cellCandidates.length];
+        int[] cells = new int[cellCandidates.length];
+        for (int reading = 0; reading < MAX_READINGS; reading++) {
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] = cellCandidates[i] == null ? GridKey.EMPTY_CELL : cellCandidates[i][choices[i]];
+            }
+            PatternRecipe recipe = patterns.get(new GridKey(width, cells));
+            if (recipe != null) {
+                return new Match(recipe, slots);
+            }
+            if (!nextReading(choices, cellCandidates)) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Moves on to the next way of reading a grid, counting through the choices of each cell like an odometer
+     *
+     * @return False if every reading has been tried
+     */
+    private static boolean nextReading(int[] choices, int[][] cellCandidates) {
+        for (int i = 0; i < choices.length; i++) {
+            if (cellCandidates[i] != null && choices[i] + 1 < cellCandidates[i].length) {
+                choices[i]++;
+                return true;
+            }
+            choices[i] = 0;
+        }
+        return false;
+    }
+
+    /**
+     * Keeps only the ingredients that appear in a pattern
+     *
+     * @param ingredients The ingredients an item satisfies
+     * @return The ones used by pattern recipes
+     */
+    private int[] getPatternIngredients(int[] ingredients) {
+        int count = 0;
+        for (int ingredient : ingredients) {
+            if (patternIngredients.get(ingredient)) {
+                count++;
+            }
+        }
+        if (count == ingredients.length) {
+            return ingredients;
+        }
+        int[] result = new int[count];
+        count = 0;
+        for (int ingredient : ingredients) {
+            if (patternIngredients.get(ingredient)) {
+                result[count++] = ingredient;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Rebuilds the index if recipes have been added to or removed from the store since it was built
+     */
+    private void checkStoreVersion() {
+        if (storeVersion == recipeStore.getVersion()) {
+            return;
+        }
+        storeVersion = recipeStore.getVersion();
+        patterns.clear();
+        patternIngredients.clear();
+        for (PatternRecipe recipe : recipeStore.getRecipes(PatternRecipe.class)) {
+            int[] cells = new int[recipe.cells.length];
+            for (int i = 0; i < cells.length; i++) {
+                if (recipe.cells[i] == null) {
+                    cells[i] = GridKey.EMPTY_CELL;
+                } else {
+                    cells[i] = recipeStore.getIngredientId(recipe.cells[i]);
+                    patternIngredients.set(cells[i]);
+                }
+            }
+            GridKey key = GridKey.trimmed(recipe.width, recipe.height, cells);
+            if (key == null) {
+                continue;
+            }
+            addPattern(key, recipe);
+            if (recipe.mirrored) {
+                addPattern(key.mirrored(), recipe);
+            }
+        }
+    }
+
+    private void addPattern(GridKey key, PatternRecipe recipe) {
+        PatternRecipe existing = patterns.putIfAbsent(key, recipe);
+        if (existing != null && existing != recipe) {
+            LOGGER.warn("Pattern recipes {} and {} have the same shape, only the first can be crafted", existing,
+                    recipe);
+        }
+    }
+
+    /**
+     * A recipe matched by a grid, with the slots the items are taken from.
+     */
+    private static final class Match {
+        private final PatternRecipe recipe;
+        private final int[] slots;
+
+        private Match(PatternRecipe recipe, int[] slots) {
+            this.recipe = recipe;
+            this.slots = slots;
+        }
+    }
+}
@@ -6,15 +6,22 @@ package org.terasology.crafting.systems;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.crafting.listCrafting.components.ListRecipe;
+import org.terasology.crafting.listCrafting.systems.ListCraftingManager;
+import org.terasology.engine.entitySystem.entity.EntityManager;
 import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.prefab.Prefab;
 import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
 import org.terasology.engine.logic.inventory.ItemComponent;
 import org.terasology.engine.registry.In;
-import org.terasology.engine.world.block.items.BlockItemComponent;
+import org.terasology.engine.world.block.BlockManager;
+import org.terasology.engine.world.block.family.BlockFamily;
+import org.terasology.engine.world.block.items.BlockItemFactory;
 import org.terasology.module.inventory.components.InventoryComponent;
-import org.terasology.module.inventory.systems.InventoryUtils;
+import org.terasology.module.inventory.systems.InventoryManager;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 
 
@@ -24,154 +31,280 @@ import java.util.Map;
 public abstract class BaseCraftingManager extends BaseComponentSystem {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BaseCraftingManager.class);
+    /**
+     * The stack size of block items, which BlockItemFactory leaves at the ItemComponent default.
+     */
+    private static final int BLOCK_STACK_SIZE = 99;
 
     @In
     private RecipeStore recipeStore;
+    @In
+    private CraftingMetrics metrics;
+    @In
+    private InventoryIndex inventoryIndex;
+    @In
+    private EntityManager entityManager;
+    @In
+    private BlockManager blockManager;
+    @In
+    private InventoryManager inventoryManager;
+    private BlockItemFactory blockItemFactory;
+
+    private Map<ListRecipe, int[]> recipeInputIds = new IdentityHashMap<>();
+    private int storeVersion = -1;
 
     /**
-     * Checks if the item is the same one being looked for. Will check if the item matches the full name, short name or
-     * any alternative ingredient names.
+     * Gets the ingredient ids of all the inputs of a recipe.
+     * These are resolved the first time a recipe is used and reused until the recipe store changes, so recipes that
+     * have been removed from the store aren't kept.
      *
-     * @param item The item to check
-     * @param name The item being looked for
-     * @return True if item is expectedItem, false otherwise
+     * @param recipe The recipe to get the inputs of
+     * @return The ingredient id of each input, in the same order as the inputs
      */
-    private boolean itemMatchesIngredientName(EntityRef item, String name) {
-        return matchesExactly(item, name)
-                || matchesShortName(item, name)
-                || matchesOtherName(item, name);
+    protected int[] getInputIds(ListRecipe recipe) {
+        if (storeVersion != recipeStore.getVersion()) {
+            storeVersion = recipeStore.getVersion();
+            recipeInputIds.clear();
+        }
+        int[] ids = recipeInputIds.get(recipe);
+        if (ids == null) {
+            ids = new int[recipe.inputItems.length];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = recipeStore.getIngredientId(recipe.inputItems[i]);
+            }
+            recipeInputIds.put(recipe, ids);
+        }
+        return ids;
     }
 
     /**
-     * Checks if the full name (module:item#fragment) is equal to the name
+     * Gets all the slots the items could be in.
+     * The inventory is only walked once, and an input may be taken from several partial stacks.
      *
-     * @param item The item to check
-     * @param name The name to check against
-     * @return True if they match, false otherwise.
+     * @param entity The entity to look in
+     * @param recipe The recipe to be looking for
+     * @return The slots and counts to take the inputs from. If all inputs could not be found, null is returned
      */
-    private boolean matchesExactly(EntityRef item, String name) {
-        /* Check if it's a block */
-        if (item.hasComponent(BlockItemComponent.class)) {
-            if (name.equalsIgnoreCase(item.getComponent(BlockItemComponent.class).blockFamily.getURI().toString())) {
-                return true;
-            }
-            /* Check the prefab name */
-        } else if (name.equalsIgnoreCase(item.getParentPrefab().getName())) {
-            return true;
+    protected SlotAllocation getSlots(EntityRef entity, ListRecipe recipe) {
+        return getSlots(entity, recipe, 1);
+    }
+
+    /**
+     * Gets all the slots the items for a number of crafts could be in.
+     *
+     * @param entity The entity to look in
+     * @param recipe The recipe to be looking for
+     * @param times The number of crafts, or {@link ListCraftingManager#CRAFT_MAX} for as many as possible
+     * @return The slots and counts to take the inputs from. If not all inputs could be found, null is returned
+     */
+    protected SlotAllocation getSlots(EntityRef entity, ListRecipe recipe, int times) {
+        return getSlots(entity, recipe, times, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Gets all the slots the items for a number of crafts could be in.
+     *
+     * @param entity The entity to look in
+     * @param recipe The recipe to be looking for
+     * @param times The number of crafts, or {@link ListCraftingManager#CRAFT_MAX} for as many as possible
+     * @param limit The most crafts {@link ListCraftingManager#CRAFT_MAX} may stand for
+     * @return The slots and counts to take the inputs from. If not all inputs could be found, null is returned
+     */
+    protected SlotAllocation getSlots(EntityRef entity, ListRecipe recipe, int times, int limit) {
+        if (!entity.hasComponent(InventoryComponent.class)) {
+            return null;
         }
-        return false;
+        long start = metrics.startTimer();
+        InventoryHistogram histogram = new InventoryHistogram(entity, getInputIds(recipe), recipeStore);
+        SlotAllocation allocation = allocate(histogram, recipe, times, limit);
+        metrics.stopTimer("craft.getSlots", start);
+        return allocation;
     }
 
     /**
-     * Checks if the short name (item part of module:item#fragment) is equal to the name
+     * Gets all the slots the items for a number of crafts could be in, also looking in the inventories linked to a
+     * workstation. The inventory of the crafting entity is used up first.
+     * <p>
+     * The combined counts of the linked inventories are kept by the {@link InventoryIndex}, so only the linked
+     * inventories actually holding one of the inputs are walked.
      *
-     * @param item The item to check
-     * @param name The name to check against
-     * @return True if they match, false otherwise.
+     * @param entity The entity doing the crafting
+     * @param workstation The workstation being used, or {@link EntityRef#NULL} if there is none
+     * @param recipe The recipe to be looking for
+     * @param times The number of crafts, or {@link ListCraftingManager#CRAFT_MAX} for as many as possible
+     * @return The slots and counts to take the inputs from. If not all inputs could be found, null is returned
      */
-    private boolean matchesShortName(EntityRef item, String name) {
-        /* Check the short form of a block */
-        if (item.hasComponent(BlockItemComponent.class)) {
-            String blockName =
-                    item.getComponent(BlockItemComponent.class).blockFamily.getURI().getBlockFamilyDefinitionUrn().getResourceName().toString();
-            if (name.equalsIgnoreCase(blockName)) {
-                return true;
-            }
-            /* Check short form of prefab */
-        } else {
-            String prefabName = item.getParentPrefab().getUrn().getResourceName().toString();
-            if (name.equalsIgnoreCase(prefabName)) {
-                return true;
+    protected SlotAllocation getSlots(EntityRef entity, EntityRef workstation, ListRecipe recipe, int times) {
+        return getSlots(entity, workstation, recipe, times, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Gets all the slots the items for a number of crafts could be in, also looking in the inventories linked to a
+     * workstation.
+     *
+     * @param entity The entity doing the crafting
+     * @param workstation The workstation being used, or {@link EntityRef#NULL} if there is none
+     * @param recipe The recipe to be looking for
+     * @param times The number of crafts, or {@link ListCraftingManager#CRAFT_MAX} for as many as possible
+     * @param limit The most crafts {@link ListCraftingManager#CRAFT_MAX} may stand for
+     * @return The slots and counts to take the inputs from. If not all inputs could be found, null is returned
+     */
+    protected SlotAllocation getSlots(EntityRef entity, EntityRef workstation, ListRecipe recipe, int times,
+                                      int limit) {
+        LinkedInventories linked = workstation == null || !workstation.exists() ? null
+                : inventoryIndex.getLinkedInventories(workstation);
+        if (linked == null || linked.size() == 0 || !entity.hasComponent(InventoryComponent.class)) {
+            return getSlots(entity, recipe, times, limit);
+        }
+
+        long start = metrics.startTimer();
+        int[] inputIds = getInputIds(recipe);
+        List<EntityRef> inventories = new ArrayList<>();
+        inventories.add(entity);
+        for (EntityRef inventory : linked.getInventoriesWith(inputIds)) {
+            if (!inventory.equals(entity)) {
+                inventories.add(inventory);
             }
         }
-        return false;
+        InventoryHistogram histogram = new InventoryHistogram(inventories, inputIds, recipeStore);
+        SlotAllocation allocation = allocate(histogram, recipe, times, limit);
+        metrics.stopTimer("craft.getLinkedSlots", start);
+        return allocation;
+    }
+
+    private static SlotAllocation allocate(InventoryHistogram histogram, ListRecipe recipe, int times, int limit) {
+        if (times == ListCraftingManager.CRAFT_MAX) {
+            return histogram.allocateMax(recipe.inputCounts, limit);
+        }
+        return histogram.allocate(recipe.inputCounts, times);
     }
 
     /**
-     * Checks if the item has another ingredient name that matches the name
+     * Gets the most times a recipe may be crafted in one go: enough to make a single full stack of its result.
      *
-     * @param item The item to check
-     * @param name The name to check against
-     * @return True if they match, false otherwise.
+     * @param recipe The recipe to be crafted
+     * @return The number of crafts, at least 1
      */
-    private boolean matchesOtherName(EntityRef item, String name) {
-        if (item.hasComponent(BlockItemComponent.class)) {
-            BlockItemComponent component = item.getComponent(BlockItemComponent.class);
-            for (String category : component.blockFamily.getCategories()) {
-                if (name.equalsIgnoreCase(category)) {
-                    return true;
-                }
-            }
+    public int getCraftLimit(ListRecipe recipe) {
+        return Math.max(1, getMaxStackSize(recipe.output) / Math.max(1, recipe.outputCount));
+    }
 
-        } else {
-            String[] otherNames = recipeStore.getIngredientNames(item.getParentPrefab().getName());
-            if (otherNames != null) {
-                for (String otherName : otherNames) {
-                    if (name.equalsIgnoreCase(otherName)) {
-                        return true;
-                    }
-                }
-            }
+    /**
+     * Gets the number of items a single stack of an item can hold, without creating the item.
+     *
+     * @param name The name of the item or block
+     * @return The stack size
+     */
+    protected int getMaxStackSize(String name) {
+        Prefab prefab = entityManager.getPrefabManager().getPrefab(name);
+        if (prefab == null) {
+            return BLOCK_STACK_SIZE;
         }
-        return false;
+        ItemComponent item = prefab.getComponent(ItemComponent.class);
+        return item != null && !item.stackId.isEmpty() && item.maxStackSize > 1 ? item.maxStackSize : 1;
     }
 
     /**
-     * Gets all the slots the items could be in.
+     * Counts how many times a recipe could be crafted from the inventory of an entity.
      *
      * @param entity The entity to look in
-     * @param recipe The recipe to be looking for
-     * @return The list of slots the inputs are in. If all inputs could not be found, null is returned
+     * @param recipe The recipe to count
+     * @return The number of times the recipe can be crafted
      */
-    protected int[] getSlots(EntityRef entity, ListRecipe recipe) {
-        if (!entity.hasComponent(InventoryComponent.class)) {
-            return null;
-        }
+    protected int countCrafts(EntityRef entity, ListRecipe recipe) {
+        SlotAllocation slots = getSlots(entity, recipe, ListCraftingManager.CRAFT_MAX);
+        return slots == null ? 0 : slots.getTimes();
+    }
 
-        InventoryComponent inventory = entity.getComponent(InventoryComponent.class);
+    /**
+     * Counts how many times a recipe could be crafted at a workstation, including the inventories linked to it.
+     *
+     * @param entity The entity doing the crafting
+     * @param workstation The workstation being used, or {@link EntityRef#NULL} if there is none
+     * @param recipe The recipe to count
+     * @return The number of times the recipe can be crafted
+     */
+    protected int countCrafts(EntityRef entity, EntityRef workstation, ListRecipe recipe) {
+        SlotAllocation slots = getSlots(entity, workstation, recipe, ListCraftingManager.CRAFT_MAX);
+        return slots == null ? 0 : slots.getTimes();
+    }
 
-        int[] slots = new int[recipe.inputItems.length];
-        Map<Integer, Integer> slotStacks = new HashMap<>();
-        for (int i = 0; i < recipe.inputItems.length; i++) {
-            int slot = findInInventory(entity, recipe.inputItems[i], recipe.inputCounts[i], 0);
-            ItemComponent item = inventory.itemSlots.get(slot).getComponent(ItemComponent.class);
-            if (slotStacks.containsKey(slot)) {
-                while (slotStacks.containsKey(slot) && slotStacks.get(slot) == 0) {
-                    slot = findInInventory(entity, recipe.inputItems[i], recipe.inputCounts[i], slot + 1);
+    /**
+     * Takes the inputs of a craft out of their slots, all or nothing.
+     * The items are only destroyed once every removal has succeeded. If one fails, the items already taken are given
+     * back to the inventories they came from.
+     *
+     * @param instigator The entity doing the crafting
+     * @param inventories The inventory of each removal
+     * @param slots The slot of each removal
+     * @param counts The number of items of each removal
+     * @return True if every item was taken, false if none were
+     */
+    protected boolean removeInputs(EntityRef instigator, EntityRef[] inventories, int[] slots, int[] counts) {
+        EntityRef[] removed = new EntityRef[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            removed[i] = inventoryManager.removeItem(inventories[i], instigator, slots[i], false, counts[i]);
+            if (removed[i] == null) {
+                for (int j = i - 1; j >= 0; j--) {
+                    if (!inventoryManager.giveItem(inventories[j], instigator, removed[j])) {
+                        LOGGER.warn("Could not give back {} taken from slot {} of {}", removed[j], slots[j],
+                                inventories[j]);
+                    }
                 }
-                slotStacks.put(slot, (int) item.stackCount);
-            } else {
-                slotStacks.put(slot, (int) item.stackCount);
+                return false;
             }
+        }
+        for (EntityRef item : removed) {
+            item.destroy();
+        }
+        return true;
+    }
 
-            slotStacks.put(slot, slotStacks.get(slot) - 1);
-            if (slot != -1) {
-                slots[i] = slot;
-            } else {
-                return null;
+    /**
+     * Creates a number of results, merged into as few stacks as the item allows.
+     *
+     * @param name The name of the result
+     * @param count The total number of items to create
+     * @return The created stacks
+     */
+    protected List<EntityRef> createResults(String name, int count) {
+        List<EntityRef> results = new ArrayList<>();
+        while (count > 0) {
+            EntityRef result = createResultFromName(name);
+            if (!result.exists()) {
+                break;
             }
+            int stackSize = 1;
+            ItemComponent item = result.getComponent(ItemComponent.class);
+            if (item != null && !item.stackId.isEmpty() && item.maxStackSize > 1) {
+                stackSize = Math.min(count, item.maxStackSize);
+                item.stackCount = (byte) stackSize;
+                result.saveComponent(item);
+            }
+            results.add(result);
+            count -= stackSize;
         }
-
-        return slots;
+        return results;
     }
 
     /**
-     * Locates the position of a given String item name in an inventory. Attempts to match the string against either the
-     * prefab name, block name or the CraftingIngredientComponent (if one exists)
+     * Detects if the result of a recipe is a Block or an Item and creates the correct entity.
      *
-     * @param entity The entity to look in for the item
-     * @param item The name of the item being looked for
-     * @return The slot containing the item or -1 if it was not found
+     * @param name The name of the result
+     * @return The new entity or an air block if creation was not successful.
      */
-    private int findInInventory(EntityRef entity, String item, int count, int start) {
-        int slotCount = InventoryUtils.getSlotCount(entity);
-        for (int i = start; i < slotCount; i++) {
-            EntityRef slotItem = InventoryUtils.getItemAt(entity, i);
-            int stackSize = InventoryUtils.getStackCount(slotItem);
-            if (stackSize >= count && itemMatchesIngredientName(slotItem, item)) {
-                return i;
+    protected EntityRef createResultFromName(String name) {
+        if (entityManager.getPrefabManager().exists(name)) {
+            return entityManager.create(name);
+        } else {
+            BlockFamily block = blockManager.getBlockFamily(name);
+            if (block != null) {
+                if (blockItemFactory == null) {
+                    blockItemFactory = new BlockItemFactory(entityManager);
+                }
+                return blockItemFactory.newInstance(block);
             }
         }
-        return -1;
+        return EntityRef.NULL;
     }
 }
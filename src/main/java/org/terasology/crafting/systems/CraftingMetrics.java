@@ -0,0 +1,89 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Counters, gauges and latency histograms describing what crafting costs.
+ * <p>
+ * Metrics are off unless enabled in the crafting settings or with the craftingMetrics command. While they are off,
+ * every recording method returns straight away without building names or reading the clock.
+ */
+public interface CraftingMetrics {
+    /**
+     * @return True if metrics are being recorded
+     */
+    boolean isEnabled();
+
+    /**
+     * @param enabled True to record metrics, false to stop
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Add one to a counter
+     *
+     * @param counter The name of the counter
+     */
+    void increment(String counter);
+
+    /**
+     * Add one to the counter for a single item, such as a recipe.
+     * The name is only built while metrics are enabled.
+     *
+     * @param counter The name of the counter
+     * @param detail The item being counted, appended to the name
+     */
+    void increment(String counter, String detail);
+
+    /**
+     * Start timing something.
+     *
+     * @return The start time to pass to {@link #stopTimer(String, long)}, or 0 if metrics are disabled
+     */
+    long startTimer();
+
+    /**
+     * Record the time since a timer was started.
+     *
+     * @param histogram The name of the histogram to record into
+     * @param start The value returned by {@link #startTimer()}
+     */
+    void stopTimer(String histogram, long start);
+
+    /**
+     * Register a value that is only read when the metrics are exported.
+     *
+     * @param name The name of the gauge
+     * @param gauge Reads the current value
+     */
+    void registerGauge(String name, LongSupplier gauge);
+
+    /**
+     * @param exporter An exporter to send the metrics to whenever they are exported
+     */
+    void addExporter(MetricsExporter exporter);
+
+    /**
+     * @param exporter The exporter to stop sending metrics to
+     */
+    void removeExporter(MetricsExporter exporter);
+
+    /**
+     * Send the current value of every metric to an exporter.
+     *
+     * @param exporter The exporter to send to
+     */
+    void export(MetricsExporter exporter);
+
+    /**
+     * Send the current value of every metric to all registered exporters.
+     */
+    void exportAll();
+
+    /**
+     * Reset all counters and histograms to zero.
+     */
+    void reset();
+}
@@ -0,0 +1,172 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.logic.console.commandSystem.annotations.Command;
+import org.terasology.engine.logic.console.commandSystem.annotations.CommandParam;
+import org.terasology.engine.logic.permission.PermissionManager;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.gestalt.assets.management.AssetManager;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Records crafting metrics with striped counters, so recording from several threads never blocks.
+ */
+@Share(CraftingMetrics.class)
+@RegisterSystem(RegisterMode.ALWAYS)
+public class CraftingMetricsImpl extends BaseComponentSystem implements CraftingMetrics {
+    @In
+    private AssetManager assetManager;
+
+    private volatile boolean enabled;
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final List<MetricsExporter> exporters = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void initialise() {
+        enabled = CraftingSettings.get(assetManager).metricsEnabled;
+    }
+
+    @Override
+    public void shutdown() {
+        if (enabled) {
+            exportAll();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void increment(String counter) {
+        if (enabled) {
+            counters.computeIfAbsent(counter, name -> new LongAdder()).increment();
+        }
+    }
+
+    public void increment(String counter, String detail) {
+        if (enabled) {
+            increment(counter + "." + detail);
+        }
+    }
+
+    public long startTimer() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public void stopTimer(String histogram, long start) {
+        if (start != 0 && enabled) {
+            histograms.computeIfAbsent(histogram, name -> new LatencyHistogram()).record(System.nanoTime() - start);
+        }
+    }
+
+    public void registerGauge(String name, LongSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    public void addExporter(MetricsExporter exporter) {
+        exporters.add(exporter);
+    }
+
+    public void removeExporter(MetricsExporter exporter) {
+        exporters.remove(exporter);
+    }
+
+    public void export(MetricsExporter exporter) {
+        for (Map.Entry<String, LongAdder> entry : new ConcurrentSkipListMap<>(counters).entrySet()) {
+            exporter.value(entry.getKey(), entry.getValue().sum());
+        }
+        for (Map.Entry<String, LongSupplier> entry : new ConcurrentSkipListMap<>(gauges).entrySet()) {
+            exporter.value(entry.getKey(), entry.getValue().getAsLong());
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : new ConcurrentSkipListMap<>(histograms).entrySet()) {
+            exporter.histogram(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public void exportAll() {
+        for (MetricsExporter exporter : exporters) {
+            export(exporter);
+        }
+    }
+
+    public void reset() {
+        counters.clear();
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Console command to control and show the crafting metrics.
+     *
+     * @param action One of on, off, reset, export or show. Shows the metrics if left out.
+     * @return The result of the action
+     */
+    @Command(shortDescription = "Shows crafting metrics",
+            helpText = "Use 'on' or 'off' to start or stop recording, 'reset' to clear the metrics, "
+                    + "'export' to send them to all exporters or 'show' to list them.",
+            requiredPermission = PermissionManager.NO_PERMISSION)
+    public String craftingMetrics(@CommandParam(value = "action", required = false) String action) {
+        String lowerAction = action == null ? "show" : action.toLowerCase(Locale.ROOT);
+        switch (lowerAction) {
+            case "on":
+                setEnabled(true);
+                return "Crafting metrics enabled";
+            case "off":
+                setEnabled(false);
+                return "Crafting metrics disabled";
+            case "reset":
+                reset();
+                return "Crafting metrics reset";
+            case "export":
+                exportAll();
+                return "Crafting metrics sent to " + exporters.size() + " exporters";
+            case "show":
+                StringBuilder builder = new StringBuilder();
+                builder.append("Crafting metrics are ").append(enabled ? "enabled" : "disabled");
+                export(new MetricsExporter() {
+                    @Override
+                    public void value(String name, long value) {
+                        builder.append('\n').append(name).append(": ").append(value);
+                    }
+
+                    @Override
+                    public void histogram(String name, LatencyHistogram histogram) {
+                        builder.append('\n').append(name).append(": count ").append(histogram.getCount())
+                                .append(", mean ").append(toMicros(histogram.getCount() == 0 ? 0
+                                        : histogram.getTotal() / histogram.getCount()))
+                                .append("us, p50 <").append(toMicros(histogram.getPercentile(0.5)))
+                                .append("us, p99 <").append(toMicros(histogram.getPercentile(0.99)))
+                                .append("us, max ").append(toMicros(histogram.getMax())).append("us");
+                    }
+                });
+                return builder.toString();
+            default:
+                return "Unknown action '" + action + "', expected on, off, reset, export or show";
+        }
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
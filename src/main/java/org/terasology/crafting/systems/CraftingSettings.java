@@ -0,0 +1,29 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+import org.terasology.crafting.components.CraftingSettingsComponent;
+import org.terasology.engine.entitySystem.prefab.Prefab;
+import org.terasology.gestalt.assets.management.AssetManager;
+
+/**
+ * Looks up the active crafting settings.
+ */
+public final class CraftingSettings {
+    public static final String SETTINGS_PREFAB = "BasicCrafting:craftingSettings";
+
+    private CraftingSettings() {
+    }
+
+    /**
+     * Get the crafting settings from the settings prefab.
+     *
+     * @param assetManager The asset manager to load the prefab with
+     * @return The settings, or the defaults if the prefab is missing
+     */
+    public static CraftingSettingsComponent get(AssetManager assetManager) {
+        return assetManager.getAsset(SETTINGS_PREFAB, Prefab.class)
+                .map(prefab -> prefab.getComponent(CraftingSettingsComponent.class))
+                .orElseGet(CraftingSettingsComponent::new);
+    }
+}
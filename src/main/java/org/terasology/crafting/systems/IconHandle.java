@@ -0,0 +1,91 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+import org.terasology.engine.rendering.assets.mesh.Mesh;
+import org.terasology.engine.rendering.assets.texture.TextureRegion;
+
+import java.util.function.IntFunction;
+
+/**
+ * All the icons and meshes that can be shown for a key, as resolved by {@link IconManager#resolve(String)}.
+ * <p>
+ * The candidates are numbered with the icons first, followed by the meshes. A handle never changes once resolved, so
+ * the UI can keep it and step through the candidates by index without looking the key up again.
+ */
+public final class IconHandle {
+    /**
+     * The handle of a key without any icons or meshes.
+     */
+    public static final IconHandle EMPTY = new IconHandle(new TextureRegion[0], new int[0], index -> null);
+
+    private final TextureRegion[] icons;
+    private final int[] meshIndices;
+    private final IntFunction<Mesh> meshes;
+
+    /**
+     * @param icons The icons of the key
+     * @param meshIndices The indices of the meshes of the key
+     * @param meshes Gets a mesh by its index
+     */
+    IconHandle(TextureRegion[] icons, int[] meshIndices, IntFunction<Mesh> meshes) {
+        this.icons = icons;
+        this.meshIndices = meshIndices;
+        this.meshes = meshes;
+    }
+
+    /**
+     * @return The number of icons and meshes together
+     */
+    public int getCandidateCount() {
+        return icons.length + meshIndices.length;
+    }
+
+    /**
+     * @return True if there are no icons or meshes
+     */
+    public boolean isEmpty() {
+        return getCandidateCount() == 0;
+    }
+
+    /**
+     * @return The number of icons
+     */
+    public int getIconCount() {
+        return icons.length;
+    }
+
+    /**
+     * @return The number of meshes
+     */
+    public int getMeshCount() {
+        return meshIndices.length;
+    }
+
+    /**
+     * @param candidate The index of the candidate
+     * @return True if the candidate is a mesh, false if it is an icon
+     */
+    public boolean isMesh(int candidate) {
+        return candidate >= icons.length;
+    }
+
+    /**
+     * @param index The index of the icon, from 0 to {@link #getIconCount()}
+     * @return The icon
+     */
+    public TextureRegion getIcon(int index) {
+        return icons[index];
+    }
+
+    /**
+     * Get a mesh, generating it if needed.
+     * Meshes belong to the engine, which may dispose them, so they should be fetched again rather than kept.
+     *
+     * @param index The index of the mesh, from 0 to {@link #getMeshCount()}
+     * @return The mesh
+     */
+    public Mesh getMesh(int index) {
+        return meshes.apply(meshIndices[index]);
+    }
+}
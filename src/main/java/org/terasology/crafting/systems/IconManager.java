@@ -2,6 +2,7 @@
 // SPDX-License-Identifier: Apache-2.0
 package org.terasology.crafting.systems;
 
+import org.terasology.engine.entitySystem.prefab.Prefab;
 import org.terasology.engine.rendering.assets.mesh.Mesh;
 import org.terasology.engine.rendering.assets.texture.Texture;
 import org.terasology.engine.rendering.assets.texture.TextureRegion;
@@ -12,8 +13,27 @@ public interface IconManager {
      */
     void scrapeIcons();
 
+    /**
+     * Collect all the icons for all the ingredients from prefabs that have already been scanned.
+     * The ingredient names must have been collected first.
+     *
+     * @param scanner The scanner that has visited all prefabs
+     */
+    void scrapeIcons(PrefabScanner scanner);
+
+    /**
+     * Replace the icon of a single item prefab after it has been reloaded or removed.
+     * The ingredient names of the prefab must have been updated first.
+     *
+     * @param prefabName The name of the prefab
+     * @param prefab     The reloaded prefab, or null if it no longer exists
+     */
+    void updateIcons(String prefabName, Prefab prefab);
+
     /**
      * Get's all meshes associated with a key
+     * Meshes are only generated on first use. They belong to the engine, which may dispose them, so they should be
+     * fetched again rather than kept.
      *
      * @param key The key to use
      * @return All the Meshes found or null if the key doesn't exist.
@@ -28,6 +48,15 @@ public interface IconManager {
      */
     TextureRegion[] getIcon(String key);
 
+    /**
+     * Resolve a key to all the icons and meshes associated with it.
+     * Resolving the same key again returns the same handle.
+     *
+     * @param key The key to use
+     * @return The handle, which is {@link IconHandle#EMPTY} if the key doesn't exist
+     */
+    IconHandle resolve(String key);
+
     /**
      * Check if there are any icons associated with the key
      *
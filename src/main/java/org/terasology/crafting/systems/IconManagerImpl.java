@@ -4,6 +4,7 @@
 package org.terasology.crafting.systems;
 
 import com.google.common.collect.Iterables;
+import org.terasology.crafting.components.CraftingSettingsComponent;
 import org.terasology.engine.entitySystem.entity.EntityManager;
 import org.terasology.engine.entitySystem.prefab.Prefab;
 import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
@@ -22,9 +23,13 @@ import org.terasology.engine.world.block.family.BlockFamily;
 import org.terasology.gestalt.assets.management.AssetManager;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
@@ -33,9 +38,20 @@ import java.util.Set;
 public class IconManagerImpl extends BaseComponentSystem implements IconManager {
 
     private List<TextureRegion> iconList = new ArrayList<>();
-    private List<Mesh> meshList = new ArrayList<>();
-    private Map<String, Set<Integer>> iconLookup = new HashMap<>();
-    private Map<String, Set<Integer>> meshLookup = new HashMap<>();
+    /* Meshes are only generated when asked for, so just the block family is kept for each */
+    private List<BlockFamily> meshList = new ArrayList<>();
+    /* Interning of the icons and block families, so each distinct asset is stored once */
+    private Map<TextureRegion, Integer> iconIndices = new IdentityHashMap<>();
+    private Map<BlockFamily, Integer> meshIndices = new IdentityHashMap<>();
+    private MeshCache meshCache = new MeshCache(CraftingSettingsComponent.DEFAULT_MESH_CACHE_SIZE);
+    /* The sorted indices of the icons and meshes linked to each key */
+    private Map<String, int[]> iconLookup = new HashMap<>();
+    private Map<String, int[]> meshLookup = new HashMap<>();
+    private Map<String, IconHandle> handles = new HashMap<>();
+    /* Which item prefabs linked their icon to each key, so a single prefab can be replaced later */
+    private Map<String, Integer> prefabIcons = new HashMap<>();
+    private Map<String, List<String>> prefabIconKeys = new HashMap<>();
+    private Map<String, Set<String>> keyPrefabs = new HashMap<>();
     private Texture texture;
 
     @In
@@ -46,25 +62,42 @@ public class IconManagerImpl extends BaseComponentSystem implements IconManager
     private BlockManager blockManager;
     @In
     private RecipeStore recipeStore;
+    @In
+    private CraftingMetrics metrics;
 
     private BlockExplorer blockExplorer;
 
 
+    @Override
+    public void initialise() {
+        metrics.registerGauge("icons.icons", () -> iconList.size());
+        metrics.registerGauge("icons.meshFamilies", () -> meshList.size());
+        metrics.registerGauge("icons.meshesCached", () -> meshCache.size());
+        metrics.registerGauge("icons.handles", () -> handles.size());
+    }
+
     public void scrapeIcons() {
+        PrefabScanner scanner = new PrefabScanner();
+        scanner.scan(assetManager.getLoadedAssets(Prefab.class));
+        scrapeIcons(scanner);
+    }
+
+    public void scrapeIcons(PrefabScanner scanner) {
         blockExplorer = new BlockExplorer(assetManager);
-        loadItems();
+        handles.clear();
+        meshCache.clear();
+        meshCache = new MeshCache(CraftingSettings.get(assetManager).meshCacheSize);
+        loadItems(scanner);
         loadBlocks();
     }
 
     public Mesh[] getMesh(String key) {
-        String lowerKey = key.toLowerCase();
-        if (meshLookup.containsKey(lowerKey)) {
-            Set<Integer> indexSet = meshLookup.get(lowerKey);
-            Mesh[] meshes = new Mesh[indexSet.size()];
-            int i = 0;
-            for (Integer index : indexSet) {
-                meshes[i] = meshList.get(index);
-                i++;
+        String lowerKey = key.toLowerCase(Locale.ROOT);
+        int[] indices = meshLookup.get(lowerKey);
+        if (indices != null) {
+            Mesh[] meshes = new Mesh[indices.length];
+            for (int i = 0; i < indices.length; i++) {
+                meshes[i] = meshCache.getMesh(meshList.get(indices[i]));
             }
             return meshes;
         } else {
@@ -73,14 +106,12 @@ public class IconManagerImpl extends BaseComponentSystem implements IconManager
     }
 
     public TextureRegion[] getIcon(String key) {
-        String lowerKey = key.toLowerCase();
-        if (iconLookup.containsKey(lowerKey)) {
-            Set<Integer> indexSet = iconLookup.get(lowerKey);
-            TextureRegion[] textures = new TextureRegion[indexSet.size()];
-            int i = 0;
-            for (Integer index : indexSet) {
-                textures[i] = iconList.get(index);
-                i++;
+        String lowerKey = key.toLowerCase(Locale.ROOT);
+        int[] indices = iconLookup.get(lowerKey);
+        if (indices != null) {
+            TextureRegion[] textures = new TextureRegion[indices.length];
+            for (int i = 0; i < indices.length; i++) {
+                textures[i] = iconList.get(indices[i]);
             }
             return textures;
         } else {
@@ -88,12 +119,33 @@ public class IconManagerImpl extends BaseComponentSystem implements IconManager
         }
     }
 
+    public IconHandle resolve(String key) {
+        String lowerKey = key.toLowerCase(Locale.ROOT);
+        IconHandle handle = handles.get(lowerKey);
+        if (handle == null) {
+            int[] iconIndices = iconLookup.get(lowerKey);
+            int[] meshIndices = meshLookup.get(lowerKey);
+            if (iconIndices == null && meshIndices == null) {
+                /* Not kept, so looking up arbitrary keys can't fill the map */
+                return IconHandle.EMPTY;
+            }
+            TextureRegion[] icons = new TextureRegion[iconIndices == null ? 0 : iconIndices.length];
+            for (int i = 0; i < icons.length; i++) {
+                icons[i] = iconList.get(iconIndices[i]);
+            }
+            handle = new IconHandle(icons, meshIndices == null ? new int[0] : meshIndices,
+                    index -> meshCache.getMesh(meshList.get(index)));
+            handles.put(lowerKey, handle);
+        }
+        return handle;
+    }
+
     public boolean hasIcon(String key) {
-        return iconLookup.containsKey(key.toLowerCase());
+        return iconLookup.containsKey(key.toLowerCase(Locale.ROOT));
     }
 
     public boolean hasMesh(String key) {
-        return meshLookup.containsKey(key.toLowerCase());
+        return meshLookup.containsKey(key.toLowerCase(Locale.ROOT));
     }
 
     public Texture getTexture() {
@@ -104,40 +156,86 @@ public class IconManagerImpl extends BaseComponentSystem implements IconManager
      * Searches through all the prefabs for Icons to use.
      * If a prefab has an ItemComponent then the `icon` field of that component is added to the store.
      * It is associated with the prefab name and with the `id` field of a CraftingIngredientComponent if one exists.
+     *
+     * @param scanner The scanner that has visited all prefabs
      */
-    private void loadItems() {
-        for (Prefab prefab : assetManager.getLoadedAssets(Prefab.class)) {
-            if (prefab.hasComponent(ItemComponent.class)) {
-                try {
-                    if (prefab.exists() && prefab.hasComponent(ItemComponent.class)) {
-                        ItemComponent itemComponent = prefab.getComponent(ItemComponent.class);
-                        TextureRegion icon = itemComponent.icon;
-
-                        /* Add link between the ingredient names and icon */
-                        String[] otherNames = recipeStore.getIngredientNames(prefab.getName());
-                        if (otherNames != null) {
-                            for (String otherName : otherNames) {
-                                addIconPair(otherName.toLowerCase(), icon);
-                            }
-                        }
-                        /* Add link between full prefab name and icon */
-                        addIconPair(prefab.getName().toLowerCase(), icon);
-
-                        /* Add link between short prefab name and icon */
-                        addIconPair(prefab.getUrn().getResourceName().toLowerCase(), icon);
+    private void loadItems(PrefabScanner scanner) {
+        for (Prefab prefab : scanner.getPrefabsWith(ItemComponent.class)) {
+            loadItem(prefab);
+        }
+    }
+
+    public void updateIcons(String prefabName, Prefab prefab) {
+        String prefabKey = prefabName.toLowerCase(Locale.ROOT);
+        Integer oldIcon = prefabIcons.remove(prefabKey);
+        List<String> oldKeys = prefabIconKeys.remove(prefabKey);
+        if (oldIcon != null) {
+            for (String key : oldKeys) {
+                Set<String> prefabs = keyPrefabs.get(key);
+                prefabs.remove(prefabKey);
+                /* Other prefabs may have linked their icons to the same key, so rebuild it from them */
+                iconLookup.remove(key);
+                if (prefabs.isEmpty()) {
+                    keyPrefabs.remove(key);
+                } else {
+                    for (String otherPrefab : prefabs) {
+                        addIndex(iconLookup, key, prefabIcons.get(otherPrefab));
                     }
-                } catch (Exception ex) {
-                    /* Ignore all exceptions, it will prevent bad prefabs from breaking everything. */
                 }
             }
         }
+        if (prefab != null && prefab.hasComponent(ItemComponent.class)) {
+            loadItem(prefab);
+        }
+        handles.clear();
     }
 
     /**
-     * Load all the meshes for all blocks.
+     * Adds the icon of a single item prefab.
+     * It is associated with the prefab name and with the `id` field of a CraftingIngredientComponent if one exists.
+     *
+     * @param prefab The prefab to add the icon of
+     */
+    private void loadItem(Prefab prefab) {
+        try {
+            if (prefab.exists()) {
+                ItemComponent itemComponent = prefab.getComponent(ItemComponent.class);
+                TextureRegion icon = itemComponent.icon;
+                String prefabKey = prefab.getName().toLowerCase(Locale.ROOT);
+                List<String> keys = new ArrayList<>();
+
+                /* Add link between the ingredient names and icon */
+                String[] otherNames = recipeStore.getIngredientNames(prefab.getName());
+                if (otherNames != null) {
+                    for (String otherName : otherNames) {
+                        keys.add(otherName.toLowerCase(Locale.ROOT));
+                    }
+                }
+                /* Add link between full prefab name and icon */
+                keys.add(prefabKey);
+
+                /* Add link between short prefab name and icon */
+                keys.add(prefab.getUrn().getResourceName().toLowerCase());
+
+                int index = 0;
+                for (String key : keys) {
+                    index = addIconPair(key, icon);
+                    keyPrefabs.computeIfAbsent(key, name -> new HashSet<>()).add(prefabKey);
+                }
+                prefabIcons.put(prefabKey, index);
+                prefabIconKeys.put(prefabKey, keys);
+            }
+        } catch (Exception ex) {
+            /* Ignore all exceptions, it will prevent bad prefabs from breaking everything. */
+        }
+    }
+
+    /**
+     * Register the meshes for all blocks.
      * This only uses one mesh per block family and hence all blocks in a family are treated as the same.
      * <p>
-     * The mesh is associated with the block family's URI
+     * The mesh is associated with the block family's URI.
+     * Meshes are not generated here, but the first time {@link #getMesh(String)} needs them.
      */
     private void loadBlocks() {
         Set<BlockUri> blocks = new HashSet<>();
@@ -150,17 +248,19 @@ public class IconManagerImpl extends BaseComponentSystem implements IconManager
             if (!block.equals(BlockManager.UNLOADED_ID)) {
                 /* Option A */
                 BlockFamily blockFamily = blockManager.getBlockFamily(block.getFamilyUri());
-                Mesh mesh = blockFamily.getArchetypeBlock().getMeshGenerator().getStandaloneMesh();
+                if (blockFamily == null) {
+                    continue;
+                }
 
                 /* Add the full block name */
-                addMeshPair(blockFamily.getURI().toString().toLowerCase(), mesh);
+                addMeshPair(blockFamily.getURI().toString().toLowerCase(Locale.ROOT), blockFamily);
 
                 /* Add the short block name */
-                addMeshPair(block.getBlockFamilyDefinitionUrn().getResourceName().toLowerCase(), mesh);
+                addMeshPair(block.getBlockFamilyDefinitionUrn().getResourceName().toLowerCase(), blockFamily);
 
                 /* Add all the block categories */
                 for (String category : blockFamily.getCategories()) {
-                    addMeshPair(category, mesh);
+                    addMeshPair(category, blockFamily);
                 }
             }
         }
@@ -173,40 +273,98 @@ public class IconManagerImpl extends BaseComponentSystem implements IconManager
      *
      * @param key   The key to use
      * @param value The icon to use
+     * @return The index of the icon
      */
-    private void addIconPair(String key, TextureRegion value) {
+    private int addIconPair(String key, TextureRegion value) {
         /* Add item to list */
-        int index = iconList.indexOf(value);
-        if (index == -1) {
+        Integer index = iconIndices.get(value);
+        if (index == null) {
             index = iconList.size();
             iconList.add(value);
+            iconIndices.put(value, index);
         }
 
         /* Add links to item */
-        Set<Integer> iconSet = iconLookup.containsKey(key) ? iconLookup.get(key) : new HashSet<>();
-        iconSet.add(index);
-        iconLookup.put(key, iconSet);
+        addIndex(iconLookup, key, index);
+        return index;
     }
 
     /**
-     * Links a mesh to a given key
+     * Links the mesh of a block family to a given key
      *
      * @param key   The key to use
-     * @param value The icon to use
+     * @param value The block family to take the mesh from
      */
-    private void addMeshPair(String key, Mesh value) {
+    private void addMeshPair(String key, BlockFamily value) {
         /* Add item to list */
-        int index = meshList.indexOf(value);
-        if (index == -1) {
+        Integer index = meshIndices.get(value);
+        if (index == null) {
             index = meshList.size();
             meshList.add(value);
+            meshIndices.put(value, index);
         }
 
         /* Add links to item */
-        Set<Integer> meshSet = meshLookup.containsKey(key) ? meshLookup.get(key) : new HashSet<>();
-        meshSet.add(index);
-        meshLookup.put(key, meshSet);
+        addIndex(meshLookup, key, index);
     }
 
+    /**
+     * Adds an index to the sorted indices of a key, if it isn't there already
+     *
+     * @param lookup The lookup to add to
+     * @param key    The key to use
+     * @param index  The index to add
+     */
+    private static void addIndex(Map<String, int[]> lookup, String key, int index) {
+        int[] indices = lookup.get(key);
+        if (indices == null) {
+            lookup.put(key, new int[]{index});
+            return;
+        }
+        int position = Arrays.binarySearch(indices, index);
+        if (position < 0) {
+            position = -position - 1;
+            int[] extended = new int[indices.length + 1];
+            System.arraycopy(indices, 0, extended, 0, position);
+            extended[position] = index;
+            System.arraycopy(indices, position, extended, position + 1, indices.length - position);
+            lookup.put(key, extended);
+        }
+    }
+
+    /**
+     * The most recently used block meshes.
+     * Only the generation of the meshes is lazy. They belong to the mesh generators of the engine, which keep them and
+     * share them with inventory cells and held items, so they are never disposed here. When full, the least recently
+     * used mesh is only dropped from this cache, which frees no memory, and is looked up again if it is needed later.
+     */
+    private final class MeshCache extends LinkedHashMap<BlockFamily, Mesh> {
+        private final int maxSize;
+
+        private MeshCache(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = Math.max(1, maxSize);
+        }
 
+        /**
+         * Gets the mesh of a block family, asking the engine for it if it isn't cached or the engine has disposed it
+         *
+         * @param blockFamily The block family to get the mesh of
+         * @return The mesh
+         */
+        private Mesh getMesh(BlockFamily blockFamily) {
+            Mesh mesh = get(blockFamily);
+            if (mesh == null || mesh.isDisposed()) {
+                metrics.increment("icons.meshesGenerated");
+                mesh = blockFamily.getArchetypeBlock().getMeshGenerator().getStandaloneMesh();
+                put(blockFamily, mesh);
+            }
+            return mesh;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<BlockFamily, Mesh> eldest) {
+            return size() > maxSize;
+        }
+    }
 }
@@ -0,0 +1,192 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.prefab.Prefab;
+import org.terasology.engine.world.block.family.BlockFamily;
+import org.terasology.engine.world.block.items.BlockItemComponent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Interns ingredient names to integer ids and caches the ids every prefab and block family satisfies.
+ * <p>
+ * An item satisfies an ingredient if the ingredient matches its full name, its short name or any of its other names
+ * (aliases from a CraftingIngredientComponent or block categories). Once the ids of an item are cached, checking it
+ * against an ingredient is a binary search over a small sorted array.
+ */
+public class IngredientIndex {
+    private static final int[] NO_INGREDIENTS = new int[0];
+
+    private final Map<String, Integer> ingredientIds = new HashMap<>();
+    private final List<String> ingredientNames = new ArrayList<>();
+    private final Map<Prefab, int[]> prefabIngredients = new HashMap<>();
+    private final Map<BlockFamily, int[]> blockIngredients = new HashMap<>();
+    private final Function<String, String[]> otherNames;
+
+    /**
+     * @param otherNames Looks up the other ingredient names of a prefab by its full name, returning null if it has none
+     */
+    public IngredientIndex(Function<String, String[]> otherNames) {
+        this.otherNames = otherNames;
+    }
+
+    /**
+     * Checks if a set of ingredient ids contains the given ingredient.
+     *
+     * @param ingredients The sorted ids, as returned by {@link #getIngredientIds(EntityRef)}
+     * @param ingredientId The ingredient to look for
+     * @return True if the ingredient is satisfied, false otherwise
+     */
+    public static boolean satisfies(int[] ingredients, int ingredientId) {
+        return Arrays.binarySearch(ingredients, ingredientId) >= 0;
+    }
+
+    /**
+     * Gets the id for an ingredient name, assigning a new one if the name has not been seen before.
+     * Names are case insensitive, and only their lower case form is kept.
+     *
+     * @param name The ingredient name
+     * @return The id of the ingredient
+     */
+    public int getId(String name) {
+        String lowerName = name.toLowerCase(Locale.ROOT);
+        Integer id = ingredientIds.get(lowerName);
+        if (id == null) {
+            id = ingredientNames.size();
+            ingredientNames.add(lowerName);
+            ingredientIds.put(lowerName, id);
+        }
+        return id;
+    }
+
+    /**
+     * Gets the id for an ingredient name without assigning a new one.
+     *
+     * @param name The ingredient name
+     * @return The id of the ingredient or -1 if the name has never been seen
+     */
+    public int findId(String name) {
+        Integer id = ingredientIds.get(name.toLowerCase(Locale.ROOT));
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @return The number of distinct ingredient names
+     */
+    public int size() {
+        return ingredientNames.size();
+    }
+
+    /**
+     * @param id The id of the ingredient
+     * @return The lower case name the id was assigned for
+     */
+    public String getName(int id) {
+        return ingredientNames.get(id);
+    }
+
+    /**
+     * Gets all the ingredient ids that an item satisfies.
+     * The returned array is shared and must not be modified.
+     *
+     * @param item The item to check
+     * @return The sorted ingredient ids, empty if the item is not a block or prefab based item
+     */
+    public int[] getIngredientIds(EntityRef item) {
+        BlockItemComponent blockItem = item.getComponent(BlockItemComponent.class);
+        if (blockItem != null) {
+            return getIngredientIds(blockItem.blockFamily);
+        }
+        Prefab prefab = item.getParentPrefab();
+        if (prefab == null) {
+            return NO_INGREDIENTS;
+        }
+        return getIngredientIds(prefab);
+    }
+
+    /**
+     * Gets all the ingredient ids that items of a block family satisfy.
+     * The returned array is shared and must not be modified.
+     *
+     * @param blockFamily The block family to check
+     * @return The sorted ingredient ids
+     */
+    public int[] getIngredientIds(BlockFamily blockFamily) {
+        if (blockFamily == null) {
+            return NO_INGREDIENTS;
+        }
+        int[] ids = blockIngredients.get(blockFamily);
+        if (ids == null) {
+            List<String> names = new ArrayList<>();
+            names.add(blockFamily.getURI().toString());
+            names.add(blockFamily.getURI().getBlockFamilyDefinitionUrn().getResourceName().toString());
+            for (String category : blockFamily.getCategories()) {
+                names.add(category);
+            }
+            ids = toSortedIds(names);
+            blockIngredients.put(blockFamily, ids);
+        }
+        return ids;
+    }
+
+    /**
+     * Gets all the ingredient ids that items created from a prefab satisfy.
+     * The returned array is shared and must not be modified.
+     *
+     * @param prefab The prefab to check
+     * @return The sorted ingredient ids
+     */
+    public int[] getIngredientIds(Prefab prefab) {
+        int[] ids = prefabIngredients.get(prefab);
+        if (ids == null) {
+            List<String> names = new ArrayList<>();
+            names.add(prefab.getName());
+            names.add(prefab.getUrn().getResourceName().toString());
+            String[] aliases = otherNames.apply(prefab.getName());
+            if (aliases != null) {
+                names.addAll(Arrays.asList(aliases));
+            }
+            ids = toSortedIds(names);
+            prefabIngredients.put(prefab, ids);
+        }
+        return ids;
+    }
+
+    /**
+     * Drops the cached ids of all prefabs and block families.
+     * Must be called whenever the other names of a prefab change.
+     */
+    public void clearItemCache() {
+        prefabIngredients.clear();
+        blockIngredients.clear();
+    }
+
+    /**
+     * Converts a list of names into a sorted array of unique ids
+     *
+     * @param names The names to convert
+     * @return The sorted ids
+     */
+    private int[] toSortedIds(List<String> names) {
+        int[] ids = new int[names.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = getId(names.get(i));
+        }
+        Arrays.sort(ids);
+        int unique = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (unique == 0 || ids[unique - 1] != ids[i]) {
+                ids[unique++] = ids[i];
+            }
+        }
+        return unique == ids.length ? ids : Arrays.copyOf(ids, unique);
+    }
+}
@@ -0,0 +1,95 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.module.inventory.systems.InventoryUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The ingredient counts of a single block inventory that is linked to at least one workstation.
+ * Changes to a slot are passed on to the totals of every {@link LinkedInventories} it belongs to.
+ */
+final class InventoryCounts {
+    private static final int[] EMPTY = new int[0];
+
+    private final EntityRef entity;
+    private int[][] slotIngredients;
+    private int[] slotCounts;
+    private long[] counts = new long[0];
+    private final List<LinkedInventories> links = new ArrayList<>();
+
+    InventoryCounts(EntityRef entity, RecipeStore recipeStore) {
+        this.entity = entity;
+        int slotCount = InventoryUtils.getSlotCount(entity);
+        slotIngredients = new int[slotCount][];
+        slotCounts = new int[slotCount];
+        for (int slot = 0; slot < slotCount; slot++) {
+            slotIngredients[slot] = EMPTY;
+            readSlot(slot, recipeStore);
+        }
+    }
+
+    EntityRef getEntity() {
+        return entity;
+    }
+
+    long[] getCounts() {
+        return counts;
+    }
+
+    long getCount(int ingredient) {
+        return ingredient >= 0 && ingredient < counts.length ? counts[ingredient] : 0;
+    }
+
+    List<LinkedInventories> getLinks() {
+        return links;
+    }
+
+    void addLink(LinkedInventories link) {
+        links.add(link);
+    }
+
+    /**
+     * Replaces the stored state of a slot with its current contents
+     *
+     * @param slot The slot to read
+     * @param recipeStore The store used to resolve the ingredients of the item
+     */
+    void readSlot(int slot, RecipeStore recipeStore) {
+        if (slot >= slotCounts.length) {
+            slotIngredients = Arrays.copyOf(slotIngredients, slot + 1);
+            slotCounts = Arrays.copyOf(slotCounts, slot + 1);
+            for (int i = 0; i < slotIngredients.length; i++) {
+                if (slotIngredients[i] == null) {
+                    slotIngredients[i] = EMPTY;
+                }
+            }
+        }
+        addCounts(slotIngredients[slot], -slotCounts[slot]);
+        EntityRef item = InventoryUtils.getItemAt(entity, slot);
+        int count = InventoryUtils.getStackCount(item);
+        int[] ingredients = count > 0 ? recipeStore.getIngredientIds(item) : EMPTY;
+        slotIngredients[slot] = ingredients;
+        slotCounts[slot] = count;
+        addCounts(ingredients, count);
+    }
+
+    private void addCounts(int[] ingredients, int count) {
+        if (count == 0) {
+            return;
+        }
+        for (int ingredient : ingredients) {
+            if (ingredient >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(ingredient + 1, counts.length * 2));
+            }
+            counts[ingredient] += count;
+            for (LinkedInventories link : links) {
+                link.addCount(ingredient, count);
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.module.inventory.systems.InventoryUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A count of how much of each wanted ingredient one or more inventories hold, and in which slots.
+ * <p>
+ * The inventories are walked exactly once when the histogram is built. Slots for any number of crafts can then be
+ * assigned from it without looking at the inventories again. The slots of all the inventories are numbered one after
+ * the other, earlier inventories are used up first.
+ */
+public class InventoryHistogram {
+    private final EntityRef[] inventories;
+    private final int[] slotInventories;
+    private final int[] localSlots;
+    private final int[] stackCounts;
+    private final int[][] ingredientSlots;
+    private final int[] ingredientSlotCounts;
+    private final long[] totals;
+
+    /**
+     * Walks the inventory of an entity and collects all slots matching one of the given ingredients.
+     *
+     * @param entity The entity owning the inventory
+     * @param ingredientIds The ids of the ingredients to count
+     * @param recipeStore The store used to resolve the ingredients of each item
+     */
+    public InventoryHistogram(EntityRef entity, int[] ingredientIds, RecipeStore recipeStore) {
+        this(Collections.singletonList(entity), ingredientIds, recipeStore);
+    }
+
+    /**
+     * Walks the inventories of several entities and collects all slots matching one of the given ingredients.
+     *
+     * @param entities The entities owning the inventories, in the order they should be taken from
+     * @param ingredientIds The ids of the ingredients to count
+     * @param recipeStore The store used to resolve the ingredients of each item
+     */
+    public InventoryHistogram(List<EntityRef> entities, int[] ingredientIds, RecipeStore recipeStore) {
+        inventories = entities.toArray(new EntityRef[0]);
+        int[] inventorySlotCounts = new int[inventories.length];
+        int slotCount = 0;
+        for (int i = 0; i < inventories.length; i++) {
+            inventorySlotCounts[i] = InventoryUtils.getSlotCount(inventories[i]);
+            slotCount += inventorySlotCounts[i];
+        }
+        slotInventories = new int[slotCount];
+        localSlots = new int[slotCount];
+        stackCounts = new int[slotCount];
+        ingredientSlots = new int[ingredientIds.length][];
+        ingredientSlotCounts = new int[ingredientIds.length];
+        totals = new long[ingredientIds.length];
+
+        int slot = 0;
+        for (int inventory = 0; inventory < inventories.length; inventory++) {
+            for (int localSlot = 0; localSlot < inventorySlotCounts[inventory]; localSlot++, slot++) {
+                slotInventories[slot] = inventory;
+                localSlots[slot] = localSlot;
+                EntityRef item = InventoryUtils.getItemAt(inventories[inventory], localSlot);
+                countItem(item, slot, ingredientIds, recipeStore);
+            }
+        }
+    }
+
+    /**
+     * Adds the item in a slot to the counts of every ingredient it satisfies
+     *
+     * @param item The item in the slot
+     * @param slot The slot, numbered over all the inventories
+     * @param ingredientIds The ids of the ingredients to count
+     * @param recipeStore The store used to resolve the ingredients of the item
+     */
+    private void countItem(EntityRef item, int slot, int[] ingredientIds, RecipeStore recipeStore) {
+        int stackSize = InventoryUtils.getStackCount(item);
+        if (stackSize > 0) {
+            stackCounts[slot] = stackSize;
+            int[] itemIngredients = recipeStore.getIngredientIds(item);
+            for (int i = 0; i < ingredientIds.length; i++) {
+                if (IngredientIndex.satisfies(itemIngredients, ingredientIds[i])) {
+                    addSlot(i, slot);
+                    totals[i] += stackSize;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param input The index of the ingredient, in the order given when building the histogram
+     * @return The total number of items available for that ingredient
+     */
+    public long getTotal(int input) {
+        return totals[input];
+    }
+
+    /**
+     * Gets an upper bound on how many times the inputs can be taken from the inventory.
+     * This ignores items that match more than one input, so {@link #allocate(int[], int)} may still fail for it.
+     *
+     * @param inputCounts The number of items needed of each ingredient for a single craft
+     * @return The maximum number of crafts
+     */
+    public int getMaxTimes(int[] inputCounts) {
+        long max = Integer.MAX_VALUE;
+        for (int i = 0; i < inputCounts.length; i++) {
+            if (inputCounts[i] > 0) {
+                max = Math.min(max, totals[i] / inputCounts[i]);
+            }
+        }
+        return (int) max;
+    }
+
+    /**
+     * Assigns slots for all the inputs of a number of crafts.
+     * An input may be taken from several partial stacks, and a slot may be shared between inputs as long as its stack
+     * is large enough for all of them.
+     *
+     * @param inputCounts The number of items needed of each ingredient for a single craft
+     * @param times The number of crafts to assign slots for
+     * @return The slots and counts to take or null if the inventory does not hold enough items
+     */
+    public SlotAllocation allocate(int[] inputCounts, int times) {
+        int[] remaining = Arrays.copyOf(stackCounts, stackCounts.length);
+        SlotAllocation allocation = new SlotAllocation(inputCounts.length, times);
+        for (int i = 0; i < inputCounts.length; i++) {
+            long needed = (long) inputCounts[i] * times;
+            if (needed > totals[i]) {
+                return null;
+            }
+            for (int j = 0; j < ingredientSlotCounts[i] && needed > 0; j++) {
+                int slot = ingredientSlots[i][j];
+                int taken = (int) Math.min(remaining[slot], needed);
+                if (taken > 0) {
+                    remaining[slot] -= taken;
+                    needed -= taken;
+                    allocation.add(i, inventories[slotInventories[slot]], localSlots[slot], taken);
+                }
+            }
+            if (needed > 0) {
+                return null;
+            }
+        }
+        return allocation;
+    }
+
+    /**
+     * Assigns slots for as many crafts as the inventory allows, up to a limit.
+     *
+     * @param inputCounts The number of items needed of each ingredient for a single craft
+     * @param limit The maximum number of crafts to assign slots for
+     * @return The slots and counts to take or null if not even a single craft fits
+     */
+    public SlotAllocation allocateMax(int[] inputCounts, int limit) {
+        int high = Math.min(limit, getMaxTimes(inputCounts));
+        SlotAllocation allocation = high > 0 ? allocate(inputCounts, high) : null;
+        if (allocation != null || high <= 1) {
+            return allocation;
+        }
+
+        /* Items matching several inputs made the estimate too high, so search for the largest number that fits */
+        int low = 0;
+        high--;
+        while (low < high) {
+            int middle = (low + high + 1) / 2;
+            SlotAllocation candidate = allocate(inputCounts, middle);
+            if (candidate != null) {
+                allocation = candidate;
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return allocation;
+    }
+
+    /**
+     * Records a slot as holding an ingredient
+     *
+     * @param input The index of the ingredient
+     * @param slot The slot holding it
+     */
+    private void addSlot(int input, int slot) {
+        int[] slots = ingredientSlots[input];
+        if (slots == null) {
+            slots = new int[4];
+            ingredientSlots[input] = slots;
+        } else if (ingredientSlotCounts[input] == slots.length) {
+            slots = Arrays.copyOf(slots, slots.length * 2);
+            ingredientSlots[input] = slots;
+        }
+        slots[ingredientSlotCounts[input]++] = slot;
+    }
+}
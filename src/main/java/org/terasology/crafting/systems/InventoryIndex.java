@@ -0,0 +1,32 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+import org.joml.Vector3ic;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+
+import java.util.List;
+
+/**
+ * Keeps track of where the block entities with an inventory are, so workstations can take ingredients from the chests
+ * around them.
+ */
+public interface InventoryIndex {
+    /**
+     * Gets the block inventories within a radius of a position.
+     *
+     * @param position The block position to search around
+     * @param radius The largest distance in blocks to include
+     * @return The entities of the block inventories found
+     */
+    List<EntityRef> getInventoriesNear(Vector3ic position, int radius);
+
+    /**
+     * Gets the inventories a workstation takes ingredients from, with the combined ingredient counts of all of them.
+     * The result is kept up to date as the inventories change and as inventory blocks are placed or removed.
+     *
+     * @param workstation The workstation block
+     * @return The linked inventories or null if the workstation doesn't take ingredients from other inventories
+     */
+    LinkedInventories getLinkedInventories(EntityRef workstation);
+}
@@ -0,0 +1,251 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+import org.joml.Vector3i;
+import org.joml.Vector3ic;
+import org.terasology.crafting.listCrafting.components.CraftingWorkstationComponent;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.engine.world.block.BlockComponent;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.module.inventory.components.InventoryComponent;
+import org.terasology.module.inventory.events.InventorySlotChangedEvent;
+import org.terasology.module.inventory.events.InventorySlotStackSizeChangedEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indexes block inventories by the 16 block cell they are in, so looking up the inventories around a workstation only
+ * visits the few cells the radius overlaps.
+ * <p>
+ * The linked inventories of each workstation are worked out once and then kept. They are dropped when an inventory
+ * block is placed or removed within the workstation's radius, and rebuilt the next time they are needed.
+ */
+@Share(InventoryIndex.class)
+@RegisterSystem(RegisterMode.ALWAYS)
+public class InventoryIndexImpl extends BaseComponentSystem implements InventoryIndex {
+    private static final int CELL_BITS = 4;
+
+    @In
+    private RecipeStore recipeStore;
+    @In
+    private CraftingMetrics metrics;
+
+    private final Map<Long, List<EntityRef>> cells = new HashMap<>();
+    private final Map<EntityRef, Vector3i> positions = new HashMap<>();
+    private final Map<EntityRef, LinkedInventories> links = new HashMap<>();
+    private final Map<EntityRef, InventoryCounts> counts = new HashMap<>();
+    private int storeVersion;
+
+    @Override
+    public void initialise() {
+        metrics.registerGauge("inventories.indexed", positions::size);
+        metrics.registerGauge("inventories.linkedWorkstations", links::size);
+    }
+
+    /**
+     * Adds an inventory block to the index once it is placed or loaded.
+     *
+     * @param event The activation event
+     * @param entity The block entity
+     */
+    @ReceiveEvent(components = {BlockComponent.class, InventoryComponent.class})
+    public void onInventoryBlockActivated(OnActivatedComponent event, EntityRef entity) {
+        if (positions.containsKey(entity)) {
+            return;
+        }
+        Vector3i position = new Vector3i(entity.getComponent(BlockComponent.class).getPosition());
+        positions.put(entity, position);
+        cells.computeIfAbsent(cellKey(position.x() >> CELL_BITS, position.y() >> CELL_BITS,
+                position.z() >> CELL_BITS), key -> new ArrayList<>()).add(entity);
+        dropLinksCovering(position);
+    }
+
+    /**
+     * Removes an inventory block from the index once it is removed or unloaded.
+     *
+     * @param event The deactivation event
+     * @param entity The block entity
+     */
+    @ReceiveEvent(components = {BlockComponent.class, InventoryComponent.class})
+    public void onInventoryBlockDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        Vector3i position = positions.remove(entity);
+        if (position == null) {
+            return;
+        }
+        long key = cellKey(position.x() >> CELL_BITS, position.y() >> CELL_BITS, position.z() >> CELL_BITS);
+        List<EntityRef> cell = cells.get(key);
+        if (cell != null) {
+            cell.remove(entity);
+            if (cell.isEmpty()) {
+                cells.remove(key);
+            }
+        }
+        dropLinksCovering(position);
+        dropLinks(entity);
+    }
+
+    /**
+     * Forgets the linked inventories of a workstation once it is removed or unloaded.
+     *
+     * @param event The deactivation event
+     * @param entity The workstation
+     */
+    @ReceiveEvent(components = CraftingWorkstationComponent.class)
+    public void onWorkstationDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        dropLinks(entity);
+    }
+
+    /**
+     * Called when the item in a slot of an inventory is replaced.
+     *
+     * @param event The slot change event
+     * @param entity The entity owning the inventory
+     */
+    @ReceiveEvent(components = InventoryComponent.class)
+    public void onSlotChanged(InventorySlotChangedEvent event, EntityRef entity) {
+        updateSlot(entity, event.getSlot());
+    }
+
+    /**
+     * Called when the size of a stack in an inventory changes.
+     *
+     * @param event The stack size change event
+     * @param entity The entity owning the inventory
+     */
+    @ReceiveEvent(components = InventoryComponent.class)
+    public void onStackSizeChanged(InventorySlotStackSizeChangedEvent event, EntityRef entity) {
+        updateSlot(entity, event.getSlot());
+    }
+
+    @Override
+    public List<EntityRef> getInventoriesNear(Vector3ic position, int radius) {
+        List<EntityRef> result = new ArrayList<>();
+        long radiusSquared = (long) radius * radius;
+        for (int x = (position.x() - radius) >> CELL_BITS; x <= (position.x() + radius) >> CELL_BITS; x++) {
+            for (int y = (position.y() - radius) >> CELL_BITS; y <= (position.y() + radius) >> CELL_BITS; y++) {
+                for (int z = (position.z() - radius) >> CELL_BITS; z <= (position.z() + radius) >> CELL_BITS; z++) {
+                    List<EntityRef> cell = cells.get(cellKey(x, y, z));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (EntityRef entity : cell) {
+                        if (positions.get(entity).distanceSquared(position) <= radiusSquared) {
+                            result.add(entity);
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public LinkedInventories getLinkedInventories(EntityRef workstation) {
+        CraftingWorkstationComponent component = workstation.getComponent(CraftingWorkstationComponent.class);
+        BlockComponent block = workstation.getComponent(BlockComponent.class);
+        if (component == null || block == null || component.ingredientRadius <= 0) {
+            return null;
+        }
+        checkStoreVersion();
+        LinkedInventories linked = links.get(workstation);
+        if (linked == null) {
+            Vector3ic position = block.getPosition();
+            linked = new LinkedInventories(position, component.ingredientRadius);
+            for (EntityRef inventory : getInventoriesNear(position, component.ingredientRadius)) {
+                if (inventory.exists()) {
+                    linked.addMember(counts.computeIfAbsent(inventory, key -> new InventoryCounts(key, recipeStore)));
+                }
+            }
+            links.put(workstation, linked);
+            metrics.increment("inventories.linksBuilt");
+        }
+        return linked;
+    }
+
+    /**
+     * Re-reads a single slot of a linked inventory
+     *
+     * @param entity The entity owning the inventory
+     * @param slot The slot that changed
+     */
+    private void updateSlot(EntityRef entity, int slot) {
+        InventoryCounts inventory = counts.get(entity);
+        if (inventory != null) {
+            checkStoreVersion();
+            inventory = counts.get(entity);
+        }
+        if (inventory != null) {
+            inventory.readSlot(slot, recipeStore);
+        }
+    }
+
+    /**
+     * Drops the linked inventories of every workstation whose radius covers a block position
+     *
+     * @param position The position of the block that was placed or removed
+     */
+    private void dropLinksCovering(Vector3ic position) {
+        Iterator<LinkedInventories> iterator = links.values().iterator();
+        while (iterator.hasNext()) {
+            LinkedInventories linked = iterator.next();
+            if (linked.covers(position)) {
+                iterator.remove();
+                unlink(linked);
+            }
+        }
+    }
+
+    /**
+     * Drops the linked inventories of a workstation
+     *
+     * @param workstation The workstation
+     */
+    private void dropLinks(EntityRef workstation) {
+        LinkedInventories linked = links.remove(workstation);
+        if (linked != null) {
+            unlink(linked);
+        }
+    }
+
+    /**
+     * Removes a set of linked inventories from its members, forgetting the counts of members no longer linked anywhere
+     *
+     * @param linked The dropped links
+     */
+    private void unlink(LinkedInventories linked) {
+        for (InventoryCounts member : linked.getMembers()) {
+            member.getLinks().remove(linked);
+            if (member.getLinks().isEmpty()) {
+                counts.remove(member.getEntity());
+            }
+        }
+    }
+
+    /**
+     * Forgets all the counts if recipes have been added to or removed from the store since, as the ingredient ids may
+     * be out of date
+     */
+    private void checkStoreVersion() {
+        if (storeVersion != recipeStore.getVersion()) {
+            storeVersion = recipeStore.getVersion();
+            links.clear();
+            counts.clear();
+        }
+    }
+
+    private static long cellKey(int x, int y, int z) {
+        return ((long) x & 0x1FFFFF) << 42 | ((long) y & 0x1FFFFF) << 21 | ((long) z & 0x1FFFFF);
+    }
+}
@@ -0,0 +1,114 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+import org.joml.Vector3i;
+import org.joml.Vector3ic;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The inventories around a workstation that it takes ingredients from, along with the total count of each ingredient
+ * over all of them.
+ * <p>
+ * The totals are updated whenever a slot in one of the inventories changes, so checking whether the inventories hold
+ * enough for a craft never has to look at them.
+ */
+public final class LinkedInventories {
+    private final Vector3i position;
+    private final int radius;
+    private final List<InventoryCounts> members = new ArrayList<>();
+    private long[] totals = new long[0];
+
+    LinkedInventories(Vector3ic position, int radius) {
+        this.position = new Vector3i(position);
+        this.radius = radius;
+    }
+
+    /**
+     * @return The number of linked inventories
+     */
+    public int size() {
+        return members.size();
+    }
+
+    /**
+     * @param ingredient The id of the ingredient
+     * @return The total number of items satisfying the ingredient over all the linked inventories
+     */
+    public long getTotal(int ingredient) {
+        return ingredient >= 0 && ingredient < totals.length ? totals[ingredient] : 0;
+    }
+
+    /**
+     * Gets the linked inventories that hold at least one of a number of ingredients
+     *
+     * @param ingredients The ids of the ingredients
+     * @return The entities owning those inventories
+     */
+    public List<EntityRef> getInventoriesWith(int[] ingredients) {
+        List<EntityRef> result = new ArrayList<>();
+        boolean anyTotal = false;
+        for (int ingredient : ingredients) {
+            anyTotal |= getTotal(ingredient) > 0;
+        }
+        if (!anyTotal) {
+            return result;
+        }
+        for (InventoryCounts member : members) {
+            for (int ingredient : ingredients) {
+                if (member.getCount(ingredient) > 0) {
+                    result.add(member.getEntity());
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Check if a block position is close enough to be linked
+     *
+     * @param blockPosition The position to check
+     * @return True if it is within the radius of the workstation
+     */
+    boolean covers(Vector3ic blockPosition) {
+        return position.distanceSquared(blockPosition) <= (long) radius * radius;
+    }
+
+    List<InventoryCounts> getMembers() {
+        return members;
+    }
+
+    /**
+     * Links an inventory, adding its counts to the totals
+     *
+     * @param member The inventory to link
+     */
+    void addMember(InventoryCounts member) {
+        members.add(member);
+        member.addLink(this);
+        long[] counts = member.getCounts();
+        for (int ingredient = 0; ingredient < counts.length; ingredient++) {
+            if (counts[ingredient] != 0) {
+                addCount(ingredient, counts[ingredient]);
+            }
+        }
+    }
+
+    /**
+     * Changes the total of an ingredient
+     *
+     * @param ingredient The id of the ingredient
+     * @param delta The number of items added, or removed if negative
+     */
+    void addCount(int ingredient, long delta) {
+        if (ingredient >= totals.length) {
+            totals = Arrays.copyOf(totals, Math.max(ingredient + 1, totals.length * 2));
+        }
+        totals[ingredient] += delta;
+    }
+}
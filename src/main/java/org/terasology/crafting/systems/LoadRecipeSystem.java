@@ -8,45 +8,83 @@ import org.terasology.engine.entitySystem.prefab.Prefab;
 import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
 import org.terasology.engine.entitySystem.systems.RegisterSystem;
 import org.terasology.engine.registry.In;
-import org.terasology.gestalt.assets.management.AssetManager;
+import org.terasology.engine.registry.Share;
 import org.terasology.gestalt.entitysystem.component.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 
 /**
  * Loads recipes from prefabs.
+ * The prefabs are visited by the {@link PrefabScraper}, which calls this system at the right point of startup.
  */
+@Share(RecipeLoader.class)
 @RegisterSystem
-public class LoadRecipeSystem extends BaseComponentSystem {
+public class LoadRecipeSystem extends BaseComponentSystem implements RecipeLoader {
     @In
     private RecipeStore recipeStore;
-    @In
-    private AssetManager assetManager;
+
+    private List<SourcedComponent> recipeComponents = new ArrayList<>();
+
+    @Override
+    public void addScanHandlers(PrefabScanner scanner) {
+        scanner.addHandler(RecipeComponent.class,
+                (prefab, component) -> recipeComponents.add(new SourcedComponent(prefab.getName(), component)));
+    }
 
     /**
-     * Called after the systems have all been setup
-     * Searches all prefabs for any components that implement RecipeComponent.
-     * If it finds a matching component then it attempts to add all recipes from it to the RecipeStore.
+     * Adds all recipes from the collected components to the RecipeStore.
+     * They are added in prefab order, so every recipe gets the same index on every run.
      */
     @Override
-    public void postBegin() {
-        for (Prefab prefab : assetManager.getLoadedAssets(Prefab.class)) {
+    public void loadRecipes() {
+        for (SourcedComponent component : recipeComponents) {
+            putRecipes(component.component, component.source);
+        }
+        recipeComponents.clear();
+    }
+
+    @Override
+    public void reloadRecipes(String prefabName, Prefab prefab) {
+        recipeStore.removeRecipes(prefabName);
+        if (prefab != null) {
             for (Component component : prefab.iterateComponents()) {
-                if (RecipeComponent.class.isAssignableFrom(component.getClass())) {
-                    loadRecipeComponent(component);
+                if (component instanceof RecipeComponent) {
+                    putRecipes((RecipeComponent) component, prefabName);
                 }
             }
         }
+    }
 
+    @Override
+    public void discardRecipes() {
+        recipeComponents.clear();
     }
 
     /**
      * Adds the recipes from a RecipeComponent to the RecipeStore
-     * @param genericComponent The component to add from.
+     *
+     * @param component The component to build from
+     * @param source The name of the prefab the component is in
      */
-    private void loadRecipeComponent(Component genericComponent) {
-        RecipeComponent component = (RecipeComponent) genericComponent;
+    private void putRecipes(RecipeComponent component, String source) {
+        String[] categories = component.getCategories();
         for (Recipe recipe : component.getRecipes()) {
-            recipeStore.putRecipe(recipe, component.getCategories());
+            recipeStore.putRecipe(recipe, categories, source);
+        }
+    }
+
+    /**
+     * A RecipeComponent along with the name of the prefab it was found in.
+     */
+    private static final class SourcedComponent {
+        private final String source;
+        private final RecipeComponent component;
+
+        private SourcedComponent(String source, RecipeComponent component) {
+            this.source = source;
+            this.component = component;
         }
     }
 }
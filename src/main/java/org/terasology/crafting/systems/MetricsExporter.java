@@ -0,0 +1,25 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+/**
+ * Receives the values of all crafting metrics when they are exported.
+ * Register one with {@link CraftingMetrics#addExporter(MetricsExporter)} to send the metrics elsewhere.
+ */
+public interface MetricsExporter {
+    /**
+     * Called for every counter and gauge.
+     *
+     * @param name The name of the metric
+     * @param value The current value
+     */
+    void value(String name, long value);
+
+    /**
+     * Called for every latency histogram.
+     *
+     * @param name The name of the metric
+     * @param histogram The recorded durations
+     */
+    void histogram(String name, LatencyHistogram histogram);
+}
@@ -0,0 +1,16 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+/**
+ * Applies changes to single prefabs to everything crafting has collected from the prefabs.
+ */
+public interface PrefabReloader {
+    /**
+     * Bring the recipes, ingredient names and icons of a single prefab up to date after it was reloaded, added or
+     * removed.
+     *
+     * @param prefabName The name of the prefab
+     */
+    void reloadPrefab(String prefabName);
+}
@@ -0,0 +1,131 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+import org.terasology.engine.entitySystem.prefab.Prefab;
+import org.terasology.gestalt.entitysystem.component.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Visits every prefab exactly once and hands each component to the handlers registered for its type.
+ * <p>
+ * While scanning it also records which prefabs contain each component class, so that later stages can look prefabs
+ * up by component without iterating over all of them again.
+ * Prefabs are visited in the order of their URN, so the results are the same on every run.
+ */
+public class PrefabScanner {
+    private final List<Registration<?>> registrations = new ArrayList<>();
+    private final Map<Class<?>, List<Registration<?>>> handlersByClass = new HashMap<>();
+    private final Map<Class<?>, List<Prefab>> prefabsByComponent = new HashMap<>();
+    private final List<Prefab> prefabs = new ArrayList<>();
+
+    /**
+     * Handles a single component of a prefab.
+     *
+     * @param <T> The type of the component
+     */
+    @FunctionalInterface
+    public interface Handler<T> {
+        /**
+         * @param prefab The prefab being scanned
+         * @param component The component of the prefab
+         */
+        void handle(Prefab prefab, T component);
+    }
+
+    /**
+     * Registers a handler for all components of a type, including its subclasses and implementations.
+     * Must be called before {@link #scan(Iterable)}.
+     *
+     * @param type The type of component to handle
+     * @param handler The handler to call
+     * @param <T> The type of component
+     */
+    public <T> void addHandler(Class<T> type, Handler<? super T> handler) {
+        registrations.add(new Registration<>(type, handler));
+        handlersByClass.clear();
+    }
+
+    /**
+     * Visits all the given prefabs and their components.
+     *
+     * @param loadedPrefabs The prefabs to scan
+     */
+    public void scan(Iterable<Prefab> loadedPrefabs) {
+        for (Prefab prefab : loadedPrefabs) {
+            prefabs.add(prefab);
+        }
+        prefabs.sort(Comparator.comparing(prefab -> prefab.getUrn().toString()));
+
+        for (Prefab prefab : prefabs) {
+            for (Component component : prefab.iterateComponents()) {
+                Class<?> componentClass = component.getClass();
+                prefabsByComponent.computeIfAbsent(componentClass, key -> new ArrayList<>()).add(prefab);
+                for (Registration<?> registration : getHandlers(componentClass)) {
+                    registration.handle(prefab, component);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return All the scanned prefabs, in the order they were visited
+     */
+    public List<Prefab> getPrefabs() {
+        return Collections.unmodifiableList(prefabs);
+    }
+
+    /**
+     * Get all the scanned prefabs that contain a component of exactly the given class.
+     *
+     * @param componentClass The component class to look for
+     * @return The prefabs, in the order they were visited
+     */
+    public List<Prefab> getPrefabsWith(Class<? extends Component> componentClass) {
+        List<Prefab> found = prefabsByComponent.get(componentClass);
+        return found == null ? Collections.emptyList() : Collections.unmodifiableList(found);
+    }
+
+    /**
+     * Get the handlers that apply to a component class, working them out on the first encounter of the class
+     *
+     * @param componentClass The concrete class of a component
+     * @return The handlers to call
+     */
+    private List<Registration<?>> getHandlers(Class<?> componentClass) {
+        List<Registration<?>> handlers = handlersByClass.get(componentClass);
+        if (handlers == null) {
+            handlers = new ArrayList<>();
+            for (Registration<?> registration : registrations) {
+                if (registration.type.isAssignableFrom(componentClass)) {
+                    handlers.add(registration);
+                }
+            }
+            handlersByClass.put(componentClass, handlers);
+        }
+        return handlers;
+    }
+
+    /**
+     * A handler along with the type it was registered for.
+     */
+    private static final class Registration<T> {
+        private final Class<T> type;
+        private final Handler<? super T> handler;
+
+        private Registration(Class<T> type, Handler<? super T> handler) {
+            this.type = type;
+            this.handler = handler;
+        }
+
+        private void handle(Prefab prefab, Object component) {
+            handler.handle(prefab, type.cast(component));
+        }
+    }
+}
@@ -2,19 +2,134 @@
 // SPDX-License-Identifier: Apache-2.0
 package org.terasology.crafting.systems;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.engine.core.module.ModuleManager;
+import org.terasology.engine.entitySystem.prefab.Prefab;
 import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
 import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.logic.console.commandSystem.annotations.Command;
+import org.terasology.engine.logic.console.commandSystem.annotations.CommandParam;
 import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.gestalt.assets.management.AssetManager;
 
+/**
+ * Runs all of the startup work that needs to look at prefabs.
+ * The prefabs are scanned once, then each stage runs on the results in dependency order.
+ * Later changes to a single prefab can be applied with {@link #reloadPrefab(String)}.
+ */
+@Share(PrefabReloader.class)
 @RegisterSystem
-public class PrefabScraper extends BaseComponentSystem {
+public class PrefabScraper extends BaseComponentSystem implements PrefabReloader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PrefabScraper.class);
+    private static final String CACHE_FILE = "BasicCrafting-recipes.bin";
+
     @In
     private RecipeStore recipeStore;
     @In
     private IconManager iconManager;
+    @In
+    private RecipeLoader recipeLoader;
+    @In
+    private AssetManager assetManager;
+    @In
+    private ModuleManager moduleManager;
+    @In
+    private CraftingMetrics metrics;
 
     public void postBegin() {
-        recipeStore.scrapeIngredientNames();
-        iconManager.scrapeIcons();
+        long start = metrics.startTimer();
+        PrefabScanner scanner = new PrefabScanner();
+        recipeLoader.addScanHandlers(scanner);
+        RecipeCache cache = openCache();
+        if (cache != null) {
+            cache.addScanHandlers(scanner);
+        }
+        scanner.scan(assetManager.getLoadedAssets(Prefab.class));
+        metrics.stopTimer("startup.scanPrefabs", start);
+
+        start = metrics.startTimer();
+        boolean cached = cache != null && cache.read();
+        metrics.stopTimer("startup.readCache", start);
+        if (cached) {
+            recipeLoader.discardRecipes();
+            start = metrics.startTimer();
+            iconManager.scrapeIcons(scanner);
+            metrics.stopTimer("startup.scrapeIcons", start);
+            return;
+        }
+
+        /* Icons are linked to the ingredient names, so those have to be known first */
+        start = metrics.startTimer();
+        recipeStore.scrapeIngredientNames(scanner);
+        metrics.stopTimer("startup.scrapeIngredientNames", start);
+
+        start = metrics.startTimer();
+        iconManager.scrapeIcons(scanner);
+        metrics.stopTimer("startup.scrapeIcons", start);
+
+        start = metrics.startTimer();
+        recipeLoader.loadRecipes();
+        metrics.stopTimer("startup.loadRecipes", start);
+
+        if (cache != null) {
+            start = metrics.startTimer();
+            cache.write();
+            metrics.stopTimer("startup.writeCache", start);
+        }
+    }
+
+    /**
+     * Opens the recipe cache if it is turned on. Only the store of this module can be cached.
+     * The cache file is only ever touched through {@link RecipeCache}, so if the module sandbox keeps it from being
+     * loaded at all the recipes are still loaded from the prefabs.
+     *
+     * @return The cache, or null if it can't be used
+     */
+    private RecipeCache openCache() {
+        if (!CraftingSettings.get(assetManager).recipeCache || !(recipeStore instanceof RecipeStoreImpl)) {
+            return null;
+        }
+        try {
+            return RecipeCache.open(CACHE_FILE, moduleManager.getEnvironment(), (RecipeStoreImpl) recipeStore);
+        } catch (LinkageError e) {
+            LOGGER.info("Recipe cache disabled, it can't be loaded: {}", e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Brings the recipes, ingredient names and icons of a single prefab up to date after it was reloaded, added or
+     * removed. Only that prefab is looked at, unless it links components to ingredient names, in which case the names
+     * and icons of the other prefabs it renames are brought up to date too.
+     *
+     * @param prefabName The name of the prefab
+     */
+    @Override
+    public void reloadPrefab(String prefabName) {
+        long start = metrics.startTimer();
+        Prefab prefab = assetManager.getAsset(prefabName, Prefab.class).orElse(null);
+        String name = prefab == null ? prefabName : prefab.getName();
+        for (String renamed : recipeStore.updateIngredientNames(name, prefab)) {
+            /* Icons are linked under the ingredient names, so prefabs given other names need new links too */
+            iconManager.updateIcons(renamed, assetManager.getAsset(renamed, Prefab.class).orElse(null));
+        }
+        iconManager.updateIcons(name, prefab);
+        recipeLoader.reloadRecipes(name, prefab);
+        metrics.stopTimer("reload.prefab", start);
+    }
+
+    /**
+     * Console command to apply a prefab reload to the crafting stores.
+     *
+     * @param prefabName The name of the prefab that changed
+     * @return A summary of the recipes now loaded from the prefab
+     */
+    @Command(shortDescription = "Reloads the recipes of a prefab",
+            helpText = "Updates the crafting recipes, ingredient names and icons of a prefab after it has changed.")
+    public String reloadRecipes(@CommandParam("prefab") String prefabName) {
+        reloadPrefab(prefabName);
+        return recipeStore.getRecipesFrom(prefabName).size() + " recipes loaded from " + prefabName;
     }
 }
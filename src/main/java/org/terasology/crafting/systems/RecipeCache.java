@@ -0,0 +1,357 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.crafting.components.ComponentToIngredientComponent;
+import org.terasology.crafting.components.CraftingIngredientComponent;
+import org.terasology.crafting.components.RecipeComponent;
+import org.terasology.crafting.components.Recipe;
+import org.terasology.crafting.listCrafting.components.ListRecipe;
+import org.terasology.crafting.listCrafting.components.ListRecipeContainer;
+import org.terasology.crafting.listCrafting.components.ListRecipesComponent;
+import org.terasology.engine.core.paths.PathManager;
+import org.terasology.engine.entitySystem.prefab.Prefab;
+import org.terasology.gestalt.entitysystem.component.Component;
+import org.terasology.gestalt.module.Module;
+import org.terasology.gestalt.module.ModuleEnvironment;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A file holding the compiled contents of the {@link RecipeStoreImpl}, so that they don't have to be rebuilt on every
+ * start.
+ * <p>
+ * The cache is keyed on the active modules and a hash of every prefab's components, including the full contents of
+ * all recipe and ingredient name components. Any difference in the key, format or file contents discards the cache.
+ * <p>
+ * Reading and writing the file needs access to the game's cache folder, which the module sandbox may deny. Every
+ * failure to reach the file only disables the cache, the recipes are then loaded from the prefabs as usual.
+ */
+final class RecipeCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RecipeCache.class);
+    private static final int MAGIC = 0x42435243;
+    private static final int FORMAT_VERSION = 3;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    /**
+     * The longest list the cache may hold, so a broken length can't make reading allocate huge arrays.
+     */
+    private static final int MAX_COUNT = 1 << 24;
+
+    private final Path file;
+    private final RecipeStoreImpl recipeStore;
+    private long key = FNV_OFFSET;
+    private boolean cacheable = true;
+    private Prefab lastPrefab;
+
+    /**
+     * @param file The file to store the cache in
+     * @param environment The active modules, which become part of the key
+     * @param recipeStore The store to fill from the cache and write to it
+     */
+    RecipeCache(Path file, ModuleEnvironment environment, RecipeStoreImpl recipeStore) {
+        this.file = file;
+        this.recipeStore = recipeStore;
+        for (Module module : environment) {
+            hash(module.getId().toString());
+            hash(module.getVersion().toString());
+        }
+    }
+
+    /**
+     * Opens a cache in the cache folder of the game.
+     *
+     * @param fileName The name of the file to store the cache in
+     * @param environment The active modules, which become part of the key
+     * @param recipeStore The store to fill from the cache and write to it
+     * @return The cache, or null if the cache folder can't be reached
+     */
+    static RecipeCache open(String fileName, ModuleEnvironment environment, RecipeStoreImpl recipeStore) {
+        try {
+            return new RecipeCache(PathManager.getInstance().getHomePath().resolve("cache").resolve(fileName),
+                    environment, recipeStore);
+        } catch (RuntimeException | LinkageError e) {
+            /* Thrown when the sandbox doesn't allow the module to look up or use the game's folders */
+            LOGGER.info("Recipe cache disabled, the cache folder can't be reached: {}", e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Registers the handlers that hash the prefab contents into the key.
+     *
+     * @param scanner The scanner that is about to visit all prefabs
+     */
+    void addScanHandlers(PrefabScanner scanner) {
+        scanner.addHandler(Component.class, this::hashComponentType);
+        scanner.addHandler(ListRecipesComponent.class, (prefab, component) -> hashRecipes(component));
+        scanner.addHandler(RecipeComponent.class, (prefab, component) -> {
+            if (!(component instanceof ListRecipesComponent)) {
+                /* The contents of other recipe components are unknown, so changes to them can't be detected */
+                cacheable = false;
+            }
+        });
+        scanner.addHandler(CraftingIngredientComponent.class, (prefab, component) -> hash(component.ingredientIds));
+        scanner.addHandler(ComponentToIngredientComponent.class, (prefab, component) -> {
+            for (Map.Entry<String, List<String>> entry : component.componentMap.entrySet()) {
+                hash(entry.getKey());
+                hash(entry.getValue());
+            }
+        });
+    }
+
+    /**
+     * Fills the store from the cache if it matches the scanned prefabs.
+     * Must only be called after the prefabs have been scanned, while the store is still empty.
+     *
+     * @return True if the store was filled, false if the cache is missing or out of date
+     */
+    boolean read() {
+        if (!cacheable) {
+            return false;
+        }
+        try {
+            if (!Files.isRegularFile(file)) {
+                return false;
+            }
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION || input.readLong() != key) {
+                    return false;
+                }
+                readStore(input, recipeStore);
+                return true;
+            }
+        } catch (IOException | RuntimeException | LinkageError e) {
+            /* Besides broken files, this covers the sandbox denying access to the file */
+            LOGGER.warn("Discarding unreadable recipe cache {}", file, e);
+            return false;
+        }
+    }
+
+    /**
+     * Writes the contents of the store to the cache, replacing any old cache.
+     * Must only be called once the store has been filled from the prefabs.
+     */
+    void write() {
+        if (!cacheable || !isCacheable(recipeStore)) {
+            return;
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (DataOutputStream output =
+                         new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                output.writeLong(key);
+                writeStore(output, recipeStore);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException | LinkageError e) {
+            LOGGER.warn("Could not write recipe cache {}", file, e);
+        }
+    }
+
+    /**
+     * Checks if everything in a store can be written to the cache
+     *
+     * @return True if all the recipes are list recipes, the only type the cache supports
+     */
+    private static boolean isCacheable(RecipeStoreImpl recipeStore) {
+        for (int index = 0; index < recipeStore.getIndexCount(); index++) {
+            Recipe recipe = recipeStore.getRecipeAt(index);
+            if (recipe != null && recipe.getClass() != ListRecipe.class) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the recipes of a store, their sources and categories, and the other ingredient names
+     */
+    private static void writeStore(DataOutput output, RecipeStoreImpl recipeStore) throws IOException {
+        List<String> categoryNames = recipeStore.getCategoryNames();
+        output.writeInt(categoryNames.size());
+        for (String category : categoryNames) {
+            output.writeUTF(category);
+        }
+
+        Map<String, Set<String>> links = recipeStore.getIngredientLinks();
+        output.writeInt(links.size());
+        for (Map.Entry<String, Set<String>> entry : links.entrySet()) {
+            output.writeUTF(entry.getKey());
+            output.writeInt(entry.getValue().size());
+            for (String name : entry.getValue()) {
+                output.writeUTF(name);
+            }
+        }
+
+        int recipeCount = 0;
+        for (int index = 0; index < recipeStore.getIndexCount(); index++) {
+            recipeCount += recipeStore.getRecipeAt(index) != null ? 1 : 0;
+        }
+        output.writeInt(recipeCount);
+        for (int index = 0; index < recipeStore.getIndexCount(); index++) {
+            ListRecipe recipe = (ListRecipe) recipeStore.getRecipeAt(index);
+            if (recipe == null) {
+                continue;
+            }
+            String source = recipeStore.getSourceAt(index);
+            output.writeUTF(source == null ? "" : source);
+            output.writeUTF(recipe.output);
+            output.writeInt(recipe.outputCount);
+            output.writeFloat(recipe.duration);
+            String[] inputs = recipe.getInputNames();
+            output.writeInt(inputs.length);
+            for (int i = 0; i < inputs.length; i++) {
+                output.writeUTF(inputs[i]);
+                output.writeInt(recipe.inputCounts[i]);
+            }
+
+            int categoryCount = 0;
+            for (int categoryId = 0; categoryId < categoryNames.size(); categoryId++) {
+                categoryCount += recipeStore.isInCategory(index, categoryId) ? 1 : 0;
+            }
+            output.writeInt(categoryCount);
+            for (int categoryId = 0; categoryId < categoryNames.size(); categoryId++) {
+                if (recipeStore.isInCategory(index, categoryId)) {
+                    output.writeInt(categoryId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills an empty store from what {@link #writeStore(DataOutput, RecipeStoreImpl)} wrote.
+     * Everything is read before the store is touched, so a broken file leaves it empty.
+     */
+    private static void readStore(DataInput input, RecipeStoreImpl recipeStore) throws IOException {
+        String[] categories = new String[readCount(input)];
+        for (int i = 0; i < categories.length; i++) {
+            categories[i] = input.readUTF();
+        }
+
+        Map<String, List<String>> links = new LinkedHashMap<>();
+        int linkCount = readCount(input);
+        for (int i = 0; i < linkCount; i++) {
+            String key = input.readUTF();
+            String[] names = new String[readCount(input)];
+            for (int j = 0; j < names.length; j++) {
+                names[j] = input.readUTF();
+            }
+            links.put(key, Arrays.asList(names));
+        }
+
+        int recipeCount = readCount(input);
+        ListRecipe[] recipes = new ListRecipe[recipeCount];
+        String[][] recipeCategories = new String[recipeCount][];
+        String[] sources = new String[recipeCount];
+        for (int i = 0; i < recipeCount; i++) {
+            String source = input.readUTF();
+            sources[i] = source.isEmpty() ? null : source;
+            String output = input.readUTF();
+            int outputCount = input.readInt();
+            float duration = input.readFloat();
+            String[] inputItems = new String[readCount(input)];
+            int[] inputCounts = new int[inputItems.length];
+            for (int j = 0; j < inputItems.length; j++) {
+                inputItems[j] = input.readUTF();
+                inputCounts[j] = input.readInt();
+            }
+            recipeCategories[i] = new String[readCount(input)];
+            for (int j = 0; j < recipeCategories[i].length; j++) {
+                int category = input.readInt();
+                if (category < 0 || category >= categories.length) {
+                    throw new IOException("Unknown category " + category);
+                }
+                recipeCategories[i][j] = categories[category];
+            }
+            recipes[i] = new ListRecipe(inputItems, inputCounts, output, outputCount);
+            recipes[i].duration = duration;
+        }
+
+        recipeStore.restoreIngredientNames(links);
+        for (int i = 0; i < recipeCount; i++) {
+            recipeStore.putRecipe(recipes[i], recipeCategories[i], sources[i]);
+        }
+    }
+
+    /**
+     * Reads the length of a list, rejecting lengths that no cache this size could hold
+     */
+    private static int readCount(DataInput input) throws IOException {
+        int count = input.readInt();
+        if (count < 0 || count > MAX_COUNT) {
+            throw new IOException("Invalid length " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Hashes which component types each prefab has, as these decide the names given by ComponentToIngredient
+     *
+     * @param prefab The prefab being scanned
+     * @param component One of its components
+     */
+    private void hashComponentType(Prefab prefab, Component component) {
+        if (prefab != lastPrefab) {
+            lastPrefab = prefab;
+            hash(prefab.getUrn().toString());
+        }
+        hash(component.getClass().getName());
+    }
+
+    private void hashRecipes(ListRecipesComponent component) {
+        hash(component.categories);
+        for (Map.Entry<String, ListRecipeContainer> entry : component.recipes.entrySet()) {
+            hash(entry.getKey());
+            ListRecipeContainer recipe = entry.getValue();
+            hash(recipe.output == null ? "" : recipe.output);
+            hash(recipe.outputCount);
+            hash(Float.floatToIntBits(recipe.duration));
+            if (recipe.inputs != null) {
+                for (Map.Entry<String, Integer> input : recipe.inputs.entrySet()) {
+                    hash(input.getKey());
+                    hash(input.getValue());
+                }
+            }
+        }
+    }
+
+    private void hash(List<String> values) {
+        hash(values.size());
+        for (String value : values) {
+            hash(value);
+        }
+    }
+
+    private void hash(String value) {
+        hash(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            key = (key ^ value.charAt(i)) * FNV_PRIME;
+        }
+    }
+
+    private void hash(int value) {
+        for (int shift = 0; shift < Integer.SIZE; shift += Byte.SIZE) {
+            key = (key ^ ((value >>> shift) & 0xff)) * FNV_PRIME;
+        }
+    }
+}
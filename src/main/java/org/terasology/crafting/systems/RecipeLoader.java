@@ -0,0 +1,35 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+import org.terasology.engine.entitySystem.prefab.Prefab;
+
+/**
+ * Builds recipes from the recipe components of prefabs and adds them to the {@link RecipeStore}.
+ */
+public interface RecipeLoader {
+    /**
+     * Register the handler that collects every component implementing RecipeComponent.
+     *
+     * @param scanner The scanner that is about to visit all prefabs
+     */
+    void addScanHandlers(PrefabScanner scanner);
+
+    /**
+     * Add all recipes from the collected components to the RecipeStore.
+     */
+    void loadRecipes();
+
+    /**
+     * Replace the recipes of a single prefab after it has been reloaded or removed.
+     *
+     * @param prefabName The name of the prefab
+     * @param prefab     The reloaded prefab, or null if it no longer exists
+     */
+    void reloadRecipes(String prefabName, Prefab prefab);
+
+    /**
+     * Drop the collected components without loading them, used when the recipes are restored from the cache instead.
+     */
+    void discardRecipes();
+}
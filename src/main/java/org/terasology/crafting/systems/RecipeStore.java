@@ -4,8 +4,11 @@ package org.terasology.crafting.systems;
 
 
 import org.terasology.crafting.components.Recipe;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.prefab.Prefab;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * Provides a centralised store for all recipes.
@@ -34,20 +37,58 @@ public interface RecipeStore {
      * @param categories  The categories to search through
      * @param filterClass The class to filter by
      * @param <T>         The type of the Recipe being used
-     * @return All recipes found
+     * @return An unmodifiable list of all recipes found, empty if there are none
      */
     <T extends Recipe> List<T> getRecipes(String[] categories, Class<T> filterClass);
 
     /**
-     * Get all recipes in a given category that are of a given type
+     * Get all recipes in a given category that are of a given type.
+     * Recipes are partitioned by type as they are added, so this returns a view without copying.
      *
      * @param category    The category to search through
      * @param filterClass The class to filter by
      * @param <T>         The type of the Recipe being used
-     * @return All recipes found
+     * @return An unmodifiable view of all recipes found, empty if there are none
      */
     <T extends Recipe> List<T> getRecipes(String category, Class<T> filterClass);
 
+    /**
+     * Get all recipes of a given type, whatever their category.
+     *
+     * @param filterClass The class to filter by
+     * @param <T>         The type of the Recipe being used
+     * @return An unmodifiable list of all recipes found, empty if there are none
+     */
+    <T extends Recipe> List<T> getRecipes(Class<T> filterClass);
+
+    /**
+     * Get all recipes that list the given ingredient as an input.
+     * Only recipes naming the ingredient itself are returned, see {@link #getRecipesUsing(EntityRef)} to include
+     * the other names of an item.
+     *
+     * @param ingredient The ingredient name to look for
+     * @return An unmodifiable view of the recipes in the order they were added, empty if there are none
+     */
+    List<Recipe> getRecipesUsing(String ingredient);
+
+    /**
+     * Get all recipes that the given item could be used in.
+     * This covers every ingredient the item satisfies, including its short name and other names.
+     *
+     * @param item The item to look for
+     * @return An unmodifiable list of the recipes in the order they were added, each listed once, or empty if there
+     * are none
+     */
+    List<Recipe> getRecipesUsing(EntityRef item);
+
+    /**
+     * Get all recipes that produce the given item.
+     *
+     * @param output The name of the item, as written in the recipes
+     * @return An unmodifiable view of the recipes in the order they were added, empty if there are none
+     */
+    List<Recipe> getRecipesProducing(String output);
+
     /**
      * Adds a recipe to the store.
      *
@@ -56,6 +97,49 @@ public interface RecipeStore {
      */
     void putRecipe(Recipe recipe, String[] categories);
 
+    /**
+     * Adds a recipe to the store, remembering where it came from so it can be removed or replaced later.
+     *
+     * @param recipe     The recipe to add
+     * @param categories The categories to add it under
+     * @param source     The name of the prefab the recipe was defined in, or null if it has none
+     */
+    void putRecipe(Recipe recipe, String[] categories, String source);
+
+    /**
+     * Removes all the recipes that came from a source.
+     * Only the indexes the recipes were in are touched, the rest of the store is left as it is.
+     *
+     * @param source The name of the prefab the recipes were defined in
+     * @return The number of recipes removed
+     */
+    int removeRecipes(String source);
+
+    /**
+     * Replaces all the recipes that came from a source with a new set.
+     *
+     * @param source     The name of the prefab the recipes were defined in
+     * @param recipes    The new recipes, may be empty
+     * @param categories The categories to add the new recipes under
+     */
+    void replaceRecipes(String source, Recipe[] recipes, String[] categories);
+
+    /**
+     * Get all the recipes that came from a source.
+     *
+     * @param source The name of the prefab the recipes were defined in
+     * @return An unmodifiable list of the recipes, empty if there are none
+     */
+    List<Recipe> getRecipesFrom(String source);
+
+    /**
+     * Get the source a recipe was added with.
+     *
+     * @param recipe The recipe to look up
+     * @return The lower case name of the prefab the recipe was defined in, or null if it has none
+     */
+    String getSource(Recipe recipe);
+
     /**
      * Check if a given category exists
      *
@@ -64,6 +148,23 @@ public interface RecipeStore {
      */
     boolean hasCategory(String category);
 
+    /**
+     * Check if a recipe was added under a category
+     *
+     * @param recipe The recipe to check
+     * @param category The category to look in
+     * @return True if the recipe is in the store under that category
+     */
+    boolean isInCategory(Recipe recipe, String category);
+
+    /**
+     * Get the version of the store, which changes whenever recipes or ingredient names are added.
+     * Anything built from the contents of the store can compare versions to tell if it is out of date.
+     *
+     * @return The current version
+     */
+    int getVersion();
+
     /**
      * Get's all the Other names associated with that prefab name.
      *
@@ -72,8 +173,45 @@ public interface RecipeStore {
      */
     String[] getIngredientNames(String name);
 
+    /**
+     * Get the id of an ingredient name.
+     * Ids are assigned the first time a name is seen and are case insensitive.
+     *
+     * @param name The ingredient name, as used in a recipe
+     * @return The id of the ingredient
+     */
+    int getIngredientId(String name);
+
+    /**
+     * Get the ids of all the ingredients an item can be used as.
+     * This covers the full name, short name and all other names of the item. The result is cached per prefab or block
+     * family, is sorted and must not be modified.
+     *
+     * @param item The item to check
+     * @return The sorted ingredient ids of the item
+     * @see IngredientIndex#satisfies(int[], int)
+     */
+    int[] getIngredientIds(EntityRef item);
+
     /**
      * Collect all the ingredient names from the prefabs.
      */
     void scrapeIngredientNames();
+
+    /**
+     * Collect all the ingredient names from prefabs that have already been scanned.
+     *
+     * @param scanner The scanner that has visited all prefabs
+     */
+    void scrapeIngredientNames(PrefabScanner scanner);
+
+    /**
+     * Update the ingredient names of a single prefab after it has been reloaded or removed.
+     * If the prefab gives names to components, now or before the reload, the names of every prefab are collected again.
+     *
+     * @param prefabName The name of the prefab
+     * @param prefab     The reloaded prefab, or null if it no longer exists
+     * @return The lower case names of the other prefabs whose ingredient names changed as well
+     */
+    Set<String> updateIngredientNames(String prefabName, Prefab prefab);
 }
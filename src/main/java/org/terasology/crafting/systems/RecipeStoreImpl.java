@@ -6,6 +6,7 @@ import org.terasology.crafting.components.ComponentToIngredientComponent;
 import org.terasology.crafting.components.CraftingIngredientComponent;
 import org.terasology.crafting.components.Recipe;
 import org.terasology.engine.entitySystem.entity.EntityManager;
+import org.terasology.engine.entitySystem.entity.EntityRef;
 import org.terasology.engine.entitySystem.prefab.Prefab;
 import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
 import org.terasology.engine.entitySystem.systems.RegisterSystem;
@@ -14,13 +15,18 @@ import org.terasology.engine.registry.Share;
 import org.terasology.gestalt.assets.management.AssetManager;
 import org.terasology.gestalt.entitysystem.component.Component;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Set;
 
 @Share(RecipeStore.class)
@@ -31,17 +37,56 @@ public class RecipeStoreImpl extends BaseComponentSystem implements RecipeStore
     private EntityManager entityManager;
     @In
     private AssetManager assetManager;
+    @In
+    private CraftingMetrics metrics;
 
+    /* Removed recipes leave a null behind, so the indices of the other recipes never change */
     private List<Recipe> recipeList = new ArrayList<>();
-    private Map<String, Set<Integer>> categoryLookup = new HashMap<>();
+    private List<String> recipeSources = new ArrayList<>();
+    private Map<Recipe, Integer> recipeIndices = new IdentityHashMap<>();
+    private Map<String, List<Recipe>> recipesBySource = new HashMap<>();
+    private Map<String, Integer> categoryIds = new HashMap<>();
+    private List<String> categoryNames = new ArrayList<>();
+    private List<BitSet> categoryMembers = new ArrayList<>();
+    private List<Map<Class<? extends Recipe>, RecipeSlice>> categoryTypes = new ArrayList<>();
+    private Map<Class<? extends Recipe>, BitSet> typeMembers = new HashMap<>();
+    private List<RecipeSlice> recipesByInput = new ArrayList<>();
+    private List<RecipeSlice> recipesByOutput = new ArrayList<>();
     private Map<String, Set<String>> ingredientLookup = new HashMap<>();
+    private Map<Class<? extends Component>, Set<String>> componentNames;
+    /* The lower case names of the prefabs that link components to ingredient names */
+    private Set<String> componentNameSources = new HashSet<>();
+    private IngredientIndex ingredientIndex = new IngredientIndex(this::getIngredientNames);
+    private int version;
+
+    @Override
+    public void initialise() {
+        metrics.registerGauge("store.recipes", () -> recipeIndices.size());
+        metrics.registerGauge("store.categories", () -> categoryNames.size());
+        metrics.registerGauge("store.ingredients", () -> ingredientIndex.size());
+        metrics.registerGauge("store.ingredientAliases", () -> ingredientLookup.size());
+    }
 
     public boolean hasCategory(String category) {
-        return categoryLookup.containsKey(category.toLowerCase());
+        return getCategoryId(category) != -1;
+    }
+
+    public boolean isInCategory(Recipe recipe, String category) {
+        Integer index = recipeIndices.get(recipe);
+        int categoryId = getCategoryId(category);
+        return index != null && categoryId != -1 && categoryMembers.get(categoryId).get(index);
+    }
+
+    public int getVersion() {
+        return version;
     }
 
     public Recipe[] getRecipes(String category) {
-        return getRecipes(new String[]{category});
+        int categoryId = getCategoryId(category);
+        if (categoryId == -1) {
+            return null;
+        }
+        return getRecipesFromIndices(categoryMembers.get(categoryId));
     }
 
     public Recipe[] getRecipes(String[] categories) {
@@ -49,35 +94,157 @@ public class RecipeStoreImpl extends BaseComponentSystem implements RecipeStore
     }
 
     public <T extends Recipe> List<T> getRecipes(String category, Class<T> filterClass) {
-        return getRecipes(new String[]{category}, filterClass);
+        int categoryId = getCategoryId(category);
+        if (categoryId == -1) {
+            return Collections.emptyList();
+        }
+        return getTypeSlice(categoryId, filterClass);
+    }
+
+    public <T extends Recipe> List<T> getRecipes(Class<T> filterClass) {
+        BitSet typeIndices = typeMembers.get(filterClass);
+        if (typeIndices == null) {
+            return Collections.emptyList();
+        }
+        return getRecipesFromIndices(typeIndices, filterClass);
     }
 
     public <T extends Recipe> List<T> getRecipes(String[] categories, Class<T> filterClass) {
-        Set<Integer> indices = getIndicesInCategories(categories);
+        if (categories.length == 1) {
+            return getRecipes(categories[0], filterClass);
+        }
+        BitSet typeIndices = typeMembers.get(filterClass);
+        if (typeIndices == null) {
+            return Collections.emptyList();
+        }
+        BitSet indices = getIndicesInCategories(categories);
+        indices.and(typeIndices);
         return getRecipesFromIndices(indices, filterClass);
     }
 
+    public List<Recipe> getRecipesUsing(String ingredient) {
+        return getIndexedRecipes(recipesByInput, ingredientIndex.findId(ingredient));
+    }
+
+    public List<Recipe> getRecipesUsing(EntityRef item) {
+        int[] ingredients = ingredientIndex.getIngredientIds(item);
+        RecipeSlice single = null;
+        BitSet merged = null;
+        for (int ingredient : ingredients) {
+            RecipeSlice recipes = getSlice(recipesByInput, ingredient);
+            if (recipes == null || recipes.isEmpty()) {
+                continue;
+            }
+            if (single == null) {
+                single = recipes;
+            } else {
+                /* Merged by index, so a recipe using several of the names is listed once and in store order */
+                if (merged == null) {
+                    merged = new BitSet(recipeList.size());
+                    merged.or(single.indices);
+                }
+                merged.or(recipes.indices);
+            }
+        }
+        if (merged != null) {
+            return getRecipesFromIndices(merged, Recipe.class);
+        }
+        return single == null ? Collections.emptyList() : single;
+    }
+
+    public List<Recipe> getRecipesProducing(String output) {
+        return getIndexedRecipes(recipesByOutput, ingredientIndex.findId(output));
+    }
+
+    /**
+     * Gets the recipes linked to an ingredient id in one of the reverse indexes
+     *
+     * @param index The index to look in
+     * @param ingredientId The id to look up, or -1 for an unknown name
+     * @return An unmodifiable view of the recipes
+     */
+    private List<Recipe> getIndexedRecipes(List<RecipeSlice> index, int ingredientId) {
+        RecipeSlice recipes = getSlice(index, ingredientId);
+        return recipes == null ? Collections.emptyList() : recipes;
+    }
+
+    /**
+     * @param index The reverse index to look in
+     * @param ingredientId The id to look up, or -1 for an unknown name
+     * @return The recipes linked to the id, or null if none ever were
+     */
+    private static RecipeSlice getSlice(List<RecipeSlice> index, int ingredientId) {
+        return ingredientId < 0 || ingredientId >= index.size() ? null : index.get(ingredientId);
+    }
+
     /**
-     * Filteres all the recipes with the given indices by a given type
+     * Links a recipe to an ingredient id in one of the reverse indexes
+     *
+     * @param index The index to add to
+     * @param ingredientId The id to link under
+     * @param recipe The recipe to add
+     * @param recipeIndex The index of the recipe in the store
+     */
+    private void addIndexedRecipe(List<RecipeSlice> index, int ingredientId, Recipe recipe, int recipeIndex) {
+        while (index.size() <= ingredientId) {
+            index.add(null);
+        }
+        RecipeSlice recipes = index.get(ingredientId);
+        if (recipes == null) {
+            recipes = new RecipeSlice();
+            index.set(ingredientId, recipes);
+        }
+        recipes.append(recipe, recipeIndex);
+    }
+
+    /**
+     * Unlinks a recipe from an ingredient id in one of the reverse indexes
+     *
+     * @param index The index to remove from
+     * @param ingredientId The id it was linked under
+     * @param recipe The recipe to remove
+     * @param recipeIndex The index of the recipe in the store
+     */
+    private void removeIndexedRecipe(List<RecipeSlice> index, int ingredientId, Recipe recipe, int recipeIndex) {
+        RecipeSlice recipes = getSlice(index, ingredientId);
+        if (recipes != null) {
+            recipes.remove(recipe, recipeIndex);
+        }
+    }
+
+    /**
+     * Gets the recipes of one type in a category.
+     * The slices are kept up to date as recipes are added, so this is a lookup and not a copy.
+     *
+     * @param categoryId The id of the category
+     * @param filterClass The exact type of the recipes
+     * @param <T> The type of the Recipe
+     * @return An unmodifiable view of the recipes
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends Recipe> List<T> getTypeSlice(int categoryId, Class<T> filterClass) {
+        RecipeSlice slice = categoryTypes.get(categoryId).get(filterClass);
+        if (slice == null) {
+            return Collections.emptyList();
+        }
+        /* Every recipe in the slice has exactly the class filterClass */
+        return (List<T>) (List<? extends Recipe>) slice;
+    }
+
+    /**
+     * Collects the recipes at the given indices, which must all be of the given type
      *
      * @param indices The indices of the recipes
-     * @param filterClass The class to filter by
-     * @param <T> The type of the filtering Recipe
-     * @return All recipes of that given type
-     */
-    private <T extends Recipe> List<T> getRecipesFromIndices(Set<Integer> indices, Class<T> filterClass) {
-        if (indices.size() > 0) {
-            List<T> recipes = new LinkedList<>();
-            for (int index : indices) {
-                Recipe recipe = recipeList.get(index);
-                if (recipe.getClass().equals(filterClass)) {
-                    recipes.add(filterClass.cast(recipeList.get(index)));
-                }
-            }
-            return recipes;
-        } else {
-            return null;
+     * @param filterClass The class of the recipes
+     * @param <T> The type of the Recipe
+     * @return An unmodifiable list of the recipes
+     */
+    private <T extends Recipe> List<T> getRecipesFromIndices(BitSet indices, Class<T> filterClass) {
+        List<T> recipes = new ArrayList<>(indices.cardinality());
+        for (int index = indices.nextSetBit(0); index >= 0; index = indices.nextSetBit(index + 1)) {
+            recipes.add(filterClass.cast(recipeList.get(index)));
         }
+        return Collections.unmodifiableList(recipes);
     }
 
     /**
@@ -86,27 +253,45 @@ public class RecipeStoreImpl extends BaseComponentSystem implements RecipeStore
      * @param categories The categories to collect from.
      * @return All recipe indices found
      */
-    private Set<Integer> getIndicesInCategories(String[] categories) {
-        Set<Integer> indices = new HashSet<>();
+    private BitSet getIndicesInCategories(String[] categories) {
+        BitSet indices = new BitSet(recipeList.size());
         for (String category : categories) {
-            String lowerCategory = category.toLowerCase();
-            if (categoryLookup.containsKey(lowerCategory)) {
-                indices.addAll(categoryLookup.get(lowerCategory));
+            int categoryId = getCategoryId(category);
+            if (categoryId != -1) {
+                indices.or(categoryMembers.get(categoryId));
             }
         }
         return indices;
     }
 
+    /**
+     * Get the id of a category without creating it.
+     * The spelling used is remembered so that repeated lookups do not need to lower case the name.
+     *
+     * @param category The category to look up
+     * @return The id of the category or -1 if it doesn't exist
+     */
+    private int getCategoryId(String category) {
+        Integer categoryId = categoryIds.get(category);
+        if (categoryId == null) {
+            categoryId = categoryIds.get(category.toLowerCase(Locale.ROOT));
+            if (categoryId == null) {
+                return -1;
+            }
+            categoryIds.put(category, categoryId);
+        }
+        return categoryId;
+    }
 
     /**
      * @param indices The indices to use
      * @return The recipes located at the indices.
      */
-    private Recipe[] getRecipesFromIndices(Set<Integer> indices) {
-        if (indices.size() > 0) {
-            Recipe[] recipes = new Recipe[indices.size()];
+    private Recipe[] getRecipesFromIndices(BitSet indices) {
+        if (!indices.isEmpty()) {
+            Recipe[] recipes = new Recipe[indices.cardinality()];
             int i = 0;
-            for (int index : indices) {
+            for (int index = indices.nextSetBit(0); index >= 0; index = indices.nextSetBit(index + 1)) {
                 recipes[i] = recipeList.get(index);
                 i++;
             }
@@ -124,14 +309,75 @@ public class RecipeStoreImpl extends BaseComponentSystem implements RecipeStore
      */
 
     public void putRecipe(Recipe recipe, String[] categories) {
-        int index = addRecipeToStore(recipe);
+        putRecipe(recipe, categories, null);
+    }
+
+    public void putRecipe(Recipe recipe, String[] categories, String source) {
+        String sourceKey = source == null ? null : source.toLowerCase(Locale.ROOT);
+        int index = addRecipeToStore(recipe, sourceKey);
+        version++;
+        if (sourceKey != null) {
+            recipesBySource.computeIfAbsent(sourceKey, key -> new ArrayList<>()).add(recipe);
+        }
+        typeMembers.computeIfAbsent(recipe.getClass(), type -> new BitSet()).set(index);
+        for (String input : recipe.getInputNames()) {
+            addIndexedRecipe(recipesByInput, ingredientIndex.getId(input), recipe, index);
+        }
+        for (String output : recipe.getOutputNames()) {
+            addIndexedRecipe(recipesByOutput, ingredientIndex.getId(output), recipe, index);
+        }
         for (String category : categories) {
-            addLinkToRecipe(index, category.toLowerCase());
+            addLinkToRecipe(index, recipe, category);
+        }
+    }
+
+    public int removeRecipes(String source) {
+        List<Recipe> removed = recipesBySource.remove(source.toLowerCase(Locale.ROOT));
+        if (removed == null) {
+            return 0;
+        }
+        for (Recipe recipe : removed) {
+            int index = recipeIndices.remove(recipe);
+            recipeList.set(index, null);
+            recipeSources.set(index, null);
+            typeMembers.get(recipe.getClass()).clear(index);
+            for (String input : recipe.getInputNames()) {
+                removeIndexedRecipe(recipesByInput, ingredientIndex.findId(input), recipe, index);
+            }
+            for (String output : recipe.getOutputNames()) {
+                removeIndexedRecipe(recipesByOutput, ingredientIndex.findId(output), recipe, index);
+            }
+            for (int categoryId = 0; categoryId < categoryMembers.size(); categoryId++) {
+                BitSet members = categoryMembers.get(categoryId);
+                if (members.get(index)) {
+                    members.clear(index);
+                    categoryTypes.get(categoryId).get(recipe.getClass()).remove(recipe, index);
+                }
+            }
         }
+        version++;
+        return removed.size();
+    }
+
+    public void replaceRecipes(String source, Recipe[] recipes, String[] categories) {
+        removeRecipes(source);
+        for (Recipe recipe : recipes) {
+            putRecipe(recipe, categories, source);
+        }
+    }
+
+    public List<Recipe> getRecipesFrom(String source) {
+        List<Recipe> recipes = recipesBySource.get(source.toLowerCase(Locale.ROOT));
+        return recipes == null ? Collections.emptyList() : Collections.unmodifiableList(recipes);
+    }
+
+    public String getSource(Recipe recipe) {
+        Integer index = recipeIndices.get(recipe);
+        return index == null ? null : recipeSources.get(index);
     }
 
     public String[] getIngredientNames(String name) {
-        String lowerName = name.toLowerCase();
+        String lowerName = name.toLowerCase(Locale.ROOT);
         if (ingredientLookup.containsKey(lowerName)) {
             return ingredientLookup.get(lowerName).toArray(new String[0]);
         } else {
@@ -139,26 +385,86 @@ public class RecipeStoreImpl extends BaseComponentSystem implements RecipeStore
         }
     }
 
+    public int getIngredientId(String name) {
+        return ingredientIndex.getId(name);
+    }
+
+    public int[] getIngredientIds(EntityRef item) {
+        return ingredientIndex.getIngredientIds(item);
+    }
+
     public void scrapeIngredientNames() {
-        scrapeNames(scrapeComponentMap());
+        PrefabScanner scanner = new PrefabScanner();
+        scanner.scan(assetManager.getLoadedAssets(Prefab.class));
+        scrapeIngredientNames(scanner);
+    }
+
+    public void scrapeIngredientNames(PrefabScanner scanner) {
+        componentNames = scrapeComponentMap(scanner);
+        scrapeNames(scanner, componentNames);
+        ingredientIndex.clearItemCache();
+    }
+
+    public Set<String> updateIngredientNames(String prefabName, Prefab prefab) {
+        String key = prefabName.toLowerCase(Locale.ROOT);
+        if (componentNames == null) {
+            /* The names were restored from the cache, so the component names haven't been collected yet */
+            PrefabScanner scanner = new PrefabScanner();
+            scanner.scan(assetManager.getLoadedAssets(Prefab.class));
+            componentNames = scrapeComponentMap(scanner);
+        }
+        if (componentNameSources.contains(key)
+                || (prefab != null && prefab.hasComponent(ComponentToIngredientComponent.class))) {
+            /* The prefab may give or have given names to any other prefab, so they all have to be looked at again */
+            Map<String, Set<String>> oldLookup = new HashMap<>(ingredientLookup);
+            ingredientLookup.clear();
+            scrapeIngredientNames();
+            Set<String> changed = new HashSet<>();
+            for (Map.Entry<String, Set<String>> entry : oldLookup.entrySet()) {
+                if (!entry.getValue().equals(ingredientLookup.get(entry.getKey()))) {
+                    changed.add(entry.getKey());
+                }
+            }
+            for (String name : ingredientLookup.keySet()) {
+                if (!oldLookup.containsKey(name)) {
+                    changed.add(name);
+                }
+            }
+            changed.remove(key);
+            return changed;
+        }
+
+        ingredientLookup.remove(key);
+        version++;
+        if (prefab != null) {
+            CraftingIngredientComponent ingredient = prefab.getComponent(CraftingIngredientComponent.class);
+            if (ingredient != null) {
+                addLink(key, ingredient.ingredientIds);
+            }
+            for (Map.Entry<Class<? extends Component>, Set<String>> entry : componentNames.entrySet()) {
+                if (prefab.hasComponent(entry.getKey())) {
+                    addLink(key, entry.getValue());
+                }
+            }
+        }
+        ingredientIndex.clearItemCache();
+        return Collections.emptySet();
     }
 
     /**
      * Collect all possible names for all prefabs
      *
+     * @param scanner The scanner that has visited all prefabs
      * @param componentMap A mapping from component to names
      */
-    private void scrapeNames(Map<Class<? extends Component>, Set<String>> componentMap) {
-        for (Prefab prefab : assetManager.getLoadedAssets(Prefab.class)) {
-            if (prefab.hasComponent(CraftingIngredientComponent.class)) {
-                addLink(prefab.getName().toLowerCase(),
-                        prefab.getComponent(CraftingIngredientComponent.class).ingredientIds);
-            }
-            for (Class<? extends Component> component : componentMap.keySet()) {
-                if (prefab.hasComponent(component)) {
-                    addLink(prefab.getName().toLowerCase(),
-                            componentMap.get(component));
-                }
+    private void scrapeNames(PrefabScanner scanner, Map<Class<? extends Component>, Set<String>> componentMap) {
+        for (Prefab prefab : scanner.getPrefabsWith(CraftingIngredientComponent.class)) {
+            addLink(prefab.getName().toLowerCase(Locale.ROOT),
+                    prefab.getComponent(CraftingIngredientComponent.class).ingredientIds);
+        }
+        for (Map.Entry<Class<? extends Component>, Set<String>> entry : componentMap.entrySet()) {
+            for (Prefab prefab : scanner.getPrefabsWith(entry.getKey())) {
+                addLink(prefab.getName().toLowerCase(Locale.ROOT), entry.getValue());
             }
         }
     }
@@ -170,6 +476,7 @@ public class RecipeStoreImpl extends BaseComponentSystem implements RecipeStore
      * @param items The names to add
      */
     private void addLink(String key, Collection<String> items) {
+        version++;
         Set<String> names = ingredientLookup.containsKey(key) ? ingredientLookup.get(key) : new HashSet<>();
         names.addAll(items);
         ingredientLookup.put(key, names);
@@ -178,51 +485,165 @@ public class RecipeStoreImpl extends BaseComponentSystem implements RecipeStore
     /**
      * Collect all the links between components and prefabs
      *
+     * @param scanner The scanner that has visited all prefabs
      * @return A map between components and ingredient names
      */
-    private Map<Class<? extends Component>, Set<String>> scrapeComponentMap() {
+    private Map<Class<? extends Component>, Set<String>> scrapeComponentMap(PrefabScanner scanner) {
         Map<Class<? extends Component>, Set<String>> result = new HashMap<>();
-        for (Prefab prefab : assetManager.getLoadedAssets(Prefab.class)) {
-            if (prefab.hasComponent(ComponentToIngredientComponent.class)) {
-                ComponentToIngredientComponent component = prefab.getComponent(ComponentToIngredientComponent.class);
-                for (Map.Entry<String, List<String>> entry : component.componentMap.entrySet()) {
-                    try {
-                        Class<? extends Component> componentClass = entityManager.getComponentLibrary()
-                                .resolve(entry.getKey().toLowerCase()).getType();
-                        Set<String> ingredientNames = result.containsKey(componentClass) ? result.get(componentClass) : new HashSet<>();
-                        ingredientNames.addAll(entry.getValue());
-                        result.put(componentClass, ingredientNames);
-                    } catch (NullPointerException ignored) {
-                        /* Handle a broken component name */
-                    }
-
+        componentNameSources.clear();
+        for (Prefab prefab : scanner.getPrefabsWith(ComponentToIngredientComponent.class)) {
+            componentNameSources.add(prefab.getName().toLowerCase(Locale.ROOT));
+            ComponentToIngredientComponent component = prefab.getComponent(ComponentToIngredientComponent.class);
+            for (Map.Entry<String, List<String>> entry : component.componentMap.entrySet()) {
+                try {
+                    Class<? extends Component> componentClass = entityManager.getComponentLibrary()
+                            .resolve(entry.getKey().toLowerCase(Locale.ROOT)).getType();
+                    Set<String> ingredientNames = result.containsKey(componentClass) ? result.get(componentClass) : new HashSet<>();
+                    ingredientNames.addAll(entry.getValue());
+                    result.put(componentClass, ingredientNames);
+                } catch (NullPointerException ignored) {
+                    /* Handle a broken component name */
                 }
+
             }
         }
         return result;
     }
 
+    /**
+     * @return The number of recipe indices handed out, including those of removed recipes
+     */
+    int getIndexCount() {
+        return recipeList.size();
+    }
+
+    /**
+     * @param index The index of a recipe
+     * @return The recipe, or null if it was removed
+     */
+    Recipe getRecipeAt(int index) {
+        return recipeList.get(index);
+    }
+
+    /**
+     * @param index The index of a recipe
+     * @return The lower case name of the prefab it came from, or null
+     */
+    String getSourceAt(int index) {
+        return recipeSources.get(index);
+    }
+
+    /**
+     * @return The lower case names of all categories, in order of their ids
+     */
+    List<String> getCategoryNames() {
+        return Collections.unmodifiableList(categoryNames);
+    }
+
+    /**
+     * @param index The index of a recipe
+     * @param categoryId The id of a category
+     * @return True if the recipe is in the category
+     */
+    boolean isInCategory(int index, int categoryId) {
+        return categoryMembers.get(categoryId).get(index);
+    }
+
+    /**
+     * @return The other ingredient names of every prefab, keyed by the lower case prefab name
+     */
+    Map<String, Set<String>> getIngredientLinks() {
+        return Collections.unmodifiableMap(ingredientLookup);
+    }
+
+    /**
+     * Adds other ingredient names that were collected earlier, instead of scraping them from the prefabs
+     *
+     * @param links The names to add, keyed by the lower case prefab name
+     */
+    void restoreIngredientNames(Map<String, List<String>> links) {
+        for (Map.Entry<String, List<String>> entry : links.entrySet()) {
+            addLink(entry.getKey(), entry.getValue());
+        }
+        ingredientIndex.clearItemCache();
+    }
 
     /**
      * Adds a recipe to the list
      *
      * @param recipe The recipe to add
+     * @param source The lower case name of the prefab it came from, or null
      * @return The index of the recipe
      */
-    private int addRecipeToStore(Recipe recipe) {
+    private int addRecipeToStore(Recipe recipe, String source) {
+        int index = recipeList.size();
         recipeList.add(recipe);
-        return recipeList.size() - 1;
+        recipeSources.add(source);
+        recipeIndices.put(recipe, index);
+        return index;
     }
 
     /**
      * Adds a link between a recipe ID and a category
      *
      * @param id The recipe's ID
+     * @param recipe The recipe itself
      * @param category The category to add the recipe to
      */
-    private void addLinkToRecipe(int id, String category) {
-        Set<Integer> idList = categoryLookup.containsKey(category) ? categoryLookup.get(category) : new HashSet<>();
-        idList.add(id);
-        categoryLookup.put(category, idList);
+    private void addLinkToRecipe(int id, Recipe recipe, String category) {
+        int categoryId = getCategoryId(category);
+        if (categoryId == -1) {
+            categoryId = categoryMembers.size();
+            categoryMembers.add(new BitSet());
+            categoryTypes.add(new HashMap<>());
+            categoryNames.add(category.toLowerCase(Locale.ROOT));
+            categoryIds.put(category.toLowerCase(Locale.ROOT), categoryId);
+        }
+        BitSet members = categoryMembers.get(categoryId);
+        if (!members.get(id)) {
+            members.set(id);
+            categoryTypes.get(categoryId).computeIfAbsent(recipe.getClass(), type -> new RecipeSlice())
+                    .append(recipe, id);
+        }
+    }
+
+    /**
+     * A list of recipes in the order they were added to the store, each listed once.
+     * Only the store can change it, everyone else sees it as an unmodifiable list.
+     */
+    private static final class RecipeSlice extends AbstractList<Recipe> implements RandomAccess {
+        private final List<Recipe> recipes = new ArrayList<>();
+        /* The store indices of the recipes, which keep a recipe from being added twice */
+        private final BitSet indices = new BitSet();
+
+        @Override
+        public Recipe get(int index) {
+            return recipes.get(index);
+        }
+
+        @Override
+        public int size() {
+            return recipes.size();
+        }
+
+        private void append(Recipe recipe, int index) {
+            if (!indices.get(index)) {
+                indices.set(index);
+                recipes.add(recipe);
+            }
+        }
+
+        private void remove(Recipe recipe, int index) {
+            if (!indices.get(index)) {
+                return;
+            }
+            indices.clear(index);
+            for (int i = recipes.size() - 1; i >= 0; i--) {
+                if (recipes.get(i) == recipe) {
+                    recipes.remove(i);
+                    return;
+                }
+            }
+        }
     }
 }
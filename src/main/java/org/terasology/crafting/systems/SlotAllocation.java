@@ -0,0 +1,98 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+import org.terasology.engine.entitySystem.entity.EntityRef;
+
+import java.util.Arrays;
+
+/**
+ * The slots chosen to supply the inputs of a craft.
+ * Each entry takes a number of items for one input from one slot of one inventory. An input may span several entries.
+ * The counts cover all the crafts the allocation was made for.
+ */
+public class SlotAllocation {
+    private final int times;
+    private int[] inputs;
+    private EntityRef[] inventories;
+    private int[] slots;
+    private int[] counts;
+    private int size;
+
+    public SlotAllocation(int expectedSize, int times) {
+        this.times = times;
+        int capacity = Math.max(expectedSize, 1);
+        inputs = new int[capacity];
+        inventories = new EntityRef[capacity];
+        slots = new int[capacity];
+        counts = new int[capacity];
+    }
+
+    /**
+     * @return The number of crafts the allocation supplies inputs for
+     */
+    public int getTimes() {
+        return times;
+    }
+
+    /**
+     * @return The number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param entry The index of the entry
+     * @return The index of the recipe input the entry supplies
+     */
+    public int getInput(int entry) {
+        return inputs[entry];
+    }
+
+    /**
+     * @param entry The index of the entry
+     * @return The entity owning the inventory to take from
+     */
+    public EntityRef getInventory(int entry) {
+        return inventories[entry];
+    }
+
+    /**
+     * @param entry The index of the entry
+     * @return The slot to take from, within the inventory of the entry
+     */
+    public int getSlot(int entry) {
+        return slots[entry];
+    }
+
+    /**
+     * @param entry The index of the entry
+     * @return The number of items to take from the slot
+     */
+    public int getCount(int entry) {
+        return counts[entry];
+    }
+
+    /**
+     * Adds an entry to the allocation
+     *
+     * @param input The index of the recipe input
+     * @param inventory The entity owning the inventory to take from
+     * @param slot The slot to take from
+     * @param count The number of items to take
+     */
+    void add(int input, EntityRef inventory, int slot, int count) {
+        if (size == slots.length) {
+            inputs = Arrays.copyOf(inputs, size * 2);
+            inventories = Arrays.copyOf(inventories, size * 2);
+            slots = Arrays.copyOf(slots, size * 2);
+            counts = Arrays.copyOf(counts, size * 2);
+        }
+        inputs[size] = input;
+        inventories[size] = inventory;
+        slots[size] = slot;
+        counts[size] = count;
+        size++;
+    }
+}
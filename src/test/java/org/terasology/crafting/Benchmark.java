@@ -0,0 +1,187 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Times small pieces of crafting code for the {@link HeadlessBenchmark headless benchmarks}.
+ * <p>
+ * Every operation is warmed up before it is measured, and the bytes allocated by the measuring thread are counted
+ * along with the time. Each result is logged as a line of JSON, and appended to the file named by the
+ * {@code crafting.benchmarkFile} system property if it is set, so runs can be compared between releases.
+ */
+public final class Benchmark {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Benchmark.class);
+    private static final String OUTPUT_PROPERTY = "crafting.benchmarkFile";
+    private static final long WARMUP_NANOS = 200_000_000L;
+    private static final long MEASURE_NANOS = 500_000_000L;
+    private static final int BATCH = 16;
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = getAllocationCounter();
+
+    /**
+     * Results are written here so the measured code can't be optimised away.
+     */
+    private static volatile Object sink;
+
+    private final String name;
+    private final Map<String, Object> params = new LinkedHashMap<>();
+
+    private Benchmark(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param name The name the results are reported under
+     * @return A benchmark without any parameters yet
+     */
+    public static Benchmark named(String name) {
+        return new Benchmark(name);
+    }
+
+    /**
+     * Adds a parameter to report along with the results, such as the size of the data the operation runs on
+     *
+     * @return This benchmark
+     */
+    public Benchmark param(String key, Object value) {
+        params.put(key, value);
+        return this;
+    }
+
+    /**
+     * Warms up and measures an operation, then reports the result.
+     *
+     * @param operation The operation to measure, returning its result
+     * @return The time and allocation of a single operation
+     */
+    public Result run(Supplier<?> operation) {
+        repeat(operation, WARMUP_NANOS);
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+        long operations = repeat(operation, MEASURE_NANOS);
+        long nanos = System.nanoTime() - start;
+        long bytes = allocatedBytes() - bytesBefore;
+        Result result = new Result(operations, (double) nanos / operations,
+                ALLOCATIONS == null ? -1 : (double) bytes / operations);
+        report(result);
+        return result;
+    }
+
+    /**
+     * Times an operation that is too slow to repeat many times, such as loading a large data set, running it once
+     * after a single warm up run.
+     *
+     * @param operation The operation to measure, returning its result
+     * @return The time and allocation of the operation
+     */
+    public Result runOnce(Supplier<?> operation) {
+        sink = operation.get();
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+        sink = operation.get();
+        long nanos = System.nanoTime() - start;
+        long bytes = allocatedBytes() - bytesBefore;
+        Result result = new Result(1, nanos, ALLOCATIONS == null ? -1 : bytes);
+        report(result);
+        return result;
+    }
+
+    private static long repeat(Supplier<?> operation, long duration) {
+        long operations = 0;
+        long end = System.nanoTime() + duration;
+        do {
+            for (int i = 0; i < BATCH; i++) {
+                sink = operation.get();
+            }
+            operations += BATCH;
+        } while (System.nanoTime() < end);
+        return operations;
+    }
+
+    /**
+     * @return The bytes allocated by this thread so far, or 0 if the JVM doesn't count them
+     */
+    private static long allocatedBytes() {
+        return ALLOCATIONS == null ? 0 : ALLOCATIONS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean getAllocationCounter() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+            if (counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled()) {
+                return counter;
+            }
+        }
+        return null;
+    }
+
+    private void report(Result result) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"benchmark\":\"").append(name).append('"');
+        for (Map.Entry<String, Object> param : params.entrySet()) {
+            json.append(",\"").append(param.getKey()).append("\":");
+            if (param.getValue() instanceof Number) {
+                json.append(param.getValue());
+            } else {
+                json.append('"').append(param.getValue()).append('"');
+            }
+        }
+        json.append(String.format(Locale.ROOT, ",\"operations\":%d,\"nsPerOp\":%.1f,\"bytesPerOp\":%.1f}",
+                result.operations, result.nanosPerOp, result.bytesPerOp));
+        LOGGER.info(json.toString());
+
+        String output = System.getProperty(OUTPUT_PROPERTY);
+        if (output != null) {
+            Path path = Paths.get(output);
+            try {
+                Files.write(path, Collections.singletonList(json), StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                LOGGER.warn("Could not write benchmark results to {}", path, e);
+            }
+        }
+    }
+
+    /**
+     * The measurements of a benchmark.
+     */
+    public static final class Result {
+        private final long operations;
+        private final double nanosPerOp;
+        private final double bytesPerOp;
+
+        private Result(long operations, double nanosPerOp, double bytesPerOp) {
+            this.operations = operations;
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        public double getNanosPerOp() {
+            return nanosPerOp;
+        }
+
+        /**
+         * @return The bytes allocated per operation, or a negative number if the JVM doesn't count allocations
+         */
+        public double getBytesPerOp() {
+            return bytesPerOp;
+        }
+    }
+}
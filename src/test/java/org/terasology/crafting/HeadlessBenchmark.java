@@ -0,0 +1,25 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a test class or method as one of the headless benchmarks.
+ * <p>
+ * They build large data sets and take seconds to run, so they are left out of the normal test run and only run when
+ * the {@code crafting.benchmarks} system property is true, for example with {@code -Dcrafting.benchmarks=true}. They
+ * are also tagged "benchmark", so they can be picked out by tag.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "crafting.benchmarks", matches = "true")
+public @interface HeadlessBenchmark {
+}
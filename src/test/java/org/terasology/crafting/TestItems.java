@@ -0,0 +1,110 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting;
+
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.prefab.Prefab;
+import org.terasology.engine.logic.inventory.ItemComponent;
+import org.terasology.gestalt.assets.ResourceUrn;
+import org.terasology.gestalt.entitysystem.component.Component;
+import org.terasology.module.inventory.components.InventoryComponent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Builds stand-ins for the prefabs, items and inventories of the engine, so crafting code can be tested and
+ * benchmarked without starting a game.
+ * <p>
+ * The mocks don't record their calls, so they can be used in loops that run millions of times.
+ */
+public final class TestItems {
+    private TestItems() {
+    }
+
+    /**
+     * @param urn The name of the prefab, such as "Core:plank"
+     * @param components The components of the prefab
+     * @return A prefab holding the components
+     */
+    public static Prefab prefab(String urn, Component<?>... components) {
+        Prefab prefab = mock(Prefab.class, withSettings().stubOnly());
+        List<Component> componentList = new ArrayList<>(Arrays.asList(components));
+        when(prefab.getName()).thenReturn(urn);
+        when(prefab.getUrn()).thenReturn(new ResourceUrn(urn));
+        when(prefab.exists()).thenReturn(true);
+        when(prefab.iterateComponents()).thenReturn(componentList);
+        for (Component component : components) {
+            addComponent(prefab, component);
+        }
+        return prefab;
+    }
+
+    /**
+     * @param prefab The prefab the item was created from
+     * @param count The number of items in the stack
+     * @return A stack of items
+     */
+    public static EntityRef item(Prefab prefab, int count) {
+        ItemComponent itemComponent = new ItemComponent();
+        itemComponent.stackCount = (byte) count;
+        itemComponent.stackId = prefab.getName();
+        return entity(prefab, itemComponent);
+    }
+
+    /**
+     * @param slots The item in every slot, {@link EntityRef#NULL} for the empty ones
+     * @return An entity owning an inventory holding the items
+     */
+    public static EntityRef inventory(EntityRef... slots) {
+        return inventory(Arrays.asList(slots));
+    }
+
+    /**
+     * @param slots The item in every slot, {@link EntityRef#NULL} for the empty ones
+     * @return An entity owning an inventory holding the items
+     */
+    public static EntityRef inventory(List<EntityRef> slots) {
+        InventoryComponent inventoryComponent = new InventoryComponent();
+        inventoryComponent.itemSlots = new ArrayList<>(slots);
+        return entity(null, inventoryComponent);
+    }
+
+    /**
+     * @param prefab The prefab the entity was created from, or null
+     * @param components The components of the entity
+     * @return An existing entity holding the components
+     */
+    public static EntityRef entity(Prefab prefab, Component<?>... components) {
+        EntityRef entity = mock(EntityRef.class, withSettings().stubOnly());
+        when(entity.exists()).thenReturn(true);
+        when(entity.isActive()).thenReturn(true);
+        when(entity.getParentPrefab()).thenReturn(prefab);
+        for (Component component : components) {
+            addComponent(entity, component);
+        }
+        return entity;
+    }
+
+    /**
+     * Stubs the lookups of a component by its class, other classes are left returning null and false
+     */
+    @SuppressWarnings("unchecked")
+    private static void addComponent(Prefab prefab, Component component) {
+        Class<Component> type = (Class<Component>) component.getClass();
+        when(prefab.getComponent(type)).thenReturn(component);
+        when(prefab.hasComponent(type)).thenReturn(true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void addComponent(EntityRef entity, Component component) {
+        Class<Component> type = (Class<Component>) component.getClass();
+        when(entity.getComponent(type)).thenReturn(component);
+        when(entity.hasComponent(type)).thenReturn(true);
+    }
+}
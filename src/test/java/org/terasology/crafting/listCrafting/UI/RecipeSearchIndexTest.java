@@ -0,0 +1,123 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.listCrafting.UI;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.terasology.crafting.listCrafting.components.ListRecipe;
+import org.terasology.crafting.systems.RecipeStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RecipeSearchIndexTest {
+    private RecipeStore recipeStore;
+    private RecipeSearchIndex searchIndex;
+
+    @BeforeEach
+    public void setup() {
+        recipeStore = mock(RecipeStore.class);
+        when(recipeStore.getIngredientNames(anyString())).thenReturn(null);
+        when(recipeStore.getIngredientNames("Core:plank")).thenReturn(new String[]{"Wood"});
+        searchIndex = new RecipeSearchIndex(Arrays.asList(
+                recipe("Core:stick", "Core:plank"),
+                recipe("Core:plank", "Core:log"),
+                recipe("Core:pickaxe", "Core:stick", "Core:ironIngot"),
+                recipe("Core:torch", "Core:stick", "Core:coal")), recipeStore);
+    }
+
+    @Test
+    public void blankQueriesMatchEverything() {
+        assertNull(searchIndex.search(""));
+        assertNull(searchIndex.search("   "));
+        assertNull(searchIndex.search(null));
+    }
+
+    @Test
+    public void longWordsMatchAnywhereInANameOrItsOtherNames() {
+        assertArrayEquals(new int[]{0, 2, 3}, searchIndex.search("stick"));
+        assertArrayEquals(new int[]{2}, searchIndex.search("INGOT"));
+        assertArrayEquals(new int[]{0, 1}, searchIndex.search("wood"));
+        assertArrayEquals(new int[]{2}, searchIndex.search("ckaxe"));
+        assertArrayEquals(new int[0], searchIndex.search("sword"));
+    }
+
+    @Test
+    public void shortWordsOnlyMatchTheStartOfAWord() {
+        assertArrayEquals(new int[]{2}, searchIndex.search("pi"));
+        assertArrayEquals(new int[0], searchIndex.search("ck"));
+        assertArrayEquals(new int[]{0, 1}, searchIndex.search("w"));
+    }
+
+    @Test
+    public void everyWordMustMatch() {
+        assertArrayEquals(new int[]{3}, searchIndex.search("stick coal"));
+        assertArrayEquals(new int[]{2}, searchIndex.search("  st   iron "));
+        assertArrayEquals(new int[0], searchIndex.search("log stick"));
+    }
+
+    @Test
+    public void refiningNarrowsTheEarlierResults() {
+        int[] previous = searchIndex.search("st");
+        assertArrayEquals(new int[]{0, 2, 3}, previous);
+        assertArrayEquals(new int[]{2}, searchIndex.refine(previous, "st pick"));
+        assertArrayEquals(new int[]{0, 1}, searchIndex.refine(null, "plank"));
+        assertNull(searchIndex.refine(previous, ""));
+    }
+
+    @Test
+    public void matchesTheSameRecipesAsScanningTheNames() {
+        List<ListRecipe> recipes = new ArrayList<>();
+        String[] parts = {"iron", "gold", "stone", "wood", "plank", "ingot", "sword", "axe", "block", "slab"};
+        for (int i = 0; i < 500; i++) {
+            recipes.add(recipe("Test:" + parts[i % 10] + parts[i / 10 % 10] + i,
+                    "Test:" + parts[i * 7 % 10] + " " + parts[i * 3 % 10]));
+        }
+        RecipeSearchIndex index = new RecipeSearchIndex(recipes, recipeStore);
+
+        for (String query : new String[]{"iron", "ot", "go", "xe", "ngo", "wood sl", "s", "test:st", "k1", "12"}) {
+            assertArrayEquals(scan(recipes, query), index.search(query), query);
+        }
+        assertEquals(500, index.size());
+    }
+
+    private static ListRecipe recipe(String output, String... inputs) {
+        int[] counts = new int[inputs.length];
+        Arrays.fill(counts, 1);
+        return new ListRecipe(inputs, counts, output, 1);
+    }
+
+    /**
+     * Finds the matches of a query by checking the names of every recipe
+     */
+    private static int[] scan(List<ListRecipe> recipes, String query) {
+        String[] words = RecipeSearchIndex.toWords(query);
+        return IntStream.range(0, recipes.size()).filter(i -> {
+            List<String> names = new ArrayList<>();
+            names.add(recipes.get(i).output.toLowerCase());
+            for (String input : recipes.get(i).inputItems) {
+                names.add(input.toLowerCase());
+            }
+            for (String word : words) {
+                boolean found = false;
+                for (String name : names) {
+                    found |= word.length() < 3 ? name.matches("(?s)(.*[^\\p{Alnum}])?" + word + ".*")
+                            : name.contains(word);
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+            return true;
+        }).toArray();
+    }
+}
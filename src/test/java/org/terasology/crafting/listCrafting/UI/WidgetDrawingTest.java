@@ -0,0 +1,143 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.listCrafting.UI;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.implementation.FixedValue;
+import net.bytebuddy.implementation.StubMethod;
+import org.joml.Vector2i;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.terasology.crafting.Benchmark;
+import org.terasology.crafting.HeadlessBenchmark;
+import org.terasology.crafting.listCrafting.components.ListRecipe;
+import org.terasology.crafting.systems.IconHandle;
+import org.terasology.crafting.systems.IconManager;
+import org.terasology.crafting.systems.RecipeStoreImpl;
+import org.terasology.engine.rendering.assets.texture.Texture;
+import org.terasology.engine.rendering.assets.texture.TextureRegionAsset;
+import org.terasology.engine.utilities.Assets;
+import org.terasology.nui.Canvas;
+import org.terasology.nui.CoreWidget;
+
+import java.util.Optional;
+
+import static net.bytebuddy.matcher.ElementMatchers.any;
+import static net.bytebuddy.matcher.ElementMatchers.named;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that the list crafting widgets draw without allocating once their layout has been worked out.
+ * <p>
+ * The widgets draw onto a canvas that does nothing, so only the allocations of the widgets themselves are counted.
+ * The allocation checks are benchmarks and only run with the other headless benchmarks.
+ */
+public class WidgetDrawingTest {
+    private MockedStatic<Assets> assets;
+    private IconManager iconManager;
+    private RecipeStoreImpl recipeStore;
+    private Canvas canvas;
+
+    @BeforeEach
+    public void setup() throws ReflectiveOperationException {
+        assets = mockStatic(Assets.class);
+        assets.when(() -> Assets.getTexture(anyString())).thenReturn(Optional.of(mock(Texture.class)));
+        assets.when(() -> Assets.getTextureRegion(anyString()))
+                .thenReturn(Optional.of(mock(TextureRegionAsset.class)));
+        iconManager = mock(IconManager.class);
+        when(iconManager.resolve(anyString())).thenReturn(IconHandle.EMPTY);
+        recipeStore = new RecipeStoreImpl();
+        for (int i = 0; i < 40; i++) {
+            recipeStore.putRecipe(new ListRecipe(new String[]{"plank", "stick"}, new int[]{2, 1}, "tool" + i, 1),
+                    new String[]{"InHand"});
+        }
+        canvas = emptyCanvas(new Vector2i(360, 192));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        assets.close();
+    }
+
+    @Test
+    @HeadlessBenchmark
+    public void recipeListDrawsWithoutAllocating() {
+        UIRecipeList recipeList = new UIRecipeList();
+        recipeList.setManagers(recipeStore, iconManager, null);
+        recipeList.setModel(new RecipeListModel(recipeStore, "InHand"));
+
+        assertDrawsWithoutAllocating("recipeList", recipeList);
+    }
+
+    @Test
+    @HeadlessBenchmark
+    public void recipeViewDrawsWithoutAllocating() {
+        UIRecipeView recipeView = new UIRecipeView();
+        recipeView.setIconManager(iconManager);
+        recipeView.updateRecipe(recipeStore.getRecipes("InHand", ListRecipe.class).get(0));
+
+        assertDrawsWithoutAllocating("recipeView", recipeView);
+    }
+
+    @Test
+    @HeadlessBenchmark
+    public void workstationViewDrawsWithoutAllocating() {
+        UIWorkstationView workstationView = new UIWorkstationView();
+
+        assertDrawsWithoutAllocating("workstationView", workstationView);
+    }
+
+    @Test
+    public void preferredSizesAreOnlyReplacedWhenTheSizeChanges() {
+        UIRecipeView recipeView = new UIRecipeView();
+        recipeView.setIconManager(iconManager);
+        ListRecipe recipe = recipeStore.getRecipes("InHand", ListRecipe.class).get(0);
+        recipeView.updateRecipe(recipe);
+        Vector2i size = recipeView.getPreferredContentSize(canvas, null);
+        assertEquals(5 * 64, size.x);
+
+        recipeView.updateRecipe(recipe);
+        assertSame(size, recipeView.getPreferredContentSize(canvas, null));
+
+        recipeView.updateRecipe(null);
+        assertNotSame(size, recipeView.getPreferredContentSize(canvas, null));
+        assertEquals(0, recipeView.getPreferredContentSize(canvas, null).x);
+        assertEquals(5 * 64, size.x);
+    }
+
+    private void assertDrawsWithoutAllocating(String name, CoreWidget widget) {
+        Benchmark.Result result = Benchmark.named("draw." + name).run(() -> {
+            widget.onDraw(canvas);
+            widget.getPreferredContentSize(canvas, null);
+            return widget;
+        });
+        assumeTrue(result.getBytesPerOp() >= 0, "The JVM doesn't count allocations");
+        assertTrue(result.getBytesPerOp() < 1, name + " allocated " + result.getBytesPerOp() + " bytes per frame");
+    }
+
+    /**
+     * @param size The size the canvas reports
+     * @return A canvas on which every drawing call does nothing
+     */
+    private static Canvas emptyCanvas(Vector2i size) throws ReflectiveOperationException {
+        return new ByteBuddy()
+                .subclass(Canvas.class)
+                .method(any()).intercept(StubMethod.INSTANCE)
+                .method(named("size")).intercept(FixedValue.value(size))
+                .make()
+                .load(WidgetDrawingTest.class.getClassLoader())
+                .getLoaded()
+                .getDeclaredConstructor()
+                .newInstance();
+    }
+}
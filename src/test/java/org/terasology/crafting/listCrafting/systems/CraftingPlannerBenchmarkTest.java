@@ -0,0 +1,140 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.listCrafting.systems;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.terasology.crafting.Benchmark;
+import org.terasology.crafting.HeadlessBenchmark;
+import org.terasology.crafting.TestItems;
+import org.terasology.crafting.listCrafting.components.ListRecipe;
+import org.terasology.crafting.systems.CraftingMetrics;
+import org.terasology.crafting.systems.CraftingMetricsImpl;
+import org.terasology.crafting.systems.RecipeStore;
+import org.terasology.crafting.systems.RecipeStoreImpl;
+import org.terasology.engine.context.Context;
+import org.terasology.engine.context.internal.ContextImpl;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.prefab.Prefab;
+import org.terasology.engine.registry.InjectionHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Benchmarks compiling and planning over a store of 50k list recipes.
+ * <p>
+ * Every item is made from the items at a half and a third of its number along with a raw material, so the recipes
+ * form a deep graph where most items are needed by several others.
+ * <p>
+ * Every plan starts by walking the inventory, which goes through mocked entities that cost far more per call than
+ * real ones, so the plan numbers are only worth comparing with each other. They are only checked against a generous
+ * bound.
+ */
+@HeadlessBenchmark
+public class CraftingPlannerBenchmarkTest {
+    private static final int RECIPES = 50_000;
+    private static final int RAW_MATERIALS = 100;
+    private static final int SLOTS_PER_MATERIAL = 8;
+    /**
+     * The most a plan may take. Plans should take a few milliseconds, but walking the mocked inventory alone takes
+     * about ten times that, so this only catches a plan that searches far more of the graph than it needs to.
+     */
+    private static final double MAX_PLAN_NANOS = 250_000_000;
+
+    private RecipeStoreImpl recipeStore;
+    private CraftingPlannerImpl planner;
+    private Prefab[] rawMaterials;
+
+    @BeforeEach
+    public void setup() {
+        recipeStore = new RecipeStoreImpl();
+        for (int i = RAW_MATERIALS; i < RAW_MATERIALS + RECIPES; i++) {
+            ListRecipe recipe = new ListRecipe(new String[]{name(i / 2), name(i / 3), name(i % RAW_MATERIALS)},
+                    new int[]{1, 1, 1}, name(i), 1);
+            recipeStore.putRecipe(recipe, new String[]{"InHand"});
+        }
+        Context context = new ContextImpl();
+        context.put(RecipeStore.class, recipeStore);
+        context.put(ListCraftingManager.class, mock(ListCraftingManager.class));
+        context.put(CraftingMetrics.class, new CraftingMetricsImpl());
+        planner = new CraftingPlannerImpl();
+        InjectionHelper.inject(planner, context);
+        planner.initialise();
+
+        rawMaterials = new Prefab[RAW_MATERIALS];
+        for (int i = 0; i < RAW_MATERIALS; i++) {
+            rawMaterials[i] = TestItems.prefab(name(i));
+        }
+    }
+
+    @Test
+    public void compileTheRecipeGraph() {
+        Benchmark.named("recipeGraph.compile").param("recipes", RECIPES)
+                .runOnce(() -> new RecipeGraph(recipeStore));
+        assertEquals(RECIPES, new RecipeGraph(recipeStore).size());
+    }
+
+    @Test
+    public void planFromRawMaterials() {
+        EntityRef inventory = fill(-1);
+        String deepest = name(RAW_MATERIALS + RECIPES - 1);
+        String middle = name(RAW_MATERIALS + RECIPES / 2);
+
+        Benchmark.named("craftingPlanner.plan.first").param("recipes", RECIPES)
+                .runOnce(() -> planner.plan(inventory, deepest, 1));
+        CraftingPlan plan = planner.plan(inventory, deepest, 1);
+        assertNotNull(plan);
+        assertEquals(recipeStore.getIngredientId(deepest),
+                recipeStore.getIngredientId(plan.getRecipe(plan.size() - 1).output));
+        Benchmark.Result result = Benchmark.named("craftingPlanner.plan").param("recipes", RECIPES)
+                .param("steps", plan.size())
+                .run(() -> planner.plan(inventory, deepest, 1));
+        assertPlannedInTime(result);
+        Benchmark.named("craftingPlanner.plan").param("recipes", RECIPES)
+                .param("steps", planner.plan(inventory, middle, 1).size())
+                .run(() -> planner.plan(inventory, middle, 1));
+    }
+
+    @Test
+    public void planWithAMissingRawMaterial() {
+        String deepest = name(RAW_MATERIALS + RECIPES - 1);
+        /* The raw material the last craft needs */
+        EntityRef inventory = fill((RAW_MATERIALS + RECIPES - 1) % RAW_MATERIALS);
+
+        assertNull(planner.plan(inventory, deepest, 1));
+        assertPlannedInTime(Benchmark.named("craftingPlanner.plan.missing").param("recipes", RECIPES)
+                .run(() -> planner.plan(inventory, deepest, 1)));
+    }
+
+    private static void assertPlannedInTime(Benchmark.Result result) {
+        assertTrue(result.getNanosPerOp() < MAX_PLAN_NANOS, "Took " + result.getNanosPerOp() / 1_000_000 + "ms");
+    }
+
+    /**
+     * @param missing A raw material to leave out, or -1 for none
+     * @return An inventory with several stacks of every raw material
+     */
+    private EntityRef fill(int missing) {
+        List<EntityRef> items = new ArrayList<>();
+        for (int i = 0; i < RAW_MATERIALS; i++) {
+            for (int j = 0; j < SLOTS_PER_MATERIAL; j++) {
+                items.add(i == missing ? EntityRef.NULL : TestItems.item(rawMaterials[i], 100));
+            }
+        }
+        return TestItems.inventory(items);
+    }
+
+    /**
+     * @return The name of an item, the first ones being raw materials
+     */
+    private static String name(int item) {
+        return item < RAW_MATERIALS ? "Test:raw" + item : "Test:item" + item;
+    }
+}
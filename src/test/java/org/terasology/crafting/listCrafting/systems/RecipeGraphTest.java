@@ -0,0 +1,117 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.listCrafting.systems;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.terasology.crafting.listCrafting.components.ListRecipe;
+import org.terasology.crafting.systems.RecipeStoreImpl;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RecipeGraphTest {
+    private RecipeStoreImpl recipeStore;
+
+    @BeforeEach
+    public void setup() {
+        recipeStore = new RecipeStoreImpl();
+    }
+
+    @Test
+    public void levelsFollowTheChainFromRawMaterials() {
+        ListRecipe planks = add("log", "plank");
+        ListRecipe sticks = add("plank", "stick");
+        RecipeGraph graph = new RecipeGraph(recipeStore);
+
+        assertEquals(1, graph.getLevel(indexOf(graph, planks)));
+        assertEquals(2, graph.getLevel(indexOf(graph, sticks)));
+        assertEquals(0, graph.getCyclicRecipeCount());
+    }
+
+    @Test
+    public void itemsOnlyMadeThroughACycleCountAsRawMaterials() {
+        ListRecipe block = add("ingot", "block");
+        ListRecipe ingot = add("block", "ingot");
+        ListRecipe pickaxe = add("ingot", "pickaxe");
+        RecipeGraph graph = new RecipeGraph(recipeStore);
+
+        assertEquals(3, graph.getCyclicRecipeCount());
+        assertArrayEquals(new int[]{indexOf(graph, pickaxe)}, graph.getProducers(id("pickaxe")));
+        assertArrayEquals(new int[]{indexOf(graph, ingot)}, graph.getProducers(id("ingot")));
+        assertArrayEquals(new int[]{indexOf(graph, block)}, graph.getProducers(id("block")));
+        assertEquals(1, graph.getLevel(indexOf(graph, pickaxe)));
+    }
+
+    @Test
+    public void cyclesReachedFromRawMaterialsKeepTheirLevels() {
+        ListRecipe smelt = add("ore", "ingot");
+        ListRecipe block = add("ingot", "block");
+        ListRecipe ingot = add("block", "ingot");
+        RecipeGraph graph = new RecipeGraph(recipeStore);
+
+        assertEquals(0, graph.getCyclicRecipeCount());
+        assertEquals(1, graph.getLevel(indexOf(graph, smelt)));
+        assertEquals(2, graph.getLevel(indexOf(graph, block)));
+        assertEquals(3, graph.getLevel(indexOf(graph, ingot)));
+        assertArrayEquals(new int[]{indexOf(graph, smelt), indexOf(graph, ingot)}, graph.getProducers(id("ingot")));
+    }
+
+    @Test
+    public void cyclesMadeFromEarlierCyclesAreCraftedFromThem() {
+        add("plank", "log");
+        add("log", "plank");
+        ListRecipe chest = add("plank", "chest");
+        ListRecipe chestFromCrate = add("crate", "chest");
+        ListRecipe crate = add("chest", "crate");
+        RecipeGraph graph = new RecipeGraph(recipeStore);
+
+        assertEquals(1, graph.getLevel(indexOf(graph, chest)));
+        assertEquals(2, graph.getLevel(indexOf(graph, crate)));
+        assertEquals(3, graph.getLevel(indexOf(graph, chestFromCrate)));
+        assertEquals(indexOf(graph, chest), graph.getProducers(id("chest"))[0]);
+    }
+
+    @Test
+    public void recipesProducingTheirOwnInputGetALevel() {
+        ListRecipe grow = new ListRecipe(new String[]{"seed", "water"}, new int[]{1, 1}, "seed", 2);
+        recipeStore.putRecipe(grow, new String[]{"InHand"});
+        RecipeGraph graph = new RecipeGraph(recipeStore);
+
+        assertEquals(1, graph.getCyclicRecipeCount());
+        assertEquals(1, graph.getLevel(indexOf(graph, grow)));
+        assertArrayEquals(new int[]{indexOf(graph, grow)}, graph.getProducers(id("seed")));
+    }
+
+    @Test
+    public void producersAreSortedByLevel() {
+        add("log", "plank");
+        ListRecipe deep = add("plank", "stick");
+        ListRecipe shallow = add("branch", "stick");
+        RecipeGraph graph = new RecipeGraph(recipeStore);
+
+        int[] producers = graph.getProducers(id("stick"));
+        assertArrayEquals(new int[]{indexOf(graph, shallow), indexOf(graph, deep)}, producers);
+        assertTrue(graph.getLevel(producers[0]) < graph.getLevel(producers[1]));
+    }
+
+    private ListRecipe add(String input, String output) {
+        ListRecipe recipe = new ListRecipe(new String[]{input}, new int[]{1}, output, 1);
+        recipeStore.putRecipe(recipe, new String[]{"InHand"});
+        return recipe;
+    }
+
+    private int id(String name) {
+        return recipeStore.getIngredientId(name);
+    }
+
+    private static int indexOf(RecipeGraph graph, ListRecipe recipe) {
+        for (int i = 0; i < graph.size(); i++) {
+            if (graph.getRecipe(i) == recipe) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,83 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.patternCrafting.systems;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class GridKeyTest {
+    private static final int E = GridKey.EMPTY_CELL;
+
+    @Test
+    public void emptyEdgesAreTrimmed() {
+        GridKey key = GridKey.trimmed(3, 3, new int[]{
+                E, E, E,
+                E, 1, 2,
+                E, 3, E});
+
+        assertEquals(new GridKey(2, new int[]{1, 2, 3, E}), key);
+        assertEquals(new GridKey(2, new int[]{1, 2, 3, E}).hashCode(), key.hashCode());
+    }
+
+    @Test
+    public void theSameShapeAnywhereInTheGridHasTheSameKey() {
+        GridKey topLeft = GridKey.trimmed(3, 3, new int[]{
+                5, E, E,
+                5, E, E,
+                E, E, E});
+        GridKey bottomRight = GridKey.trimmed(3, 3, new int[]{
+                E, E, E,
+                E, E, 5,
+                E, E, 5});
+        GridKey fromSmallerGrid = GridKey.trimmed(2, 2, new int[]{
+                E, 5,
+                E, 5});
+
+        assertEquals(topLeft, bottomRight);
+        assertEquals(topLeft, fromSmallerGrid);
+    }
+
+    @Test
+    public void emptyCellsInsideTheShapeAreKept() {
+        GridKey gap = GridKey.trimmed(3, 1, new int[]{1, E, 1});
+        GridKey solid = GridKey.trimmed(2, 1, new int[]{1, 1});
+
+        assertNotEquals(gap, solid);
+        assertEquals(new GridKey(3, new int[]{1, E, 1}), gap);
+    }
+
+    @Test
+    public void anEmptyGridHasNoKey() {
+        assertNull(GridKey.trimmed(2, 2, new int[]{E, E, E, E}));
+    }
+
+    @Test
+    public void theWidthTellsRowsFromColumns() {
+        GridKey row = GridKey.trimmed(2, 2, new int[]{1, 2, E, E});
+        GridKey column = GridKey.trimmed(2, 2, new int[]{1, E, 2, E});
+
+        assertNotEquals(row, column);
+    }
+
+    @Test
+    public void mirroringFlipsEachRow() {
+        GridKey key = GridKey.trimmed(3, 2, new int[]{
+                1, 2, 3,
+                4, E, E});
+
+        assertEquals(new GridKey(3, new int[]{3, 2, 1, E, E, 4}), key.mirrored());
+        assertEquals(key, key.mirrored().mirrored());
+    }
+
+    @Test
+    public void symmetricShapesMirrorToThemselves() {
+        GridKey key = GridKey.trimmed(3, 2, new int[]{
+                1, 1, 1,
+                E, 2, E});
+
+        assertEquals(key, key.mirrored());
+    }
+}
@@ -0,0 +1,71 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.terasology.engine.context.Context;
+import org.terasology.engine.context.internal.ContextImpl;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.registry.InjectionHelper;
+import org.terasology.module.inventory.systems.InventoryManager;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BaseCraftingManagerTest {
+    private InventoryManager inventoryManager;
+    private BaseCraftingManager craftingManager;
+    private EntityRef crafter;
+    private EntityRef inventory;
+
+    @BeforeEach
+    public void setup() {
+        inventoryManager = mock(InventoryManager.class);
+        Context context = new ContextImpl();
+        context.put(InventoryManager.class, inventoryManager);
+        craftingManager = new BaseCraftingManager() {
+        };
+        InjectionHelper.inject(craftingManager, context);
+        crafter = mock(EntityRef.class);
+        inventory = mock(EntityRef.class);
+    }
+
+    @Test
+    public void inputsAreDestroyedOnceAllAreTaken() {
+        EntityRef plank = mock(EntityRef.class);
+        EntityRef stick = mock(EntityRef.class);
+        when(inventoryManager.removeItem(inventory, crafter, 0, false, 2)).thenReturn(plank);
+        when(inventoryManager.removeItem(inventory, crafter, 3, false, 1)).thenReturn(stick);
+
+        assertTrue(craftingManager.removeInputs(crafter, new EntityRef[]{inventory, inventory}, new int[]{0, 3},
+                new int[]{2, 1}));
+        verify(plank).destroy();
+        verify(stick).destroy();
+        verify(inventoryManager, never()).removeItem(any(), any(), anyInt(), eq(true), anyInt());
+    }
+
+    @Test
+    public void inputsAlreadyTakenAreGivenBackWhenOneCantBe() {
+        EntityRef other = mock(EntityRef.class);
+        EntityRef plank = mock(EntityRef.class);
+        EntityRef stick = mock(EntityRef.class);
+        when(inventoryManager.removeItem(inventory, crafter, 0, false, 2)).thenReturn(plank);
+        when(inventoryManager.removeItem(other, crafter, 1, false, 1)).thenReturn(stick);
+        when(inventoryManager.giveItem(any(), any(), any())).thenReturn(true);
+
+        assertFalse(craftingManager.removeInputs(crafter, new EntityRef[]{inventory, other, inventory},
+                new int[]{0, 1, 5}, new int[]{2, 1, 1}));
+        verify(inventoryManager).giveItem(inventory, crafter, plank);
+        verify(inventoryManager).giveItem(other, crafter, stick);
+        verify(plank, never()).destroy();
+        verify(stick, never()).destroy();
+    }
+}
@@ -0,0 +1,99 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.terasology.crafting.Benchmark;
+import org.terasology.crafting.HeadlessBenchmark;
+import org.terasology.crafting.TestItems;
+import org.terasology.crafting.listCrafting.components.ListRecipe;
+import org.terasology.crafting.listCrafting.systems.ListCraftingManager;
+import org.terasology.engine.context.Context;
+import org.terasology.engine.context.internal.ContextImpl;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.prefab.Prefab;
+import org.terasology.engine.registry.InjectionHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Benchmarks finding the slots to take the inputs of a recipe from, in inventories of different sizes.
+ * <p>
+ * Walking an inventory goes through mocked entities, which cost far more per call than real ones, so the full
+ * {@code getSlots} numbers are only worth comparing with each other. Assigning the slots from an inventory that has
+ * already been walked is measured on its own.
+ */
+@HeadlessBenchmark
+public class CraftingManagerBenchmarkTest {
+    private static final int[] SLOT_COUNTS = {10, 100, 1000};
+    private static final int ITEM_TYPES = 50;
+
+    private RecipeStoreImpl recipeStore;
+    private BaseCraftingManager craftingManager;
+    private Prefab[] prefabs;
+
+    @BeforeEach
+    public void setup() {
+        recipeStore = new RecipeStoreImpl();
+        Context context = new ContextImpl();
+        context.put(RecipeStore.class, recipeStore);
+        context.put(CraftingMetrics.class, new CraftingMetricsImpl());
+        craftingManager = new BaseCraftingManager() {
+        };
+        InjectionHelper.inject(craftingManager, context);
+
+        prefabs = new Prefab[ITEM_TYPES];
+        for (int i = 0; i < ITEM_TYPES; i++) {
+            prefabs[i] = TestItems.prefab("Test:item" + i);
+        }
+    }
+
+    @Test
+    public void slotsForASingleCraft() {
+        ListRecipe recipe = new ListRecipe(new String[]{"item1", "item4", "item7"}, new int[]{1, 2, 1}, "result", 1);
+        for (int slots : SLOT_COUNTS) {
+            EntityRef inventory = fill(slots);
+            assertNotNull(craftingManager.getSlots(inventory, recipe));
+            Benchmark.named("craftingManager.getSlots").param("slots", slots)
+                    .run(() -> craftingManager.getSlots(inventory, recipe));
+        }
+    }
+
+    @Test
+    public void slotsForAsManyCraftsAsPossible() {
+        ListRecipe recipe = new ListRecipe(new String[]{"item1", "item4", "item7"}, new int[]{1, 2, 1}, "result", 1);
+        for (int slots : SLOT_COUNTS) {
+            EntityRef inventory = fill(slots);
+            Benchmark.named("craftingManager.getSlots.max").param("slots", slots)
+                    .run(() -> craftingManager.getSlots(inventory, recipe, ListCraftingManager.CRAFT_MAX, 64));
+        }
+    }
+
+    @Test
+    public void slotsFromAWalkedInventory() {
+        ListRecipe recipe = new ListRecipe(new String[]{"item1", "item4", "item7"}, new int[]{1, 2, 1}, "result", 1);
+        int[] inputIds = craftingManager.getInputIds(recipe);
+        for (int slots : SLOT_COUNTS) {
+            InventoryHistogram histogram = new InventoryHistogram(fill(slots), inputIds, recipeStore);
+            Benchmark.named("inventoryHistogram.allocate").param("slots", slots)
+                    .run(() -> histogram.allocate(recipe.inputCounts, 1));
+            Benchmark.named("inventoryHistogram.allocateMax").param("slots", slots)
+                    .run(() -> histogram.allocateMax(recipe.inputCounts, 64));
+        }
+    }
+
+    /**
+     * @return An inventory with every slot holding a stack of 10 items, cycling through the item types
+     */
+    private EntityRef fill(int slots) {
+        List<EntityRef> items = new ArrayList<>();
+        for (int i = 0; i < slots; i++) {
+            items.add(TestItems.item(prefabs[i % ITEM_TYPES], 10));
+        }
+        return TestItems.inventory(items);
+    }
+}
@@ -0,0 +1,159 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.terasology.crafting.Benchmark;
+import org.terasology.crafting.HeadlessBenchmark;
+import org.terasology.engine.context.Context;
+import org.terasology.engine.context.internal.ContextImpl;
+import org.terasology.engine.registry.InjectionHelper;
+import org.terasology.engine.rendering.assets.texture.Texture;
+import org.terasology.engine.utilities.Assets;
+import org.terasology.engine.world.block.BlockManager;
+import org.terasology.engine.world.block.BlockUri;
+import org.terasology.engine.world.block.family.BlockFamily;
+import org.terasology.gestalt.assets.management.AssetManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Benchmarks registering the meshes of a large number of block families, against interning them through list
+ * searches and boxed index sets as the icon manager used to.
+ * <p>
+ * The block families are mocks, which cost more to call than the interning itself, so the timings are only reported.
+ * What is checked is that loading interns every family once and leaves the meshes to be generated when drawn.
+ */
+@HeadlessBenchmark
+public class IconLoadBenchmarkTest {
+    private static final int[] FAMILY_COUNTS = {5_000, 20_000};
+    private static final int FAMILIES = 20_000;
+    private static final int CATEGORIES = 200;
+
+    private MockedStatic<Assets> assets;
+    private CraftingMetrics metrics;
+    private IconManagerImpl iconManager;
+    private List<BlockUri> blockUris = new ArrayList<>();
+    private List<BlockFamily> families = new ArrayList<>();
+    private int registered;
+
+    @BeforeEach
+    public void setup() {
+        assets = mockStatic(Assets.class);
+        assets.when(() -> Assets.getTexture(anyString())).thenReturn(Optional.of(mock(Texture.class)));
+
+        Map<BlockUri, BlockFamily> familiesByUri = new HashMap<>();
+        for (int i = 0; i < FAMILIES; i++) {
+            BlockUri uri = new BlockUri("Test:block" + i);
+            BlockFamily family = mock(BlockFamily.class, withSettings().stubOnly());
+            when(family.getURI()).thenReturn(uri);
+            when(family.getCategories()).thenReturn(Arrays.asList("category" + i % CATEGORIES,
+                    "category" + (i * 7 + 1) % CATEGORIES));
+            familiesByUri.put(uri, family);
+            blockUris.add(uri);
+            families.add(family);
+        }
+        /* Answered from a map, as a stub per family would be searched through on every call */
+        BlockManager blockManager = mock(BlockManager.class, withSettings().stubOnly());
+        when(blockManager.listRegisteredBlockUris()).thenAnswer(invocation -> blockUris.subList(0, registered));
+        when(blockManager.getBlockFamily(any(BlockUri.class)))
+                .thenAnswer(invocation -> familiesByUri.get(invocation.getArgument(0)));
+
+        Context context = new ContextImpl();
+        context.put(AssetManager.class, mock(AssetManager.class));
+        context.put(BlockManager.class, blockManager);
+        context.put(RecipeStore.class, new RecipeStoreImpl());
+        metrics = new CraftingMetricsImpl();
+        metrics.setEnabled(true);
+        context.put(CraftingMetrics.class, metrics);
+        iconManager = new IconManagerImpl();
+        InjectionHelper.inject(iconManager, context);
+        iconManager.initialise();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        assets.close();
+    }
+
+    @Test
+    public void loadBlockFamilies() {
+        for (int count : FAMILY_COUNTS) {
+            registered = count;
+            List<BlockFamily> registeredFamilies = families.subList(0, registered);
+            Benchmark.named("iconManager.loadBlocks.listInterning").param("families", registered)
+                    .runOnce(() -> {
+                        ListInterning interning = new ListInterning();
+                        for (BlockFamily family : registeredFamilies) {
+                            interning.addMeshPair(family.getURI().toString().toLowerCase(), family);
+                            interning.addMeshPair(family.getURI().getBlockFamilyDefinitionUrn().getResourceName()
+                                    .toLowerCase(), family);
+                            for (String category : family.getCategories()) {
+                                interning.addMeshPair(category, family);
+                            }
+                        }
+                        return interning;
+                    });
+            Benchmark.named("iconManager.loadBlocks").param("families", registered)
+                    .runOnce(() -> {
+                        iconManager.scrapeIcons(new PrefabScanner());
+                        return iconManager;
+                    });
+        }
+
+        assertTrue(iconManager.hasMesh("Test:block123"));
+        assertTrue(iconManager.hasMesh("category7"));
+        assertEquals(2 * FAMILIES / CATEGORIES, iconManager.resolve("category7").getMeshCount());
+        Map<String, Long> values = new HashMap<>();
+        metrics.export(new MetricsExporter() {
+            @Override
+            public void value(String name, long value) {
+                values.put(name, value);
+            }
+
+            @Override
+            public void histogram(String name, LatencyHistogram histogram) {
+            }
+        });
+        assertEquals(FAMILIES, (long) values.get("icons.meshFamilies"));
+        assertEquals(0, (long) values.getOrDefault("icons.meshesGenerated", 0L));
+    }
+
+    /**
+     * Interns meshes the way the icon manager used to: finding each one with a search of the list so far, and
+     * keeping a set of boxed indices for every key. The engine is not called at all, so this is only the cost of
+     * the interning itself.
+     */
+    private static final class ListInterning {
+        private final List<BlockFamily> meshList = new ArrayList<>();
+        private final Map<String, Set<Integer>> meshLookup = new HashMap<>();
+
+        private void addMeshPair(String key, BlockFamily value) {
+            int index = meshList.indexOf(value);
+            if (index == -1) {
+                index = meshList.size();
+                meshList.add(value);
+            }
+            meshLookup.computeIfAbsent(key, name -> new HashSet<>()).add(index);
+        }
+    }
+}
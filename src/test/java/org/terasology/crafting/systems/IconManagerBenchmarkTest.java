@@ -0,0 +1,60 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.terasology.crafting.Benchmark;
+import org.terasology.crafting.HeadlessBenchmark;
+import org.terasology.crafting.TestItems;
+import org.terasology.engine.context.Context;
+import org.terasology.engine.context.internal.ContextImpl;
+import org.terasology.engine.logic.inventory.ItemComponent;
+import org.terasology.engine.registry.InjectionHelper;
+import org.terasology.engine.rendering.assets.texture.TextureRegion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Benchmarks looking up the icons of ingredients.
+ */
+@HeadlessBenchmark
+public class IconManagerBenchmarkTest {
+    private static final int ITEMS = 10_000;
+
+    private IconManagerImpl iconManager;
+
+    @BeforeEach
+    public void setup() {
+        Context context = new ContextImpl();
+        context.put(RecipeStore.class, new RecipeStoreImpl());
+        context.put(CraftingMetrics.class, new CraftingMetricsImpl());
+        iconManager = new IconManagerImpl();
+        InjectionHelper.inject(iconManager, context);
+
+        for (int i = 0; i < ITEMS; i++) {
+            ItemComponent item = new ItemComponent();
+            item.icon = mock(TextureRegion.class);
+            iconManager.updateIcons("Test:item" + i, TestItems.prefab("Test:item" + i, item));
+        }
+    }
+
+    @Test
+    public void iconsByName() {
+        assertEquals(1, iconManager.getIcon("Test:item42").length);
+        Benchmark.named("iconManager.getIcon").param("items", ITEMS)
+                .run(() -> iconManager.getIcon("Test:item42"));
+        Benchmark.named("iconManager.hasIcon").param("items", ITEMS)
+                .run(() -> iconManager.hasIcon("item42"));
+    }
+
+    @Test
+    public void resolvedHandles() {
+        assertEquals(1, iconManager.resolve("Test:item42").getIconCount());
+        Benchmark.named("iconManager.resolve").param("items", ITEMS)
+                .run(() -> iconManager.resolve("Test:item42"));
+        Benchmark.named("iconManager.resolve.missing").param("items", ITEMS)
+                .run(() -> iconManager.resolve("Test:missing"));
+    }
+}
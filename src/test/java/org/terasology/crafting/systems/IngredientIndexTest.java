@@ -0,0 +1,111 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.terasology.crafting.TestItems;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.prefab.Prefab;
+import org.terasology.engine.world.block.BlockUri;
+import org.terasology.engine.world.block.family.BlockFamily;
+import org.terasology.engine.world.block.items.BlockItemComponent;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class IngredientIndexTest {
+    private Map<String, String[]> otherNames;
+    private IngredientIndex ingredientIndex;
+
+    @BeforeEach
+    public void setup() {
+        otherNames = new HashMap<>();
+        ingredientIndex = new IngredientIndex(otherNames::get);
+    }
+
+    @Test
+    public void namesAreCaseInsensitive() {
+        int id = ingredientIndex.getId("Core:Plank");
+
+        assertEquals(id, ingredientIndex.getId("core:plank"));
+        assertEquals(id, ingredientIndex.findId("CORE:PLANK"));
+        assertEquals("core:plank", ingredientIndex.getName(id));
+        assertNotEquals(id, ingredientIndex.getId("plank"));
+        assertEquals(2, ingredientIndex.size());
+    }
+
+    @Test
+    public void findingAnUnknownNameDoesNotAssignAnId() {
+        assertEquals(-1, ingredientIndex.findId("Core:Plank"));
+        assertEquals(0, ingredientIndex.size());
+    }
+
+    @Test
+    public void prefabsSatisfyTheirFullShortAndOtherNames() {
+        otherNames.put("Core:Plank", new String[]{"wood", "PLANK"});
+        Prefab plank = TestItems.prefab("Core:Plank");
+
+        int[] ids = ingredientIndex.getIngredientIds(plank);
+        assertEquals(3, ids.length);
+        assertTrue(isSorted(ids));
+        assertTrue(IngredientIndex.satisfies(ids, ingredientIndex.getId("core:plank")));
+        assertTrue(IngredientIndex.satisfies(ids, ingredientIndex.getId("plank")));
+        assertTrue(IngredientIndex.satisfies(ids, ingredientIndex.getId("Wood")));
+        assertFalse(IngredientIndex.satisfies(ids, ingredientIndex.getId("stick")));
+    }
+
+    @Test
+    public void idsAreCachedUntilTheOtherNamesChange() {
+        Prefab plank = TestItems.prefab("Core:Plank");
+        int[] ids = ingredientIndex.getIngredientIds(plank);
+        assertSame(ids, ingredientIndex.getIngredientIds(plank));
+
+        otherNames.put("Core:Plank", new String[]{"wood"});
+        assertSame(ids, ingredientIndex.getIngredientIds(plank));
+        ingredientIndex.clearItemCache();
+        assertTrue(IngredientIndex.satisfies(ingredientIndex.getIngredientIds(plank), ingredientIndex.getId("wood")));
+    }
+
+    @Test
+    public void blockItemsSatisfyTheirFamilyAndCategories() {
+        BlockFamily stone = mock(BlockFamily.class);
+        when(stone.getURI()).thenReturn(new BlockUri("Core:Stone"));
+        when(stone.getCategories()).thenReturn(Arrays.asList("rock", "building"));
+        BlockItemComponent blockItem = new BlockItemComponent();
+        blockItem.blockFamily = stone;
+        EntityRef item = TestItems.entity(TestItems.prefab("Engine:blockItemBase"), blockItem);
+
+        int[] ids = ingredientIndex.getIngredientIds(item);
+        assertArrayEquals(ingredientIndex.getIngredientIds(stone), ids);
+        assertEquals(4, ids.length);
+        assertTrue(IngredientIndex.satisfies(ids, ingredientIndex.getId("stone")));
+        assertTrue(IngredientIndex.satisfies(ids, ingredientIndex.getId("rock")));
+        assertFalse(IngredientIndex.satisfies(ids, ingredientIndex.getId("blockItemBase")));
+    }
+
+    @Test
+    public void itemsWithoutAPrefabSatisfyNothing() {
+        assertEquals(0, ingredientIndex.getIngredientIds(TestItems.entity(null)).length);
+        assertEquals(0, ingredientIndex.getIngredientIds((BlockFamily) null).length);
+    }
+
+    private static boolean isSorted(int[] ids) {
+        for (int i = 1; i < ids.length; i++) {
+            if (ids[i - 1] >= ids[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,116 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.terasology.crafting.TestItems;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.prefab.Prefab;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class InventoryHistogramTest {
+    private RecipeStoreImpl recipeStore;
+    private Prefab plank;
+    private Prefab stick;
+
+    @BeforeEach
+    public void setup() {
+        recipeStore = new RecipeStoreImpl();
+        plank = TestItems.prefab("Core:plank");
+        stick = TestItems.prefab("Core:stick");
+    }
+
+    @Test
+    public void countsEveryStackOfAnIngredient() {
+        EntityRef inventory = TestItems.inventory(TestItems.item(plank, 3), TestItems.item(stick, 5),
+                TestItems.item(plank, 4));
+        InventoryHistogram histogram = new InventoryHistogram(inventory, ids("plank", "stick", "log"), recipeStore);
+
+        assertEquals(7, histogram.getTotal(0));
+        assertEquals(5, histogram.getTotal(1));
+        assertEquals(0, histogram.getTotal(2));
+        assertEquals(2, histogram.getMaxTimes(new int[]{3, 1, 0}));
+    }
+
+    @Test
+    public void inputsAreTakenFromSeveralPartialStacks() {
+        EntityRef inventory = TestItems.inventory(TestItems.item(plank, 3), TestItems.item(stick, 5),
+                TestItems.item(plank, 4));
+        InventoryHistogram histogram = new InventoryHistogram(inventory, ids("plank", "stick"), recipeStore);
+
+        SlotAllocation allocation = histogram.allocate(new int[]{2, 1}, 3);
+        assertNotNull(allocation);
+        assertEquals(3, allocation.getTimes());
+        assertEquals(3, allocation.size());
+        assertEntry(allocation, 0, 0, inventory, 0, 3);
+        assertEntry(allocation, 1, 0, inventory, 2, 3);
+        assertEntry(allocation, 2, 1, inventory, 1, 3);
+    }
+
+    @Test
+    public void notEnoughItemsAllocateNothing() {
+        EntityRef inventory = TestItems.inventory(TestItems.item(plank, 3), TestItems.item(stick, 5));
+        InventoryHistogram histogram = new InventoryHistogram(inventory, ids("plank", "stick"), recipeStore);
+
+        assertNull(histogram.allocate(new int[]{2, 1}, 2));
+        assertNull(histogram.allocateMax(new int[]{4, 1}, 10));
+    }
+
+    @Test
+    public void aSlotIsSharedBetweenInputsItSatisfies() {
+        EntityRef inventory = TestItems.inventory(TestItems.item(plank, 5));
+        InventoryHistogram histogram = new InventoryHistogram(inventory, ids("core:plank", "plank"), recipeStore);
+
+        SlotAllocation allocation = histogram.allocate(new int[]{1, 1}, 2);
+        assertNotNull(allocation);
+        assertEntry(allocation, 0, 0, inventory, 0, 2);
+        assertEntry(allocation, 1, 1, inventory, 0, 2);
+        assertNull(histogram.allocate(new int[]{1, 1}, 3));
+    }
+
+    @Test
+    public void theMostCraftsAreFoundWhenItemsSatisfySeveralInputs() {
+        EntityRef inventory = TestItems.inventory(TestItems.item(plank, 9));
+        InventoryHistogram histogram = new InventoryHistogram(inventory, ids("core:plank", "plank"), recipeStore);
+
+        /* Both inputs count all 9 planks, allowing 4 crafts, but only 3 crafts of 1 + 2 planks fit */
+        assertEquals(4, histogram.getMaxTimes(new int[]{1, 2}));
+        SlotAllocation allocation = histogram.allocateMax(new int[]{1, 2}, 64);
+        assertNotNull(allocation);
+        assertEquals(3, allocation.getTimes());
+        assertEquals(2, histogram.allocateMax(new int[]{1, 2}, 2).getTimes());
+    }
+
+    @Test
+    public void earlierInventoriesAreUsedUpFirst() {
+        EntityRef first = TestItems.inventory(TestItems.item(stick, 1), TestItems.item(plank, 2));
+        EntityRef second = TestItems.inventory(TestItems.item(plank, 6));
+        InventoryHistogram histogram = new InventoryHistogram(Arrays.asList(first, second), ids("plank"),
+                recipeStore);
+
+        assertEquals(8, histogram.getTotal(0));
+        SlotAllocation allocation = histogram.allocate(new int[]{5}, 1);
+        assertNotNull(allocation);
+        assertEntry(allocation, 0, 0, first, 1, 2);
+        assertEntry(allocation, 1, 0, second, 0, 3);
+    }
+
+    private int[] ids(String... names) {
+        return Arrays.stream(names).mapToInt(recipeStore::getIngredientId).toArray();
+    }
+
+    private static void assertEntry(SlotAllocation allocation, int entry, int input, EntityRef inventory, int slot,
+                                    int count) {
+        assertEquals(input, allocation.getInput(entry));
+        assertSame(inventory, allocation.getInventory(entry));
+        assertEquals(slot, allocation.getSlot(entry));
+        assertEquals(count, allocation.getCount(entry));
+    }
+}
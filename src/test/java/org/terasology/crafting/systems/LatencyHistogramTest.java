@@ -0,0 +1,103 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+    @Test
+    public void anEmptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getTotal());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(0.99));
+    }
+
+    @Test
+    public void countsTotalsAndMaxAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100);
+        histogram.record(2500);
+        histogram.record(7);
+
+        assertEquals(3, histogram.getCount());
+        assertEquals(2607, histogram.getTotal());
+        assertEquals(2500, histogram.getMax());
+    }
+
+    @Test
+    public void negativeDurationsCountAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-50);
+
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getTotal());
+        assertEquals(0, histogram.getPercentile(1));
+    }
+
+    @Test
+    public void percentilesAreWithinAFactorOfTwo() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        assertBetween(500_000, 1_000_000, histogram.getPercentile(0.5));
+        assertBetween(990_000, 1_000_000, histogram.getPercentile(0.99));
+        assertEquals(1_000_000, histogram.getPercentile(1));
+        assertBetween(1000, 2000, histogram.getPercentile(0));
+    }
+
+    @Test
+    public void percentilesNeverExceedTheMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1025);
+        histogram.record(1030);
+
+        /* The bucket holding both goes up to 2047 */
+        assertEquals(1030, histogram.getPercentile(0.5));
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(1));
+    }
+
+    @Test
+    public void resetForgetsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(0.5));
+    }
+
+    @Test
+    public void recordingFromSeveralThreadsLosesNothing() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    histogram.record(j);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40000, histogram.getCount());
+        assertEquals(4L * 9999 * 10000 / 2, histogram.getTotal());
+        assertEquals(9999, histogram.getMax());
+    }
+
+    private static void assertBetween(long low, long high, long value) {
+        assertTrue(value >= low && value <= high, value + " is not between " + low + " and " + high);
+    }
+}
@@ -0,0 +1,100 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+import org.junit.jupiter.api.Test;
+import org.terasology.crafting.Benchmark;
+import org.terasology.crafting.HeadlessBenchmark;
+import org.terasology.crafting.TestItems;
+import org.terasology.crafting.components.CraftingIngredientComponent;
+import org.terasology.crafting.listCrafting.components.ListRecipeContainer;
+import org.terasology.crafting.listCrafting.components.ListRecipesComponent;
+import org.terasology.engine.context.Context;
+import org.terasology.engine.context.internal.ContextImpl;
+import org.terasology.engine.entitySystem.prefab.Prefab;
+import org.terasology.engine.logic.inventory.ItemComponent;
+import org.terasology.engine.registry.InjectionHelper;
+import org.terasology.gestalt.assets.management.AssetManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Benchmarks the startup work done on every prefab: scanning them, collecting ingredient names and loading recipes.
+ * <p>
+ * The largest set is only built when the {@code crafting.largeBenchmarks} system property is set, as it takes a lot of
+ * memory.
+ */
+@HeadlessBenchmark
+public class PrefabScanBenchmarkTest {
+    private static final int[] PREFAB_COUNTS = {1_000, 10_000};
+    private static final int LARGE_PREFAB_COUNT = 100_000;
+
+    @Test
+    public void scanAndLoadRecipes() {
+        for (int count : PREFAB_COUNTS) {
+            benchmark(count);
+        }
+        if (Boolean.getBoolean("crafting.largeBenchmarks")) {
+            benchmark(LARGE_PREFAB_COUNT);
+        }
+    }
+
+    private void benchmark(int count) {
+        List<Prefab> prefabs = createPrefabs(count);
+        AssetManager assetManager = mock(AssetManager.class);
+        Benchmark.named("startup.scrape").param("prefabs", count).runOnce(() -> {
+            RecipeStore recipeStore = scrape(prefabs, assetManager);
+            assertEquals(count, recipeStore.getRecipes("InHand").length);
+            return recipeStore;
+        });
+    }
+
+    /**
+     * Runs the same stages as {@link PrefabScraper} does at startup, without the icons and the cache
+     */
+    private RecipeStore scrape(List<Prefab> prefabs, AssetManager assetManager) {
+        Context context = new ContextImpl();
+        RecipeStoreImpl recipeStore = new RecipeStoreImpl();
+        context.put(AssetManager.class, assetManager);
+        context.put(CraftingMetrics.class, new CraftingMetricsImpl());
+        InjectionHelper.inject(recipeStore, context);
+        context.put(RecipeStore.class, recipeStore);
+        RecipeLoader recipeLoader = new LoadRecipeSystem();
+        InjectionHelper.inject(recipeLoader, context);
+
+        PrefabScanner scanner = new PrefabScanner();
+        recipeLoader.addScanHandlers(scanner);
+        scanner.scan(prefabs);
+        recipeStore.scrapeIngredientNames(scanner);
+        recipeLoader.loadRecipes();
+        return recipeStore;
+    }
+
+    /**
+     * @return Item prefabs with one recipe each, every tenth of them also giving its item another ingredient name
+     */
+    private static List<Prefab> createPrefabs(int count) {
+        List<Prefab> prefabs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ListRecipeContainer recipe = new ListRecipeContainer();
+            recipe.inputs = Collections.singletonMap("Test:item" + (i + 1) % count, 2);
+            recipe.output = "Test:item" + i;
+            recipe.outputCount = 1;
+            ListRecipesComponent recipes = new ListRecipesComponent();
+            recipes.recipes.put("Test:item" + i, recipe);
+            if (i % 10 == 0) {
+                CraftingIngredientComponent ingredient = new CraftingIngredientComponent();
+                ingredient.ingredientIds.add("group" + i / 100);
+                prefabs.add(TestItems.prefab("Test:item" + i, new ItemComponent(), recipes, ingredient));
+            } else {
+                prefabs.add(TestItems.prefab("Test:item" + i, new ItemComponent(), recipes));
+            }
+        }
+        return prefabs;
+    }
+}
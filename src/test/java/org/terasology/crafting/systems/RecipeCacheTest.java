@@ -0,0 +1,101 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.terasology.crafting.TestItems;
+import org.terasology.crafting.components.CraftingIngredientComponent;
+import org.terasology.crafting.listCrafting.components.ListRecipe;
+import org.terasology.gestalt.module.ModuleEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RecipeCacheTest {
+    private Path folder;
+    private Path file;
+    private ModuleEnvironment environment;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        folder = Files.createTempDirectory("recipeCache");
+        file = folder.resolve("recipes.bin");
+        environment = mock(ModuleEnvironment.class);
+        when(environment.iterator()).thenReturn(Collections.emptyIterator());
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(folder);
+    }
+
+    @Test
+    public void aStoreReadsBackWhatWasWritten() {
+        RecipeStoreImpl written = new RecipeStoreImpl();
+        ListRecipe sticks = new ListRecipe(new String[]{"plank"}, new int[]{2}, "Core:stick", 4);
+        sticks.duration = 1.5f;
+        written.putRecipe(sticks, new String[]{"InHand", "Woodworking"}, "Core:sticks");
+        written.putRecipe(new ListRecipe(new String[]{"log"}, new int[]{1}, "Core:plank", 4), new String[]{"InHand"});
+        written.putRecipe(new ListRecipe(new String[]{"stone"}, new int[]{1}, "Core:gone", 1), new String[]{"InHand"},
+                "Core:removed");
+        written.removeRecipes("Core:removed");
+        new RecipeCache(file, environment, written).write();
+
+        RecipeStoreImpl read = new RecipeStoreImpl();
+        assertTrue(new RecipeCache(file, environment, read).read());
+        List<ListRecipe> recipes = read.getRecipes("InHand", ListRecipe.class);
+        assertEquals(2, recipes.size());
+        ListRecipe readSticks = recipes.get(0);
+        assertEquals("Core:stick", readSticks.output);
+        assertEquals(4, readSticks.outputCount);
+        assertEquals(1.5f, readSticks.duration, 0);
+        assertArrayEquals(new String[]{"plank"}, readSticks.inputItems);
+        assertArrayEquals(new int[]{2}, readSticks.inputCounts);
+        assertEquals("core:sticks", read.getSource(readSticks));
+        assertTrue(read.isInCategory(readSticks, "woodworking"));
+        assertFalse(read.isInCategory(recipes.get(1), "Woodworking"));
+    }
+
+    @Test
+    public void aCacheForOtherPrefabsIsIgnored() {
+        RecipeStoreImpl written = new RecipeStoreImpl();
+        written.putRecipe(new ListRecipe(new String[]{"log"}, new int[]{1}, "Core:plank", 4), new String[]{"InHand"});
+        new RecipeCache(file, environment, written).write();
+
+        RecipeStoreImpl read = new RecipeStoreImpl();
+        RecipeCache changed = new RecipeCache(file, environment, read);
+        PrefabScanner scanner = new PrefabScanner();
+        changed.addScanHandlers(scanner);
+        scanner.scan(Collections.singletonList(TestItems.prefab("Core:chest",
+                new CraftingIngredientComponent())));
+        assertFalse(changed.read());
+        assertEquals(0, read.getRecipes(ListRecipe.class).size());
+    }
+
+    @Test
+    public void aBrokenCacheLeavesTheStoreEmpty() throws IOException {
+        RecipeStoreImpl written = new RecipeStoreImpl();
+        written.putRecipe(new ListRecipe(new String[]{"log"}, new int[]{1}, "Core:plank", 4), new String[]{"InHand"});
+        new RecipeCache(file, environment, written).write();
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+
+        RecipeStoreImpl read = new RecipeStoreImpl();
+        assertFalse(new RecipeCache(file, environment, read).read());
+        assertEquals(0, read.getRecipes(ListRecipe.class).size());
+    }
+}
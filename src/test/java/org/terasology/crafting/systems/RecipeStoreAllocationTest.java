@@ -0,0 +1,109 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.terasology.crafting.Benchmark;
+import org.terasology.crafting.HeadlessBenchmark;
+import org.terasology.crafting.components.Recipe;
+import org.terasology.crafting.listCrafting.components.ListRecipe;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Measures the memory allocated by category queries on a large store, against the boxed category sets the store
+ * used to keep.
+ */
+@HeadlessBenchmark
+public class RecipeStoreAllocationTest {
+    private static final int RECIPES = 50_000;
+    private static final int CATEGORIES = 300;
+
+    private RecipeStoreImpl recipeStore;
+    private BoxedCategories boxedCategories;
+    private String[] someCategories;
+
+    @BeforeEach
+    public void setup() {
+        recipeStore = new RecipeStoreImpl();
+        boxedCategories = new BoxedCategories();
+        for (int i = 0; i < RECIPES; i++) {
+            Recipe recipe = new ListRecipe(new String[]{"item" + i}, new int[]{1}, "result" + i, 1);
+            String[] categories = {"Category" + i % CATEGORIES, "Category" + (i * 7 + 1) % CATEGORIES};
+            recipeStore.putRecipe(recipe, categories);
+            boxedCategories.put(recipe, categories);
+        }
+        someCategories = new String[]{"Category3", "Category150", "Category299"};
+    }
+
+    @Test
+    public void severalCategoriesAllocateOnlyTheResult() {
+        assertEquals(boxedCategories.getRecipes(someCategories).length, recipeStore.getRecipes(someCategories).length);
+        Benchmark.Result before = Benchmark.named("recipeStore.allocation.categories.boxed")
+                .param("recipes", RECIPES).param("categories", CATEGORIES)
+                .run(() -> boxedCategories.getRecipes(someCategories));
+        Benchmark.Result after = Benchmark.named("recipeStore.allocation.categories")
+                .param("recipes", RECIPES).param("categories", CATEGORIES)
+                .run(() -> recipeStore.getRecipes(someCategories));
+
+        assumeTrue(after.getBytesPerOp() >= 0, "The JVM doesn't count allocations");
+        /* Allow for the result array and a single bit per recipe in the store for merging the categories */
+        int results = recipeStore.getRecipes(someCategories).length;
+        assertTrue(after.getBytesPerOp() < 8 * results + RECIPES / 8 + 1024,
+                "Allocated " + after.getBytesPerOp() + " bytes for " + results + " recipes");
+        assertTrue(after.getBytesPerOp() < before.getBytesPerOp() / 2,
+                "Allocated " + after.getBytesPerOp() + " bytes against " + before.getBytesPerOp() + " before");
+    }
+
+    @Test
+    public void typedCategoryViewsAllocateNothing() {
+        Benchmark.Result result = Benchmark.named("recipeStore.allocation.categoryOfType")
+                .param("recipes", RECIPES).param("categories", CATEGORIES)
+                .run(() -> recipeStore.getRecipes("Category42", ListRecipe.class));
+        assumeTrue(result.getBytesPerOp() >= 0, "The JVM doesn't count allocations");
+        assertTrue(result.getBytesPerOp() < 1, "Allocated " + result.getBytesPerOp() + " bytes");
+    }
+
+    /**
+     * The category lookup the store used to have: a set of boxed recipe indices per lower case category name,
+     * merged into a new set for every query.
+     */
+    private static final class BoxedCategories {
+        private final List<Recipe> recipeList = new ArrayList<>();
+        private final Map<String, Set<Integer>> categoryLookup = new HashMap<>();
+
+        private void put(Recipe recipe, String[] categories) {
+            recipeList.add(recipe);
+            for (String category : categories) {
+                categoryLookup.computeIfAbsent(category.toLowerCase(), key -> new HashSet<>())
+                        .add(recipeList.size() - 1);
+            }
+        }
+
+        private Recipe[] getRecipes(String[] categories) {
+            Set<Integer> indices = new HashSet<>();
+            for (String category : categories) {
+                String lowerCategory = category.toLowerCase();
+                if (categoryLookup.containsKey(lowerCategory)) {
+                    indices.addAll(categoryLookup.get(lowerCategory));
+                }
+            }
+            Recipe[] recipes = new Recipe[indices.size()];
+            int i = 0;
+            for (int index : indices) {
+                recipes[i++] = recipeList.get(index);
+            }
+            return recipes;
+        }
+    }
+}
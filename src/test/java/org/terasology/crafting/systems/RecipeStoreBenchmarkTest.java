@@ -0,0 +1,71 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.terasology.crafting.Benchmark;
+import org.terasology.crafting.HeadlessBenchmark;
+import org.terasology.crafting.PatternRecipe;
+import org.terasology.crafting.components.Recipe;
+import org.terasology.crafting.listCrafting.components.ListRecipe;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Benchmarks the category and type queries of the recipe store.
+ */
+@HeadlessBenchmark
+public class RecipeStoreBenchmarkTest {
+    private static final int RECIPES = 10_000;
+    private static final int CATEGORIES = 100;
+
+    private RecipeStoreImpl recipeStore;
+    private String[] someCategories;
+
+    @BeforeEach
+    public void setup() {
+        recipeStore = new RecipeStoreImpl();
+        for (int i = 0; i < RECIPES; i++) {
+            String[] categories = {"category" + i % CATEGORIES, "category" + (i * 7 + 3) % CATEGORIES};
+            Recipe recipe = i % 4 == 0
+                    ? new PatternRecipe(new String[]{"item" + i, null, "item" + (i + 1)}, 3, "result" + i, 1, true)
+                    : new ListRecipe(new String[]{"item" + i, "item" + (i + 1)}, new int[]{1, 2}, "result" + i, 1);
+            recipeStore.putRecipe(recipe, categories, "Test:prefab" + i / 10);
+        }
+        someCategories = new String[]{"category1", "category20", "category55", "category99"};
+    }
+
+    @Test
+    public void singleCategory() {
+        Benchmark.named("recipeStore.getRecipes.category").param("recipes", RECIPES)
+                .run(() -> recipeStore.getRecipes("category42"));
+        assertEquals(2 * RECIPES / CATEGORIES, recipeStore.getRecipes("category42").length);
+    }
+
+    @Test
+    public void severalCategories() {
+        Benchmark.named("recipeStore.getRecipes.categories").param("recipes", RECIPES)
+                .param("categories", someCategories.length)
+                .run(() -> recipeStore.getRecipes(someCategories));
+    }
+
+    @Test
+    public void categoryOfType() {
+        Benchmark.named("recipeStore.getRecipes.categoryOfType").param("recipes", RECIPES)
+                .run(() -> recipeStore.getRecipes("category42", ListRecipe.class));
+        Benchmark.named("recipeStore.getRecipes.categoriesOfType").param("recipes", RECIPES)
+                .param("categories", someCategories.length)
+                .run(() -> recipeStore.getRecipes(someCategories, ListRecipe.class));
+    }
+
+    @Test
+    public void everyRecipeOfType() {
+        Benchmark.named("recipeStore.getRecipes.type").param("recipes", RECIPES)
+                .run(() -> recipeStore.getRecipes(PatternRecipe.class));
+        List<PatternRecipe> patterns = recipeStore.getRecipes(PatternRecipe.class);
+        assertEquals(RECIPES / 4, patterns.size());
+    }
+}
@@ -0,0 +1,83 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.crafting.systems;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.terasology.crafting.TestItems;
+import org.terasology.crafting.components.Recipe;
+import org.terasology.crafting.listCrafting.components.ListRecipe;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RecipeStoreImplTest {
+    private RecipeStoreImpl recipeStore;
+
+    @BeforeEach
+    public void setup() {
+        recipeStore = new RecipeStoreImpl();
+    }
+
+    @Test
+    public void recipesNamingAnInputTwiceAreListedOnce() {
+        ListRecipe recipe = add("Core:frame", "plank", "stick", "plank");
+
+        assertEquals(Collections.singletonList(recipe), recipeStore.getRecipesUsing("plank"));
+        assertEquals(Collections.singletonList(recipe), recipeStore.getRecipesUsing("stick"));
+    }
+
+    @Test
+    public void recipesUsingAnItemUnderSeveralNamesComeInStoreOrder() {
+        ListRecipe first = add("Core:stick", "plank");
+        ListRecipe second = add("Core:chest", "Core:plank");
+        ListRecipe both = add("Core:table", "Core:plank", "plank");
+        ListRecipe third = add("Core:door", "plank");
+        add("Core:torch", "coal");
+        EntityRef plank = TestItems.item(TestItems.prefab("Core:plank"), 1);
+
+        assertEquals(Arrays.<Recipe>asList(first, second, both, third), recipeStore.getRecipesUsing(plank));
+    }
+
+    @Test
+    public void removedRecipesAreUnlinked() {
+        ListRecipe kept = add("Core:stick", "plank");
+        ListRecipe removed = new ListRecipe(new String[]{"plank", "plank"}, new int[]{1, 1}, "Core:chest", 1);
+        recipeStore.putRecipe(removed, new String[]{"InHand"}, "Core:chests");
+        ListRecipe added = add("Core:door", "plank");
+
+        assertEquals(Arrays.<Recipe>asList(kept, removed, added), recipeStore.getRecipesUsing("plank"));
+        assertEquals(1, recipeStore.removeRecipes("Core:chests"));
+        assertEquals(Arrays.<Recipe>asList(kept, added), recipeStore.getRecipesUsing("plank"));
+        assertEquals(0, recipeStore.getRecipesProducing("Core:chest").size());
+        assertEquals(Arrays.asList(kept, added), recipeStore.getRecipes("InHand", ListRecipe.class));
+    }
+
+    @Test
+    public void namesMatchWhateverTheDefaultLocale() {
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            ListRecipe recipe = new ListRecipe(new String[]{"IRON"}, new int[]{1}, "Core:ingot", 1);
+            recipeStore.putRecipe(recipe, new String[]{"Smelting"}, "Core:ingots");
+
+            assertEquals(Collections.singletonList(recipe), recipeStore.getRecipes("SMELTING", ListRecipe.class));
+            assertEquals(Collections.singletonList(recipe), recipeStore.getRecipesUsing("iron"));
+            assertEquals(1, recipeStore.removeRecipes("CORE:INGOTS"));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    private ListRecipe add(String output, String... inputs) {
+        int[] counts = new int[inputs.length];
+        Arrays.fill(counts, 1);
+        ListRecipe recipe = new ListRecipe(inputs, counts, output, 1);
+        recipeStore.putRecipe(recipe, new String[]{"InHand"});
+        return recipe;
+    }
+}